@@ -1,7 +1,7 @@
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 
-@SpringBootApplication(scanBasePackages = {"exceptions", "control", "model"})
+@SpringBootApplication(scanBasePackages = {"exceptions", "control", "model", "persistence"})
 public class PlanUcabBackendApplication {
 
 	public static void main(String[] args) {
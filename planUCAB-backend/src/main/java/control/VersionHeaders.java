@@ -0,0 +1,39 @@
+package control;
+
+import model.Bloque;
+import persistence.UserScopedRepository;
+
+// Traducción entre la versión de un registro y los encabezados ETag / If-Match
+public final class VersionHeaders {
+
+    private VersionHeaders() {
+    }
+
+    public static String etag(Bloque record) {
+        return "\"" + UserScopedRepository.versionOf(record) + "\"";
+    }
+
+    // Versión que exige el If-Match, o null si no hay que comprobarla (sin encabezado o "*").
+    // Solo se admite un ETag fuerte; los débiles (W/) nunca coinciden en If-Match.
+    public static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.contains(",")) {
+            throw new IllegalArgumentException("If-Match admite un solo ETag");
+        }
+        if (tag.startsWith("W/")) {
+            // Una versión que no puede existir: siempre responde 412
+            return -1L;
+        }
+        if (tag.length() >= 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            tag = tag.substring(1, tag.length() - 1);
+        }
+        try {
+            return Long.parseLong(tag);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("If-Match inválido: " + ifMatch);
+        }
+    }
+}
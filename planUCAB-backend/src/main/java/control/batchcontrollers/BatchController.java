@@ -0,0 +1,30 @@
+package control.batchcontrollers;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+
+import jakarta.validation.Valid;
+
+@RestController
+@CrossOrigin(origins = "http://localhost:4200")
+public class BatchController {
+
+    private final BatchService batchService;
+
+    public BatchController(BatchService batchService) {
+        this.batchService = batchService;
+    }
+
+    // Varias altas, cambios y bajas de un usuario en una sola petición. Responde 200 con
+    // el resultado de cada operación; en modo atómico, si se deshizo el lote, 409.
+    @PostMapping("/api/batch")
+    public ResponseEntity<BatchResponse> execute(@Valid @RequestBody BatchRequest request) {
+        BatchResponse response = batchService.execute(request);
+        HttpStatus status = response.isCommitted() ? HttpStatus.OK : HttpStatus.CONFLICT;
+        return ResponseEntity.status(status).body(response);
+    }
+}
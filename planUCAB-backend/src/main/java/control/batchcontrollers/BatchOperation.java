@@ -0,0 +1,64 @@
+package control.batchcontrollers;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import jakarta.validation.constraints.NotBlank;
+
+// Una operación del lote: op es create, update o delete; recurso es events, horarios o
+// evaluaciones (como en las rutas REST). body lleva la misma solicitud que el endpoint
+// individual; id es obligatorio para update y delete. version, si se indica, funciona
+// como el If-Match del endpoint individual.
+public class BatchOperation {
+
+    @NotBlank(message = "op es obligatorio")
+    private String op;
+
+    @NotBlank(message = "recurso es obligatorio")
+    private String recurso;
+
+    private Long id;
+
+    private Long version;
+
+    private JsonNode body;
+
+    public String getOp() {
+        return op;
+    }
+
+    public void setOp(String op) {
+        this.op = op;
+    }
+
+    public String getRecurso() {
+        return recurso;
+    }
+
+    public void setRecurso(String recurso) {
+        this.recurso = recurso;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public JsonNode getBody() {
+        return body;
+    }
+
+    public void setBody(JsonNode body) {
+        this.body = body;
+    }
+}
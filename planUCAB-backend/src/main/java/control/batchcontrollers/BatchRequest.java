@@ -0,0 +1,45 @@
+package control.batchcontrollers;
+
+import java.util.List;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+public class BatchRequest {
+
+    @NotNull(message = "el usuario es obligatorio")
+    private Long userId;
+
+    // Si es true, basta que falle una operación para deshacer todas las anteriores
+    private boolean atomic;
+
+    @NotEmpty(message = "debe indicar al menos una operación")
+    @Size(max = BatchService.MAX_OPERACIONES, message = "el lote admite como máximo " + BatchService.MAX_OPERACIONES + " operaciones")
+    private List<@Valid @NotNull BatchOperation> operations;
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public boolean isAtomic() {
+        return atomic;
+    }
+
+    public void setAtomic(boolean atomic) {
+        this.atomic = atomic;
+    }
+
+    public List<BatchOperation> getOperations() {
+        return operations;
+    }
+
+    public void setOperations(List<BatchOperation> operations) {
+        this.operations = operations;
+    }
+}
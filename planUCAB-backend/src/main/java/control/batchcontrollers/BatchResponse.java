@@ -0,0 +1,22 @@
+package control.batchcontrollers;
+
+import java.util.List;
+
+// committed es false solo en modo atómico cuando alguna operación falló y se deshizo todo
+public class BatchResponse {
+    private final boolean committed;
+    private final List<BatchResult> results;
+
+    public BatchResponse(boolean committed, List<BatchResult> results) {
+        this.committed = committed;
+        this.results = results;
+    }
+
+    public boolean isCommitted() {
+        return committed;
+    }
+
+    public List<BatchResult> getResults() {
+        return results;
+    }
+}
@@ -0,0 +1,38 @@
+package control.batchcontrollers;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+// Resultado de una operación: el código HTTP que habría devuelto el endpoint individual
+// y el registro resultante o el mensaje de error
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchResult {
+    private final int status;
+    private final Object data;
+    private final String message;
+
+    private BatchResult(int status, Object data, String message) {
+        this.status = status;
+        this.data = data;
+        this.message = message;
+    }
+
+    static BatchResult ok(int status, Object data) {
+        return new BatchResult(status, data, null);
+    }
+
+    static BatchResult error(int status, String message) {
+        return new BatchResult(status, null, message);
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public Object getData() {
+        return data;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
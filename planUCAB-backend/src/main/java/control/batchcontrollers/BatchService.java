@@ -0,0 +1,244 @@
+package control.batchcontrollers;
+
+import java.time.DateTimeException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import control.evaluacioncontrollers.CreateEvaluacionRequest;
+import control.evaluacioncontrollers.EvaluacionRepository;
+import control.evaluacioncontrollers.EvaluacionService;
+import control.eventcontrollers.CreateEventRequest;
+import control.eventcontrollers.EventRepository;
+import control.eventcontrollers.EventService;
+import control.horariocontrollers.CreateHorarioRequest;
+import control.horariocontrollers.HorarioRepository;
+import control.horariocontrollers.HorarioService;
+import exceptions.EventException;
+import exceptions.HorarioConflictoExcepcion;
+import exceptions.VersionConflictException;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import model.Bloque;
+import persistence.UserLocks;
+import persistence.UserScopedRepository;
+
+// Ejecuta en orden varias operaciones de un usuario sobre eventos, horarios y
+// evaluaciones a través de los mismos servicios que los endpoints individuales. Todo el
+// lote corre con el lock del usuario y cada repositorio afectado se persiste una sola
+// vez al final. En modo atómico, si una operación falla se devuelven los repositorios
+// tocados al estado previo al lote y no se ejecuta el resto.
+@Service
+public class BatchService {
+
+    static final int MAX_OPERACIONES = 200;
+
+    private final EventService eventService;
+    private final HorarioService horarioService;
+    private final EvaluacionService evaluacionService;
+    private final EventRepository eventRepository;
+    private final HorarioRepository horarioRepository;
+    private final EvaluacionRepository evaluacionRepository;
+    private final UserLocks userLocks;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+
+    public BatchService(EventService eventService, HorarioService horarioService, EvaluacionService evaluacionService,
+                        EventRepository eventRepository, HorarioRepository horarioRepository,
+                        EvaluacionRepository evaluacionRepository, UserLocks userLocks, ObjectMapper objectMapper,
+                        Validator validator) {
+        this.eventService = eventService;
+        this.horarioService = horarioService;
+        this.evaluacionService = evaluacionService;
+        this.eventRepository = eventRepository;
+        this.horarioRepository = horarioRepository;
+        this.evaluacionRepository = evaluacionRepository;
+        this.userLocks = userLocks;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+    }
+
+    public BatchResponse execute(BatchRequest request) {
+        Long userId = request.getUserId();
+        return userLocks.withLock(userId, () -> deferPersist(() -> run(userId, request)));
+    }
+
+    // Un volcado por repositorio al terminar el lote
+    private <R> R deferPersist(Supplier<R> action) {
+        return eventRepository.deferPersist(() -> horarioRepository.deferPersist(
+                () -> evaluacionRepository.deferPersist(action)));
+    }
+
+    private BatchResponse run(Long userId, BatchRequest request) {
+        List<BatchOperation> operations = request.getOperations();
+        List<BatchResult> results = new ArrayList<>(operations.size());
+        // Copia de cada recurso antes de su primera operación, para deshacer en modo atómico
+        Map<String, Runnable> reversiones = new LinkedHashMap<>();
+
+        for (int i = 0; i < operations.size(); i++) {
+            BatchOperation operation = operations.get(i);
+            try {
+                String recurso = recurso(operation);
+                if (request.isAtomic() && !reversiones.containsKey(recurso)) {
+                    reversiones.put(recurso, snapshot(repositoryOf(recurso), userId));
+                }
+                results.add(apply(userId, recurso, operation));
+            } catch (RuntimeException e) {
+                BatchResult error = toError(e);
+                if (request.isAtomic()) {
+                    reversiones.values().forEach(Runnable::run);
+                }
+                if (error == null) {
+                    throw e;
+                }
+                if (!request.isAtomic()) {
+                    results.add(error);
+                    continue;
+                }
+                return new BatchResponse(false, rolledBack(results.size(), i, error, operations.size()));
+            }
+        }
+        return new BatchResponse(true, results);
+    }
+
+    private BatchResult apply(Long userId, String recurso, BatchOperation operation) {
+        String op = operation.getOp().toLowerCase(Locale.ROOT);
+        switch (recurso) {
+            case "events" -> {
+                return switch (op) {
+                    case "create" -> created(eventService.createEvent(userId, body(operation, CreateEventRequest.class)));
+                    case "update" -> updated(eventService.updateEvent(userId, id(operation),
+                            body(operation, CreateEventRequest.class), operation.getVersion()));
+                    case "delete" -> deleted(() -> eventService.deleteEvent(userId, id(operation), operation.getVersion()));
+                    default -> throw unknownOp(operation);
+                };
+            }
+            case "horarios" -> {
+                return switch (op) {
+                    case "create" -> created(horarioService.createHorario(userId, body(operation, CreateHorarioRequest.class)));
+                    case "update" -> updated(horarioService.updateHorario(userId, id(operation),
+                            body(operation, CreateHorarioRequest.class), operation.getVersion()));
+                    case "delete" -> deleted(() -> horarioService.deleteHorario(userId, id(operation), operation.getVersion()));
+                    default -> throw unknownOp(operation);
+                };
+            }
+            default -> {
+                return switch (op) {
+                    case "create" -> created(evaluacionService.createEvaluacion(userId,
+                            body(operation, CreateEvaluacionRequest.class)));
+                    case "update" -> updated(evaluacionService.updateEvaluacion(userId, id(operation),
+                            body(operation, CreateEvaluacionRequest.class), operation.getVersion()));
+                    case "delete" -> deleted(() -> evaluacionService.deleteEvaluacion(userId, id(operation), operation.getVersion()));
+                    default -> throw unknownOp(operation);
+                };
+            }
+        }
+    }
+
+    private String recurso(BatchOperation operation) {
+        String recurso = operation.getRecurso().toLowerCase(Locale.ROOT);
+        if (!Set.of("events", "horarios", "evaluaciones").contains(recurso)) {
+            throw new IllegalArgumentException("Recurso desconocido: " + operation.getRecurso());
+        }
+        return recurso;
+    }
+
+    private UserScopedRepository<?> repositoryOf(String recurso) {
+        return switch (recurso) {
+            case "events" -> eventRepository;
+            case "horarios" -> horarioRepository;
+            default -> evaluacionRepository;
+        };
+    }
+
+    private <T extends Bloque> Runnable snapshot(UserScopedRepository<T> repository, Long userId) {
+        List<T> copia = repository.findByUserId(userId);
+        return () -> repository.revertTo(userId, copia);
+    }
+
+    private Long id(BatchOperation operation) {
+        if (operation.getId() == null) {
+            throw new IllegalArgumentException("id es obligatorio para " + operation.getOp());
+        }
+        return operation.getId();
+    }
+
+    // Convierte y valida el cuerpo igual que @Valid @RequestBody en el endpoint individual
+    private <R> R body(BatchOperation operation, Class<R> type) {
+        if (operation.getBody() == null || operation.getBody().isNull()) {
+            throw new IllegalArgumentException("body es obligatorio para " + operation.getOp());
+        }
+        R request;
+        try {
+            request = objectMapper.treeToValue(operation.getBody(), type);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("body inválido: " + e.getOriginalMessage());
+        }
+        Set<ConstraintViolation<R>> violaciones = validator.validate(request);
+        if (!violaciones.isEmpty()) {
+            throw new IllegalArgumentException(violaciones.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.joining("; ")));
+        }
+        return request;
+    }
+
+    private static IllegalArgumentException unknownOp(BatchOperation operation) {
+        return new IllegalArgumentException("Operación desconocida: " + operation.getOp());
+    }
+
+    private static BatchResult created(Object data) {
+        return BatchResult.ok(HttpStatus.CREATED.value(), data);
+    }
+
+    private static BatchResult updated(Object data) {
+        return BatchResult.ok(HttpStatus.OK.value(), data);
+    }
+
+    private static BatchResult deleted(Runnable delete) {
+        delete.run();
+        return BatchResult.ok(HttpStatus.NO_CONTENT.value(), null);
+    }
+
+    // Mismos códigos que GlobalExceptionHandler; null si la excepción no es de validación
+    private static BatchResult toError(RuntimeException e) {
+        if (e instanceof VersionConflictException) {
+            return BatchResult.error(HttpStatus.PRECONDITION_FAILED.value(), e.getMessage());
+        }
+        if (e instanceof HorarioConflictoExcepcion) {
+            return BatchResult.error(HttpStatus.CONFLICT.value(), e.getMessage());
+        }
+        if (e instanceof EventException || e instanceof IllegalArgumentException || e instanceof DateTimeException) {
+            return BatchResult.error(HttpStatus.BAD_REQUEST.value(), e.getMessage());
+        }
+        return null;
+    }
+
+    // Resultados de un lote atómico que se deshizo: las operaciones previas quedan
+    // revertidas y las siguientes no se ejecutaron
+    private static List<BatchResult> rolledBack(int aplicadas, int fallida, BatchResult error, int total) {
+        List<BatchResult> results = new ArrayList<>(total);
+        for (int i = 0; i < aplicadas; i++) {
+            results.add(BatchResult.error(HttpStatus.FAILED_DEPENDENCY.value(),
+                    "Revertida: falló la operación " + fallida));
+        }
+        results.add(error);
+        for (int i = fallida + 1; i < total; i++) {
+            results.add(BatchResult.error(HttpStatus.FAILED_DEPENDENCY.value(),
+                    "No ejecutada: falló la operación " + fallida));
+        }
+        return results;
+    }
+}
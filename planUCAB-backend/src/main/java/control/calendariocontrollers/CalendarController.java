@@ -0,0 +1,86 @@
+package control.calendariocontrollers;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@RestController
+@RequestMapping("/api/users/{userId}")
+@CrossOrigin(origins = "http://localhost:4200")
+public class CalendarController {
+
+    private final CalendarService calendarService;
+    private final ObjectMapper objectMapper;
+
+    public CalendarController(CalendarService calendarService, ObjectMapper objectMapper) {
+        this.calendarService = calendarService;
+        this.objectMapper = objectMapper;
+    }
+
+    // Eventos, evaluaciones y clases entre from y to (ISO) en un único arreglo JSON
+    // ordenado por inicio, escrito semana a semana
+    @GetMapping("/calendar")
+    public ResponseEntity<StreamingResponseBody> getCalendar(
+            @PathVariable Long userId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        // Se valida antes de empezar a escribir para poder responder 400
+        calendarService.validateRange(from, to);
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = objectMapper.createGenerator(out)) {
+                generator.writeStartArray();
+                calendarService.forEachOccurrence(userId, from, to, occurrence -> write(generator, occurrence));
+                generator.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    // Export iCalendar para suscribirse desde otras aplicaciones. Se escribe directamente
+    // sobre la respuesta; con If-None-Match y sin cambios responde 304 sin generar nada.
+    @GetMapping("/calendar.ics")
+    public ResponseEntity<StreamingResponseBody> getIcs(@PathVariable Long userId, WebRequest request) {
+        String etag = calendarService.icsTag(userId);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        StreamingResponseBody body = out -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            calendarService.writeIcs(userId, writer);
+            writer.flush();
+        };
+        // checkNotModified ya agregó el ETag a la respuesta
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("text/calendar;charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"planucab.ics\"")
+                .body(body);
+    }
+
+    private void write(JsonGenerator generator, CalendarOccurrence occurrence) {
+        try {
+            generator.writeObject(occurrence);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package control.calendariocontrollers;
+
+import java.time.LocalDateTime;
+
+// Una aparición concreta en el calendario: un evento, una evaluación o una clase de un
+// horario semanal en una fecha determinada
+public class CalendarOccurrence {
+    private final String tipo; // evento, evaluacion u horario
+    private final Long id;
+    private final String titulo;
+    private final LocalDateTime start;
+    private final LocalDateTime end;
+    private final String colorHex;
+    private final String location;
+
+    public CalendarOccurrence(String tipo, Long id, String titulo, LocalDateTime start, LocalDateTime end,
+                              String colorHex, String location) {
+        this.tipo = tipo;
+        this.id = id;
+        this.titulo = titulo;
+        this.start = start;
+        this.end = end;
+        this.colorHex = colorHex;
+        this.location = location;
+    }
+
+    public String getTipo() {
+        return tipo;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getTitulo() {
+        return titulo;
+    }
+
+    public LocalDateTime getStart() {
+        return start;
+    }
+
+    public LocalDateTime getEnd() {
+        return end;
+    }
+
+    public String getColorHex() {
+        return colorHex;
+    }
+
+    public String getLocation() {
+        return location;
+    }
+}
@@ -0,0 +1,191 @@
+package control.calendariocontrollers;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import control.evaluacioncontrollers.EvaluacionRepository;
+import control.eventcontrollers.EventRepository;
+import control.horariocontrollers.HorarioRepository;
+import model.Evaluacion;
+import model.Event;
+import model.Horario;
+import persistence.UserIndex;
+
+// Calendario unificado de un usuario: eventos, evaluaciones y clases de los horarios en
+// un solo listado ordenado por inicio. Se avanza semana a semana: la semana tipo de los
+// horarios (en caché hasta la siguiente mutación) se proyecta sobre cada semana y se
+// mezcla con los eventos y evaluaciones de esa semana, sacados de los índices temporales.
+// Solo se mantiene en memoria una semana a la vez.
+@Service
+public class CalendarService {
+
+    private static final Comparator<CalendarOccurrence> ORDEN =
+            Comparator.comparing(CalendarOccurrence::getStart).thenComparing(CalendarOccurrence::getEnd);
+
+    // Ventana máxima de una consulta: cada semana recorre los índices, así que sin límite un
+    // rango de siglos retiene el hilo de la petición
+    static final int MAX_RANGE_DAYS = 366;
+
+    // Las versiones de los repositorios se cuentan desde el arranque
+    private static final long ARRANQUE = System.currentTimeMillis();
+
+    private final EventRepository eventRepository;
+    private final EvaluacionRepository evaluacionRepository;
+    private final HorarioRepository horarioRepository;
+    private final UserIndex<Horario, ExpandedWeek> semanas;
+    // Zona de las horas guardadas y fecha desde la que se repiten las clases en el export
+    private final ZoneId zona;
+    private final LocalDate inicioPeriodo;
+
+    public CalendarService(EventRepository eventRepository, EvaluacionRepository evaluacionRepository,
+                           HorarioRepository horarioRepository,
+                           @Value("${calendario.zona-horaria:America/Caracas}") String zona,
+                           @Value("${calendario.inicio-periodo:2025-09-15}") String inicioPeriodo) {
+        this.eventRepository = eventRepository;
+        this.evaluacionRepository = evaluacionRepository;
+        this.horarioRepository = horarioRepository;
+        this.semanas = horarioRepository.registerIndex(ExpandedWeek::new);
+        this.zona = ZoneId.of(zona);
+        this.inicioPeriodo = LocalDate.parse(inicioPeriodo);
+    }
+
+    public void validateRange(LocalDateTime from, LocalDateTime to) {
+        if (from == null || to == null) {
+            throw new IllegalArgumentException("Los parámetros from y to son obligatorios");
+        }
+        if (!to.isAfter(from)) {
+            throw new IllegalArgumentException("La fecha final debe ser posterior a la inicial");
+        }
+        if (to.isAfter(from.plusDays(MAX_RANGE_DAYS))) {
+            throw new IllegalArgumentException("La ventana no puede superar " + MAX_RANGE_DAYS + " días");
+        }
+    }
+
+    // Entrega, en orden de inicio, todo lo que se solapa con [from, to)
+    public void forEachOccurrence(Long userId, LocalDateTime from, LocalDateTime to,
+                                  Consumer<CalendarOccurrence> consumer) {
+        validateRange(from, to);
+        ExpandedWeek semana = semanas.get(userId);
+        LocalDate primerLunes = from.toLocalDate().with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        for (LocalDate lunes = primerLunes; lunes.atStartOfDay().isBefore(to); lunes = lunes.plusWeeks(1)) {
+            LocalDateTime inicio = max(from, lunes.atStartOfDay());
+            LocalDateTime fin = min(to, lunes.plusWeeks(1).atStartOfDay());
+            // Lo que empezó antes del tramo ya se entregó en la semana anterior
+            boolean primera = lunes.equals(primerLunes);
+
+            List<CalendarOccurrence> ocurrencias = new ArrayList<>();
+            for (CalendarOccurrence clase : semana.occurrences(lunes)) {
+                if (overlaps(clase.getStart(), clase.getEnd(), inicio, fin)) {
+                    ocurrencias.add(clase);
+                }
+            }
+            for (Event evento : eventRepository.timeIndex().get(userId).overlapping(inicio, fin)) {
+                if (primera || !evento.getStartDateTime().isBefore(inicio)) {
+                    ocurrencias.add(new CalendarOccurrence("evento", evento.getId(), evento.getName(),
+                            evento.getStartDateTime(), evento.getEndDateTime(), evento.getColorHex(),
+                            evento.getLocation()));
+                }
+            }
+            for (Evaluacion evaluacion : evaluacionRepository.timeIndex().get(userId).overlapping(inicio, fin)) {
+                if (primera || !evaluacion.getStartDateTime().isBefore(inicio)) {
+                    ocurrencias.add(new CalendarOccurrence("evaluacion", evaluacion.getId(), evaluacion.getTitulo(),
+                            evaluacion.getStartDateTime(), evaluacion.getEndDateTime(), evaluacion.getColorHex(),
+                            evaluacion.getLocation()));
+                }
+            }
+            ocurrencias.sort(ORDEN);
+            ocurrencias.forEach(consumer);
+        }
+    }
+
+    // ETag del export iCalendar. Cambia con cualquier mutación del usuario y con cada
+    // arranque (que es cuando puede cambiar la configuración de zona y periodo). Es débil:
+    // el contenido es el mismo, pero el DTSTAMP de cada respuesta es su hora de
+    // generación, así que los bytes no coinciden.
+    public String icsTag(Long userId) {
+        return String.format("W/\"ics-%x-%d-%d-%d\"", ARRANQUE,
+                eventRepository.version(userId), horarioRepository.version(userId),
+                evaluacionRepository.version(userId));
+    }
+
+    // Escribe el calendario del usuario en formato iCalendar directamente sobre out: cada
+    // horario como un evento semanal (RRULE) que empieza en su primera clase desde el
+    // inicio del periodo, y cada evento o evaluación como un VEVENT
+    public void writeIcs(Long userId, Writer out) throws IOException {
+        IcsWriter ics = new IcsWriter(out);
+        LocalDate lunes = inicioPeriodo.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        // Los registros no guardan cuándo se modificaron: DTSTAMP es la hora de generación
+        Instant dtstamp = Instant.now();
+        ics.property("BEGIN", "VCALENDAR");
+        ics.property("VERSION", "2.0");
+        ics.property("PRODID", "-//PlanUCAB//Calendario//ES");
+        ics.property("CALSCALE", "GREGORIAN");
+        ics.timezone(zona);
+
+        for (CalendarOccurrence clase : semanas.get(userId).occurrences(lunes)) {
+            String byDay = clase.getStart().getDayOfWeek().name().substring(0, 2);
+            // Las clases de la primera semana anteriores al inicio pasan a la siguiente
+            int desfase = clase.getStart().toLocalDate().isBefore(inicioPeriodo) ? 1 : 0;
+            writeEvent(ics, "horario", clase.getId(), dtstamp, clase.getStart().plusWeeks(desfase),
+                    clase.getEnd().plusWeeks(desfase), clase.getTitulo(), clase.getLocation(), null,
+                    "FREQ=WEEKLY;BYDAY=" + byDay);
+        }
+        for (Event evento : eventRepository.findByUserId(userId)) {
+            if (evento.getStartDateTime() != null && evento.getEndDateTime() != null) {
+                writeEvent(ics, "evento", evento.getId(), dtstamp, evento.getStartDateTime(), evento.getEndDateTime(),
+                        evento.getName(), evento.getLocation(), evento.getDescription(), null);
+            }
+        }
+        for (Evaluacion evaluacion : evaluacionRepository.findByUserId(userId)) {
+            if (evaluacion.getStartDateTime() != null && evaluacion.getEndDateTime() != null) {
+                String materia = evaluacion.getMateria() != null ? evaluacion.getMateria().getNombre() : "Desconocida";
+                writeEvent(ics, "evaluacion", evaluacion.getId(), dtstamp, evaluacion.getStartDateTime(),
+                        evaluacion.getEndDateTime(), evaluacion.getTitulo() + " - " + materia,
+                        evaluacion.getLocation(), evaluacion.getDescripcion(), null);
+            }
+        }
+        ics.property("END", "VCALENDAR");
+    }
+
+    private void writeEvent(IcsWriter ics, String tipo, Long id, Instant dtstamp, LocalDateTime start,
+                                   LocalDateTime end, String summary, String location, String description,
+                                   String rrule) throws IOException {
+        ics.property("BEGIN", "VEVENT");
+        ics.property("UID", tipo + "-" + id + "@planucab");
+        ics.utc("DTSTAMP", dtstamp);
+        ics.dateTime("DTSTART", start, zona);
+        ics.dateTime("DTEND", end, zona);
+        if (rrule != null) {
+            ics.property("RRULE", rrule);
+        }
+        ics.text("SUMMARY", summary);
+        ics.text("LOCATION", location);
+        ics.text("DESCRIPTION", description);
+        ics.property("END", "VEVENT");
+    }
+
+    private static boolean overlaps(LocalDateTime start, LocalDateTime end, LocalDateTime inicio, LocalDateTime fin) {
+        return start.isBefore(fin) && end.isAfter(inicio);
+    }
+
+    private static LocalDateTime max(LocalDateTime a, LocalDateTime b) {
+        return a.isAfter(b) ? a : b;
+    }
+
+    private static LocalDateTime min(LocalDateTime a, LocalDateTime b) {
+        return a.isBefore(b) ? a : b;
+    }
+}
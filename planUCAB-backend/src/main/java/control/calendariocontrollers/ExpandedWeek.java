@@ -0,0 +1,95 @@
+package control.calendariocontrollers;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+import model.DiaSemana;
+import model.Horario;
+import persistence.RecordIndex;
+
+// Semana tipo de un usuario: sus horarios ya interpretados (día, hora de inicio y fin) y
+// ordenados de lunes a domingo. Se registra como índice del repositorio de horarios, así
+// que cualquier alta, cambio o baja descarta la expansión y se recalcula al pedirla.
+class ExpandedWeek implements RecordIndex<Horario> {
+
+    private static final DateTimeFormatter FORMATO_HORA = DateTimeFormatter.ofPattern("HH:mm");
+
+    private final List<Horario> horarios = new ArrayList<>();
+    private List<Clase> expanded;
+
+    ExpandedWeek(Collection<Horario> records) {
+        horarios.addAll(records);
+    }
+
+    @Override
+    public synchronized void add(Horario horario) {
+        horarios.add(horario);
+        expanded = null;
+    }
+
+    @Override
+    public synchronized void remove(Horario horario) {
+        horarios.remove(horario);
+        expanded = null;
+    }
+
+    // Clases de la semana que empieza el lunes indicado, en orden
+    List<CalendarOccurrence> occurrences(LocalDate lunes) {
+        List<CalendarOccurrence> result = new ArrayList<>();
+        for (Clase clase : clases()) {
+            LocalDate fecha = lunes.plusDays(clase.dia.getValue() - 1L);
+            Horario horario = clase.horario;
+            String titulo = horario.getMateria() != null ? horario.getMateria().getNombre() : "Desconocida";
+            result.add(new CalendarOccurrence("horario", horario.getId(), titulo, LocalDateTime.of(fecha, clase.start),
+                    LocalDateTime.of(fecha, clase.end), horario.getColorHex(), horario.getLocation()));
+        }
+        return result;
+    }
+
+    private synchronized List<Clase> clases() {
+        if (expanded == null) {
+            List<Clase> clases = new ArrayList<>();
+            for (Horario horario : horarios) {
+                DayOfWeek dia = DiaSemana.toDayOfWeek(horario.getDiaSemana());
+                LocalTime start = parseHora(horario.getStartTime());
+                LocalTime end = parseHora(horario.getEndTime());
+                if (dia != null && start != null && end != null && end.isAfter(start)) {
+                    clases.add(new Clase(dia, start, end, horario));
+                }
+            }
+            clases.sort(Comparator.comparing((Clase c) -> c.dia).thenComparing(c -> c.start));
+            expanded = clases;
+        }
+        return expanded;
+    }
+
+    private static LocalTime parseHora(String hora) {
+        try {
+            return hora != null ? LocalTime.parse(hora, FORMATO_HORA) : null;
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private static final class Clase {
+        private final DayOfWeek dia;
+        private final LocalTime start;
+        private final LocalTime end;
+        private final Horario horario;
+
+        Clase(DayOfWeek dia, LocalTime start, LocalTime end, Horario horario) {
+            this.dia = dia;
+            this.start = start;
+            this.end = end;
+            this.horario = horario;
+        }
+    }
+}
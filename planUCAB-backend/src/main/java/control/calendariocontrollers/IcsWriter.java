@@ -0,0 +1,143 @@
+package control.calendariocontrollers;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneOffsetTransitionRule;
+import java.time.zone.ZoneRules;
+import java.util.StringJoiner;
+
+// Escritura de un documento iCalendar (RFC 5545) línea a línea sobre un Writer: escapa
+// los textos y pliega las líneas de más de 75 octetos. Las fechas se guardan como hora
+// local de la zona del calendario; se escriben con su TZID y un VTIMEZONE que la define.
+class IcsWriter {
+
+    private static final DateTimeFormatter FORMATO_FECHA = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss");
+    private static final int MAX_OCTETOS = 75;
+
+    private final Writer out;
+
+    IcsWriter(Writer out) {
+        this.out = out;
+    }
+
+    void property(String name, String value) throws IOException {
+        line(name + ":" + value);
+    }
+
+    void text(String name, String value) throws IOException {
+        if (value != null && !value.isBlank()) {
+            line(name + ":" + escape(value));
+        }
+    }
+
+    void dateTime(String name, LocalDateTime value, ZoneId zona) throws IOException {
+        line(name + ";TZID=" + zona.getId() + ":" + value.format(FORMATO_FECHA));
+    }
+
+    // VTIMEZONE con las reglas vigentes de la zona: un componente por cada cambio anual
+    // (horario de verano) o, si la zona ya no cambia, uno solo desde su último cambio
+    void timezone(ZoneId zona) throws IOException {
+        ZoneRules rules = zona.getRules();
+        property("BEGIN", "VTIMEZONE");
+        property("TZID", zona.getId());
+        if (rules.getTransitionRules().isEmpty()) {
+            Instant ahora = Instant.now();
+            ZoneOffset offset = rules.getOffset(ahora);
+            ZoneOffsetTransition ultima = rules.previousTransition(ahora);
+            if (ultima != null) {
+                observance("STANDARD", ultima.getDateTimeBefore(), ultima.getOffsetBefore(), offset, null);
+            } else {
+                observance("STANDARD", LocalDateTime.of(1970, 1, 1, 0, 0), offset, offset, null);
+            }
+        } else {
+            for (ZoneOffsetTransitionRule regla : rules.getTransitionRules()) {
+                String tipo = regla.getOffsetAfter().equals(regla.getStandardOffset()) ? "STANDARD" : "DAYLIGHT";
+                observance(tipo, regla.createTransition(1970).getDateTimeBefore(), regla.getOffsetBefore(),
+                        regla.getOffsetAfter(), yearlyRule(regla));
+            }
+        }
+        property("END", "VTIMEZONE");
+    }
+
+    private void observance(String tipo, LocalDateTime desde, ZoneOffset antes, ZoneOffset despues, String rrule)
+            throws IOException {
+        property("BEGIN", tipo);
+        line("DTSTART:" + desde.format(FORMATO_FECHA));
+        property("TZOFFSETFROM", offset(antes));
+        property("TZOFFSETTO", offset(despues));
+        if (rrule != null) {
+            property("RRULE", rrule);
+        }
+        property("END", tipo);
+    }
+
+    // Regla anual del cambio: el día fijo del mes o el día de la semana en o después de
+    // ese día (en o antes, si se cuenta desde el final del mes)
+    private static String yearlyRule(ZoneOffsetTransitionRule regla) {
+        String rrule = "FREQ=YEARLY;BYMONTH=" + regla.getMonth().getValue();
+        int dia = regla.getDayOfMonthIndicator();
+        if (regla.getDayOfWeek() == null) {
+            return rrule + ";BYMONTHDAY=" + dia;
+        }
+        StringJoiner dias = new StringJoiner(",");
+        int primero = dia > 0 ? dia : dia - 6;
+        for (int d = primero; d < primero + 7; d++) {
+            dias.add(String.valueOf(d));
+        }
+        return rrule + ";BYDAY=" + regla.getDayOfWeek().name().substring(0, 2) + ";BYMONTHDAY=" + dias;
+    }
+
+    // +HHMM (o +HHMMSS), como pide RFC 5545 para TZOFFSETFROM y TZOFFSETTO
+    private static String offset(ZoneOffset offset) {
+        int total = Math.abs(offset.getTotalSeconds());
+        String value = String.format("%s%02d%02d", offset.getTotalSeconds() < 0 ? "-" : "+", total / 3600,
+                total / 60 % 60);
+        return total % 60 != 0 ? value + String.format("%02d", total % 60) : value;
+    }
+
+    // Instante en UTC (sufijo Z)
+    void utc(String name, Instant value) throws IOException {
+        line(name + ":" + LocalDateTime.ofInstant(value, ZoneOffset.UTC).format(FORMATO_FECHA) + "Z");
+    }
+
+    private void line(String content) throws IOException {
+        int octetos = 0;
+        for (int i = 0; i < content.length(); ) {
+            int codePoint = content.codePointAt(i);
+            int size = utf8Length(codePoint);
+            if (octetos + size > MAX_OCTETOS) {
+                // Continuación: salto de línea seguido de un espacio
+                out.write("\r\n ");
+                octetos = 1;
+            }
+            out.write(Character.toChars(codePoint));
+            octetos += size;
+            i += Character.charCount(codePoint);
+        }
+        out.write("\r\n");
+    }
+
+    private static int utf8Length(int codePoint) {
+        if (codePoint < 0x80) {
+            return 1;
+        }
+        if (codePoint < 0x800) {
+            return 2;
+        }
+        return codePoint < 0x10000 ? 3 : 4;
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\")
+                .replace(";", "\\;")
+                .replace(",", "\\,")
+                .replace("\r\n", "\\n")
+                .replace("\n", "\\n");
+    }
+}
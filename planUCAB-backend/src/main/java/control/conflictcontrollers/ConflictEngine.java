@@ -0,0 +1,249 @@
+package control.conflictcontrollers;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+
+import org.springframework.stereotype.Component;
+
+import control.evaluacioncontrollers.EvaluacionRepository;
+import control.eventcontrollers.EventRepository;
+import control.horariocontrollers.HorarioRepository;
+import exceptions.HorarioConflictoExcepcion;
+import model.Bloque;
+import model.DiaSemana;
+import model.Evaluacion;
+import model.Event;
+import model.Horario;
+import persistence.IntervalIndex;
+import persistence.UserIndex;
+import persistence.WeeklyOccupancy;
+
+// Detección de conflictos común a eventos, horarios y evaluaciones. Mantiene sus propios
+// índices por usuario sobre los tres repositorios y aplica una única regla de
+// solapamiento: [inicio, fin) se solapa con [inicioExistente, finExistente) si
+// inicio < finExistente y fin > inicioExistente.
+//
+// - Un bloque con fecha (evento, evaluación) se compara con los eventos y evaluaciones
+//   que se solapan (índice de intervalos) y con los horarios de ese día de la semana.
+// - Un horario (semanal) se compara con los horarios del mismo día y con los eventos y
+//   evaluaciones que caen ese día de la semana a esa hora.
+// - Un bloque que cruza la medianoche o dura varios días ocupa cada día que toca (ver
+//   WeeklyOccupancy.between), tanto al indexarlo como al comprobarlo.
+@Component
+public class ConflictEngine {
+
+    private static final DateTimeFormatter FORMATO_HORA = DateTimeFormatter.ofPattern("HH:mm");
+
+    private final UserIndex<Event, IntervalIndex<Event>> eventos;
+    private final UserIndex<Event, WeeklyOccupancy<Event>> eventosPorDia;
+    private final UserIndex<Evaluacion, IntervalIndex<Evaluacion>> evaluaciones;
+    private final UserIndex<Evaluacion, WeeklyOccupancy<Evaluacion>> evaluacionesPorDia;
+    private final UserIndex<Horario, WeeklyOccupancy<Horario>> horarios;
+    private final EventRepository eventRepository;
+    private final HorarioRepository horarioRepository;
+    private final EvaluacionRepository evaluacionRepository;
+
+    public ConflictEngine(EventRepository eventRepository, HorarioRepository horarioRepository,
+                          EvaluacionRepository evaluacionRepository) {
+        this.eventRepository = eventRepository;
+        this.horarioRepository = horarioRepository;
+        this.evaluacionRepository = evaluacionRepository;
+        // Los índices de intervalos son los índices temporales de los propios repositorios
+        this.eventos = eventRepository.timeIndex();
+        this.eventosPorDia = eventRepository.registerIndex(
+                records -> new WeeklyOccupancy<>(ConflictEngine::datedSpans, records));
+        this.evaluaciones = evaluacionRepository.timeIndex();
+        this.evaluacionesPorDia = evaluacionRepository.registerIndex(
+                records -> new WeeklyOccupancy<>(ConflictEngine::datedSpans, records));
+        this.horarios = horarioRepository.registerIndex(
+                records -> new WeeklyOccupancy<>(ConflictEngine::weeklySpans, records));
+    }
+
+    // Excluye al propio bloque al editarlo (los ids solo son únicos dentro de cada tipo)
+    public static Predicate<Bloque> mismo(Class<? extends Bloque> tipo, Long id) {
+        return b -> tipo.isInstance(b) && id != null && id.equals(b.getId());
+    }
+
+    // Bloque con fecha: sujeto es "El evento", "La evaluación", ...
+    public void checkDated(Long userId, String sujeto, LocalDateTime start, LocalDateTime end,
+                           Predicate<Bloque> excluido) {
+        reportFirst(sujeto, datedCandidates(userId, start, end), excluido);
+    }
+
+    // Horario semanal
+    public void checkWeekly(Long userId, String sujeto, DayOfWeek dia, LocalTime start, LocalTime end,
+                            Predicate<Bloque> excluido) {
+        if (dia == null) {
+            return;
+        }
+        reportFirst(sujeto, weeklyCandidates(userId,
+                WeeklyOccupancy.weekly(dia, start.toSecondOfDay() / 60, end.toSecondOfDay() / 60)), excluido);
+    }
+
+    // Para revisar un lote de bloques nuevos antes de guardarlos (importaciones)
+    public Batch batch(Long userId) {
+        return new Batch(userId);
+    }
+
+    private List<Bloque> datedCandidates(Long userId, LocalDateTime start, LocalDateTime end) {
+        List<Bloque> candidatos = new ArrayList<>();
+        candidatos.addAll(eventos.get(userId).overlapping(start, end));
+        candidatos.addAll(evaluaciones.get(userId).overlapping(start, end));
+        candidatos.addAll(horarios.get(userId).occupants(WeeklyOccupancy.between(start, end)));
+        return candidatos;
+    }
+
+    private List<Bloque> weeklyCandidates(Long userId, List<WeeklyOccupancy.Span> tramos) {
+        List<Bloque> candidatos = new ArrayList<>();
+        candidatos.addAll(horarios.get(userId).occupants(tramos));
+        candidatos.addAll(eventosPorDia.get(userId).occupants(tramos));
+        candidatos.addAll(evaluacionesPorDia.get(userId).occupants(tramos));
+        return candidatos;
+    }
+
+    // Un lote de bloques nuevos de un usuario. Cada bloque se compara con lo ya guardado
+    // y con los bloques anteriores del lote (que tienen sus propios índices) y, si no
+    // choca con nada, pasa a formar parte del lote.
+    public final class Batch {
+        private final Long userId;
+        private final IntervalIndex<Bloque> fechados =
+                new IntervalIndex<>(ConflictEngine::datedStart, ConflictEngine::datedEnd, List.of());
+        private final WeeklyOccupancy<Bloque> fechadosPorDia =
+                new WeeklyOccupancy<>(ConflictEngine::datedSpans, List.of());
+        private final WeeklyOccupancy<Horario> semanales =
+                new WeeklyOccupancy<>(ConflictEngine::weeklySpans, List.of());
+
+        private Batch(Long userId) {
+            this.userId = userId;
+        }
+
+        // Evento o evaluación
+        public void addDated(String sujeto, Bloque bloque) {
+            LocalDateTime start = datedStart(bloque);
+            LocalDateTime end = datedEnd(bloque);
+            List<Bloque> candidatos = datedCandidates(userId, start, end);
+            candidatos.addAll(fechados.overlapping(start, end));
+            candidatos.addAll(semanales.occupants(WeeklyOccupancy.between(start, end)));
+            reportFirst(sujeto, candidatos, b -> false);
+            fechados.add(bloque);
+            fechadosPorDia.add(bloque);
+        }
+
+        public void addWeekly(String sujeto, Horario horario) {
+            List<WeeklyOccupancy.Span> tramos = weeklySpans(horario);
+            if (!tramos.isEmpty()) {
+                List<Bloque> candidatos = weeklyCandidates(userId, tramos);
+                candidatos.addAll(semanales.occupants(tramos));
+                candidatos.addAll(fechadosPorDia.occupants(tramos));
+                reportFirst(sujeto, candidatos, b -> false);
+            }
+            semanales.add(horario);
+        }
+    }
+
+    // Eventos y evaluaciones que se solapan con [start, end), ordenados por inicio. Son
+    // lecturas (disponibilidad): para un usuario fuera de memoria los repositorios las
+    // resuelven en el almacenamiento si tiene índices, sin cargarlo.
+    public List<Bloque> datedOverlapping(Long userId, LocalDateTime start, LocalDateTime end) {
+        List<Bloque> bloques = new ArrayList<>();
+        bloques.addAll(eventRepository.findOverlapping(userId, start, end));
+        bloques.addAll(evaluacionRepository.findOverlapping(userId, start, end));
+        bloques.sort(Comparator.comparing(ConflictEngine::datedStart));
+        return bloques;
+    }
+
+    // Tramos {inicio, fin} en minutos que los horarios ocupan ese día de la semana. Fuera
+    // de memoria basta con los horarios de ese día y del anterior (los que cruzan la
+    // medianoche).
+    public List<int[]> weeklyBusyRanges(Long userId, DayOfWeek dia) {
+        if (horarioRepository.isResident(userId)) {
+            return horarios.get(userId).busyRanges(dia);
+        }
+        List<Horario> candidatos = horarioRepository.findByDiaSemana(userId,
+                List.of(DiaSemana.nombre(dia), DiaSemana.nombre(dia.minus(1))));
+        return new WeeklyOccupancy<>(ConflictEngine::weeklySpans, candidatos).busyRanges(dia);
+    }
+
+    // Informa el conflicto que empieza más temprano
+    private void reportFirst(String sujeto, List<Bloque> candidatos, Predicate<Bloque> excluido) {
+        candidatos.stream()
+                .filter(excluido.negate())
+                .min(Comparator.comparingInt(ConflictEngine::startMinute))
+                .ifPresent(conflicto -> {
+                    throw new HorarioConflictoExcepcion(
+                        String.format("%s entra en conflicto con %s (%s - %s)",
+                            sujeto, describir(conflicto), inicio(conflicto), fin(conflicto)));
+                });
+    }
+
+    private static String describir(Bloque bloque) {
+        if (bloque instanceof Event evento) {
+            return String.format("el evento '%s'", evento.getName());
+        }
+        if (bloque instanceof Evaluacion evaluacion) {
+            String materia = evaluacion.getMateria() != null ? evaluacion.getMateria().getNombre() : "Desconocida";
+            return String.format("la evaluación '%s' de %s", evaluacion.getTitulo(), materia);
+        }
+        Horario horario = (Horario) bloque;
+        String materia = horario.getMateria() != null ? horario.getMateria().getNombre() : "Desconocida";
+        return String.format("el horario '%s'", materia);
+    }
+
+    private static String inicio(Bloque bloque) {
+        if (bloque instanceof Horario horario) {
+            return horario.getStartTime();
+        }
+        return datedStart(bloque).toLocalTime().format(FORMATO_HORA);
+    }
+
+    private static String fin(Bloque bloque) {
+        if (bloque instanceof Horario horario) {
+            return horario.getEndTime();
+        }
+        return datedEnd(bloque).toLocalTime().format(FORMATO_HORA);
+    }
+
+    private static int startMinute(Bloque bloque) {
+        if (bloque instanceof Horario horario) {
+            return minuteOfDay(horario.getStartTime());
+        }
+        return minuteOfDay(datedStart(bloque));
+    }
+
+    // Inicio y fin de un bloque con fecha (evento o evaluación)
+    public static LocalDateTime datedStart(Bloque bloque) {
+        return bloque instanceof Event evento ? evento.getStartDateTime() : ((Evaluacion) bloque).getStartDateTime();
+    }
+
+    public static LocalDateTime datedEnd(Bloque bloque) {
+        return bloque instanceof Event evento ? evento.getEndDateTime() : ((Evaluacion) bloque).getEndDateTime();
+    }
+
+    private static List<WeeklyOccupancy.Span> datedSpans(Bloque bloque) {
+        return WeeklyOccupancy.between(datedStart(bloque), datedEnd(bloque));
+    }
+
+    private static List<WeeklyOccupancy.Span> weeklySpans(Horario horario) {
+        return WeeklyOccupancy.weekly(DiaSemana.toDayOfWeek(horario.getDiaSemana()),
+                minuteOfDay(horario.getStartTime()), minuteOfDay(horario.getEndTime()));
+    }
+
+    private static int minuteOfDay(LocalDateTime dateTime) {
+        return dateTime != null ? dateTime.toLocalTime().toSecondOfDay() / 60 : -1;
+    }
+
+    private static int minuteOfDay(String hora) {
+        try {
+            return hora != null ? LocalTime.parse(hora, FORMATO_HORA).toSecondOfDay() / 60 : -1;
+        } catch (DateTimeParseException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package control.disponibilidadcontrollers;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.validation.Valid;
+
+@RestController
+@CrossOrigin(origins = "http://localhost:4200")
+public class DisponibilidadController {
+
+    private final DisponibilidadService disponibilidadService;
+    private final ObjectMapper objectMapper;
+
+    public DisponibilidadController(DisponibilidadService disponibilidadService, ObjectMapper objectMapper) {
+        this.disponibilidadService = disponibilidadService;
+        this.objectMapper = objectMapper;
+    }
+
+    // Huecos libres entre from y to (ISO, p. ej. 2025-11-10T08:00) de al menos minDuration
+    // minutos. La respuesta es un arreglo JSON que se escribe a medida que avanza el barrido.
+    @GetMapping("/api/users/{userId}/free-slots")
+    public ResponseEntity<StreamingResponseBody> getFreeSlots(
+            @PathVariable Long userId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "30") int minDuration) {
+        // Se valida antes de empezar a escribir para poder responder 400
+        disponibilidadService.validateRange(from, to, minDuration);
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = objectMapper.createGenerator(out)) {
+                generator.writeStartArray();
+                disponibilidadService.forEachFreeSlot(userId, from, to, minDuration, slot -> write(generator, slot));
+                generator.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    // Huecos en los que todos los usuarios (o al menos minFree) están libres
+    @PostMapping("/api/groups/free-slots")
+    public List<FreeSlot> getGroupFreeSlots(@Valid @RequestBody GroupFreeSlotsRequest request) {
+        return disponibilidadService.groupFreeSlots(request);
+    }
+
+    private void write(JsonGenerator generator, FreeSlot slot) {
+        try {
+            generator.writeObject(slot);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
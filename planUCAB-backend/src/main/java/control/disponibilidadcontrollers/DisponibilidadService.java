@@ -0,0 +1,268 @@
+package control.disponibilidadcontrollers;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import control.conflictcontrollers.ConflictEngine;
+import jakarta.annotation.PreDestroy;
+import model.Bloque;
+
+// Huecos libres de la agenda de un usuario. Recorre el rango día a día: los horarios se
+// toman una sola vez como tramos por día de la semana (no se genera cada ocurrencia) y los
+// eventos y evaluaciones se consultan en el índice de intervalos solo para el día en curso.
+// Cada hueco se entrega en cuanto se cierra, así que la memoria no depende del rango.
+//
+// Para grupos cada miembro se convierte en un bitset de minutos ocupados dentro de la
+// ventana y los bitsets se combinan en paralelo; por eso la ventana y el grupo están
+// acotados. El cálculo corre en un pool propio de tamaño fijo: leer la ocupación de un
+// usuario que no está en memoria bloquea, y en el pool común frenaría a todo lo demás.
+@Service
+public class DisponibilidadService {
+
+    private static final int DEFAULT_MIN_DURATION = 30;
+    // El barrido por usuario es lineal en días: se acota como el rango del calendario
+    static final int MAX_RANGE_DAYS = 366;
+    private static final int MAX_GROUP_DAYS = 31;
+    static final int MAX_GROUP_SIZE = 1000;
+
+    private final ConflictEngine conflictEngine;
+    private final ForkJoinPool groupPool;
+
+    public DisponibilidadService(ConflictEngine conflictEngine,
+                                 @Value("${disponibilidad.group-threads:4}") int groupThreads) {
+        this.conflictEngine = conflictEngine;
+        int threads = Math.max(1, groupThreads);
+        // Sin hilos de compensación: si un hilo se bloquea, el pool sigue con los demás
+        // en lugar de crear otro, así nunca pasa de threads hilos
+        this.groupPool = new ForkJoinPool(threads, pool -> {
+            ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            t.setName("disponibilidad-grupo-" + t.getPoolIndex());
+            t.setDaemon(true);
+            return t;
+        }, null, false, 0, threads, 1, pool -> true, 60, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        groupPool.shutdownNow();
+    }
+
+    public void validateRange(LocalDateTime from, LocalDateTime to, int minDuration) {
+        if (from == null || to == null) {
+            throw new IllegalArgumentException("Los parámetros from y to son obligatorios");
+        }
+        if (!to.isAfter(from)) {
+            throw new IllegalArgumentException("La fecha final debe ser posterior a la inicial");
+        }
+        if (to.isAfter(from.plusDays(MAX_RANGE_DAYS))) {
+            throw new IllegalArgumentException("La ventana no puede superar " + MAX_RANGE_DAYS + " días");
+        }
+        if (minDuration <= 0) {
+            throw new IllegalArgumentException("La duración mínima debe ser mayor que cero");
+        }
+    }
+
+    public void forEachFreeSlot(Long userId, LocalDateTime from, LocalDateTime to, int minDuration,
+                                Consumer<FreeSlot> consumer) {
+        validateRange(from, to, minDuration);
+        Map<DayOfWeek, List<int[]>> semana = new EnumMap<>(DayOfWeek.class);
+        for (DayOfWeek dia : DayOfWeek.values()) {
+            semana.put(dia, conflictEngine.weeklyBusyRanges(userId, dia));
+        }
+
+        GapCollector huecos = new GapCollector(Duration.ofMinutes(minDuration), consumer);
+        for (LocalDate dia = from.toLocalDate(); dia.atStartOfDay().isBefore(to); dia = dia.plusDays(1)) {
+            LocalDateTime inicio = max(from, dia.atStartOfDay());
+            LocalDateTime fin = min(to, dia.plusDays(1).atStartOfDay());
+            LocalDateTime cursor = inicio;
+            for (LocalDateTime[] ocupado : busyIntervals(userId, dia, semana.get(dia.getDayOfWeek()), inicio, fin)) {
+                if (ocupado[0].isAfter(cursor)) {
+                    huecos.add(cursor, ocupado[0]);
+                }
+                cursor = max(cursor, ocupado[1]);
+                if (!cursor.isBefore(fin)) {
+                    break;
+                }
+            }
+            if (cursor.isBefore(fin)) {
+                huecos.add(cursor, fin);
+            }
+        }
+        huecos.flush();
+    }
+
+    public List<FreeSlot> groupFreeSlots(GroupFreeSlotsRequest request) {
+        List<Long> userIds = new ArrayList<>(new LinkedHashSet<>(request.getUserIds()));
+        userIds.removeIf(Objects::isNull);
+        LocalDateTime from = request.getFrom().truncatedTo(ChronoUnit.MINUTES);
+        LocalDateTime to = request.getTo().truncatedTo(ChronoUnit.MINUTES);
+        int minDuration = request.getMinDuration() != null ? request.getMinDuration() : DEFAULT_MIN_DURATION;
+        validateRange(from, to, minDuration);
+        if (to.isAfter(from.plusDays(MAX_GROUP_DAYS))) {
+            throw new IllegalArgumentException("La ventana no puede superar " + MAX_GROUP_DAYS + " días");
+        }
+        if (userIds.isEmpty()) {
+            throw new IllegalArgumentException("Debe indicar al menos un usuario");
+        }
+        if (userIds.size() > MAX_GROUP_SIZE) {
+            throw new IllegalArgumentException("El grupo no puede superar " + MAX_GROUP_SIZE + " usuarios");
+        }
+        int minFree = request.getMinFree() != null ? request.getMinFree() : userIds.size();
+        if (minFree > userIds.size()) {
+            throw new IllegalArgumentException("minFree no puede superar el número de usuarios");
+        }
+
+        int minutes = (int) ChronoUnit.MINUTES.between(from, to);
+        Function<Long, BitSet> busyOf = userId -> busyMinutes(userId, from, to, minutes);
+        BitSet free;
+        if (minFree == userIds.size()) {
+            // Todos libres: complemento de la unión de las ocupaciones
+            free = groupPool.invoke(new GroupOccupancyTask<>(userIds, busyOf,
+                    BitSet::new, BitSet::or, (a, b) -> { a.or(b); return a; }));
+            free.flip(0, minutes);
+        } else {
+            // Al menos minFree libres: se cuentan los ocupados por minuto
+            int[] busyCount = groupPool.invoke(new GroupOccupancyTask<>(userIds, busyOf,
+                    () -> new int[minutes], DisponibilidadService::count, DisponibilidadService::sum));
+            int maxBusy = userIds.size() - minFree;
+            free = new BitSet(minutes);
+            for (int i = 0; i < minutes; i++) {
+                if (busyCount[i] <= maxBusy) {
+                    free.set(i);
+                }
+            }
+        }
+
+        List<FreeSlot> slots = new ArrayList<>();
+        for (int start = free.nextSetBit(0); start >= 0; start = free.nextSetBit(start)) {
+            int end = free.nextClearBit(start);
+            if (end - start >= minDuration) {
+                slots.add(new FreeSlot(from.plusMinutes(start), from.plusMinutes(end)));
+            }
+            start = end;
+        }
+        return slots;
+    }
+
+    // Minutos ocupados de un usuario en [from, to); el bit i es el minuto from + i
+    private BitSet busyMinutes(Long userId, LocalDateTime from, LocalDateTime to, int minutes) {
+        BitSet busy = new BitSet(minutes);
+        Map<DayOfWeek, List<int[]>> semana = new EnumMap<>(DayOfWeek.class);
+        for (LocalDate dia = from.toLocalDate(); dia.atStartOfDay().isBefore(to); dia = dia.plusDays(1)) {
+            int offset = (int) ChronoUnit.MINUTES.between(from, dia.atStartOfDay());
+            List<int[]> tramos = semana.computeIfAbsent(dia.getDayOfWeek(),
+                    d -> conflictEngine.weeklyBusyRanges(userId, d));
+            for (int[] tramo : tramos) {
+                setClamped(busy, offset + tramo[0], offset + tramo[1], minutes);
+            }
+        }
+        for (Bloque bloque : conflictEngine.datedOverlapping(userId, from, to)) {
+            setClamped(busy, (int) ChronoUnit.MINUTES.between(from, ConflictEngine.datedStart(bloque)),
+                    (int) ChronoUnit.MINUTES.between(from, ConflictEngine.datedEnd(bloque)), minutes);
+        }
+        return busy;
+    }
+
+    private static void setClamped(BitSet bits, int start, int end, int length) {
+        int from = Math.max(start, 0);
+        int to = Math.min(end, length);
+        if (from < to) {
+            bits.set(from, to);
+        }
+    }
+
+    private static void count(int[] busyCount, BitSet busy) {
+        for (int start = busy.nextSetBit(0); start >= 0; start = busy.nextSetBit(start)) {
+            int end = busy.nextClearBit(start);
+            for (int i = start; i < end; i++) {
+                busyCount[i]++;
+            }
+            start = end;
+        }
+    }
+
+    private static int[] sum(int[] a, int[] b) {
+        for (int i = 0; i < a.length; i++) {
+            a[i] += b[i];
+        }
+        return a;
+    }
+
+    // Intervalos ocupados del día recortados a [inicio, fin) y ordenados por inicio
+    private List<LocalDateTime[]> busyIntervals(Long userId, LocalDate dia, List<int[]> semanales,
+                                                LocalDateTime inicio, LocalDateTime fin) {
+        List<LocalDateTime[]> ocupados = new ArrayList<>();
+        for (int[] tramo : semanales) {
+            LocalDateTime start = dia.atStartOfDay().plusMinutes(tramo[0]);
+            LocalDateTime end = dia.atStartOfDay().plusMinutes(tramo[1]);
+            if (start.isBefore(fin) && end.isAfter(inicio)) {
+                ocupados.add(new LocalDateTime[] { max(start, inicio), min(end, fin) });
+            }
+        }
+        for (Bloque bloque : conflictEngine.datedOverlapping(userId, inicio, fin)) {
+            ocupados.add(new LocalDateTime[] {
+                max(ConflictEngine.datedStart(bloque), inicio), min(ConflictEngine.datedEnd(bloque), fin) });
+        }
+        ocupados.sort(Comparator.comparing((LocalDateTime[] intervalo) -> intervalo[0]));
+        return ocupados;
+    }
+
+    private static LocalDateTime max(LocalDateTime a, LocalDateTime b) {
+        return a.isAfter(b) ? a : b;
+    }
+
+    private static LocalDateTime min(LocalDateTime a, LocalDateTime b) {
+        return a.isBefore(b) ? a : b;
+    }
+
+    // Une los huecos contiguos (p. ej. el final de un día con el inicio del siguiente) y
+    // entrega solo los que alcanzan la duración mínima
+    private static final class GapCollector {
+        private final Duration minDuration;
+        private final Consumer<FreeSlot> consumer;
+        private LocalDateTime start;
+        private LocalDateTime end;
+
+        GapCollector(Duration minDuration, Consumer<FreeSlot> consumer) {
+            this.minDuration = minDuration;
+            this.consumer = consumer;
+        }
+
+        void add(LocalDateTime gapStart, LocalDateTime gapEnd) {
+            if (end != null && end.equals(gapStart)) {
+                end = gapEnd;
+                return;
+            }
+            flush();
+            start = gapStart;
+            end = gapEnd;
+        }
+
+        void flush() {
+            if (start != null && Duration.between(start, end).compareTo(minDuration) >= 0) {
+                consumer.accept(new FreeSlot(start, end));
+            }
+            start = null;
+            end = null;
+        }
+    }
+}
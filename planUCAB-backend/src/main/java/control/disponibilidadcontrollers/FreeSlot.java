@@ -0,0 +1,27 @@
+package control.disponibilidadcontrollers;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+// Hueco libre [start, end) en la agenda
+public class FreeSlot {
+    private final LocalDateTime start;
+    private final LocalDateTime end;
+
+    public FreeSlot(LocalDateTime start, LocalDateTime end) {
+        this.start = start;
+        this.end = end;
+    }
+
+    public LocalDateTime getStart() {
+        return start;
+    }
+
+    public LocalDateTime getEnd() {
+        return end;
+    }
+
+    public long getDurationMinutes() {
+        return Duration.between(start, end).toMinutes();
+    }
+}
@@ -0,0 +1,68 @@
+package control.disponibilidadcontrollers;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+
+public class GroupFreeSlotsRequest {
+
+    @NotEmpty(message = "debe indicar al menos un usuario")
+    private List<Long> userIds;
+
+    @NotNull(message = "la fecha inicial es obligatoria")
+    private LocalDateTime from;
+
+    @NotNull(message = "la fecha final es obligatoria")
+    private LocalDateTime to;
+
+    // Minutos; por defecto 30
+    @Min(value = 1, message = "la duración mínima debe ser mayor que cero")
+    private Integer minDuration;
+
+    // Cuántos miembros deben estar libres; si no se indica, todos
+    @Min(value = 1, message = "minFree debe ser mayor que cero")
+    private Integer minFree;
+
+    public List<Long> getUserIds() {
+        return userIds;
+    }
+
+    public void setUserIds(List<Long> userIds) {
+        this.userIds = userIds;
+    }
+
+    public LocalDateTime getFrom() {
+        return from;
+    }
+
+    public void setFrom(LocalDateTime from) {
+        this.from = from;
+    }
+
+    public LocalDateTime getTo() {
+        return to;
+    }
+
+    public void setTo(LocalDateTime to) {
+        this.to = to;
+    }
+
+    public Integer getMinDuration() {
+        return minDuration;
+    }
+
+    public void setMinDuration(Integer minDuration) {
+        this.minDuration = minDuration;
+    }
+
+    public Integer getMinFree() {
+        return minFree;
+    }
+
+    public void setMinFree(Integer minFree) {
+        this.minFree = minFree;
+    }
+}
@@ -0,0 +1,53 @@
+package control.disponibilidadcontrollers;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// Combina en paralelo (fork-join) la ocupación de los miembros de un grupo: divide la
+// lista de usuarios hasta tramos de THRESHOLD, cada hoja acumula los bitsets de sus
+// usuarios y los resultados parciales se combinan al volver.
+class GroupOccupancyTask<R> extends RecursiveTask<R> {
+
+    private static final int THRESHOLD = 8;
+
+    private final List<Long> userIds;
+    private final Function<Long, BitSet> busyOf;
+    private final Supplier<R> identity;
+    private final BiConsumer<R, BitSet> accumulator;
+    private final BinaryOperator<R> combiner;
+
+    GroupOccupancyTask(List<Long> userIds, Function<Long, BitSet> busyOf, Supplier<R> identity,
+                       BiConsumer<R, BitSet> accumulator, BinaryOperator<R> combiner) {
+        this.userIds = userIds;
+        this.busyOf = busyOf;
+        this.identity = identity;
+        this.accumulator = accumulator;
+        this.combiner = combiner;
+    }
+
+    @Override
+    protected R compute() {
+        if (userIds.size() <= THRESHOLD) {
+            R result = identity.get();
+            for (Long userId : userIds) {
+                accumulator.accept(result, busyOf.apply(userId));
+            }
+            return result;
+        }
+        int middle = userIds.size() / 2;
+        GroupOccupancyTask<R> left = subtask(userIds.subList(0, middle));
+        GroupOccupancyTask<R> right = subtask(userIds.subList(middle, userIds.size()));
+        left.fork();
+        R rightResult = right.compute();
+        return combiner.apply(left.join(), rightResult);
+    }
+
+    private GroupOccupancyTask<R> subtask(List<Long> part) {
+        return new GroupOccupancyTask<>(part, busyOf, identity, accumulator, combiner);
+    }
+}
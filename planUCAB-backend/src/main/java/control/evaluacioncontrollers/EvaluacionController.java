@@ -1,9 +1,14 @@
 package control.evaluacioncontrollers;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 import model.Evaluacion;
+import persistence.RecordPage;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -11,17 +16,22 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 
+import control.VersionHeaders;
 import jakarta.validation.Valid;
 
 @RestController
 @RequestMapping("/api/users/{userId}/evaluaciones")
-@CrossOrigin(origins = "http://localhost:4200")
+@CrossOrigin(origins = "http://localhost:4200", exposedHeaders = { EvaluacionController.NEXT_CURSOR_HEADER, HttpHeaders.ETAG })
 public class EvaluacionController {
 
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final EvaluacionService evaluacionService;
 
     public EvaluacionController(EvaluacionService evaluacionService) {
@@ -29,25 +39,46 @@ public class EvaluacionController {
     }
 
     @PostMapping
-    @ResponseStatus(HttpStatus.CREATED)
-    public Evaluacion createEvaluacion(@PathVariable Long userId, @Valid @RequestBody CreateEvaluacionRequest request) {
-        return evaluacionService.createEvaluacion(userId, request);
+    public ResponseEntity<Evaluacion> createEvaluacion(@PathVariable Long userId, @Valid @RequestBody CreateEvaluacionRequest request) {
+        Evaluacion creado = evaluacionService.createEvaluacion(userId, request);
+        return ResponseEntity.status(HttpStatus.CREATED).eTag(VersionHeaders.etag(creado)).body(creado);
     }
 
+    // Sin parámetros devuelve todas las evaluaciones. Con from/to (ISO), cursor o limit
+    // devuelve una página en orden de inicio; el cursor de la siguiente va en X-Next-Cursor.
     @GetMapping
-    public List<Evaluacion> getEvaluaciones(@PathVariable Long userId) {
-        return evaluacionService.getEvaluacionesByUser(userId);
+    public ResponseEntity<List<Evaluacion>> getEvaluaciones(
+            @PathVariable Long userId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        if (from == null && to == null && cursor == null && limit == null) {
+            return ResponseEntity.ok(evaluacionService.getEvaluacionesByUser(userId));
+        }
+        RecordPage<Evaluacion> page = evaluacionService.getEvaluacionesByUser(userId, from, to, cursor, limit);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(page.getItems());
     }
 
+    // Con If-Match (el ETag recibido al crear o actualizar) responde 412 si el registro
+    // cambió desde entonces; sin él, reemplaza como siempre
     @PutMapping("/{evaluacionId}")
-    public Evaluacion updateEvaluacion(@PathVariable Long userId, @PathVariable Long evaluacionId, @Valid @RequestBody CreateEvaluacionRequest request) {
-        return evaluacionService.updateEvaluacion(userId, evaluacionId, request);
+    public ResponseEntity<Evaluacion> updateEvaluacion(@PathVariable Long userId, @PathVariable Long evaluacionId,
+                                     @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                     @Valid @RequestBody CreateEvaluacionRequest request) {
+        Evaluacion actualizado = evaluacionService.updateEvaluacion(userId, evaluacionId, request, VersionHeaders.expectedVersion(ifMatch));
+        return ResponseEntity.ok().eTag(VersionHeaders.etag(actualizado)).body(actualizado);
     }
 
     @DeleteMapping("/{evaluacionId}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
-    public void deleteEvaluacion(@PathVariable Long userId, @PathVariable Long evaluacionId) {
-        evaluacionService.deleteEvaluacion(userId, evaluacionId);
+    public void deleteEvaluacion(@PathVariable Long userId, @PathVariable Long evaluacionId,
+                       @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        evaluacionService.deleteEvaluacion(userId, evaluacionId, VersionHeaders.expectedVersion(ifMatch));
     }
 }
 
@@ -1,221 +1,147 @@
 package control.evaluacioncontrollers;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
-import jakarta.annotation.PostConstruct;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import model.Evaluacion;
 import model.Materia;
 import control.materiacontrollers.MateriaRepository;
+import persistence.StreamingRecordReader;
+import persistence.UserScopedRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Repository;
 
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.Iterator;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicLong;
 
 @Repository
-public class EvaluacionRepository {
+public class EvaluacionRepository extends UserScopedRepository<Evaluacion> {
 
-    private final Map<Long, List<Evaluacion>> userIdToEvaluaciones = new ConcurrentHashMap<>();
-    private final AtomicLong idSequence = new AtomicLong(1);
-    private final ObjectMapper objectMapper;
-    
     @Autowired
     @Lazy
     private MateriaRepository materiaRepository;
 
-    public EvaluacionRepository() {
-        this.objectMapper = new ObjectMapper();
-        this.objectMapper.registerModule(new JavaTimeModule());
-        this.objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
-    }
-
+    // Archivo monolítico anterior; se reparte en shards en el primer arranque
     @Value("${evaluacion.storage.path:data/evaluaciones.json}")
     private String storagePath;
 
-    @PostConstruct
-    void init() {
-        Path path = Paths.get(storagePath);
-        try {
-            if (Files.notExists(path)) {
-                if (path.getParent() != null) {
-                    Files.createDirectories(path.getParent());
-                }
-                objectMapper.writeValue(path.toFile(), new HashMap<Long, List<Evaluacion>>());
-            }
-            // Leer como JsonNode para poder manejar strings y objetos
-            JsonNode rootNode = objectMapper.readTree(path.toFile());
-            Map<Long, List<Evaluacion>> loaded = new HashMap<>();
-            
-            if (rootNode != null && rootNode.isObject()) {
-                Iterator<String> fieldNames = rootNode.fieldNames();
-                while (fieldNames.hasNext()) {
-                    String userIdStr = fieldNames.next();
-                    Long userId = Long.parseLong(userIdStr);
-                    JsonNode evaluacionesArray = rootNode.get(userIdStr);
-                    List<Evaluacion> evaluaciones = new ArrayList<>();
-                    
-                    if (evaluacionesArray.isArray()) {
-                        for (JsonNode evaluacionNode : evaluacionesArray) {
-                            try {
-                                // Deserializar manualmente para manejar materia como string u objeto
-                                Evaluacion evaluacion = new Evaluacion();
-                                if (evaluacionNode.has("id")) evaluacion.setId(evaluacionNode.get("id").asLong());
-                                if (evaluacionNode.has("userId")) evaluacion.setUserId(evaluacionNode.get("userId").asLong());
-                                if (evaluacionNode.has("titulo")) evaluacion.setTitulo(evaluacionNode.get("titulo").asText());
-                                if (evaluacionNode.has("porcentaje")) evaluacion.setPorcentaje(evaluacionNode.get("porcentaje").asDouble());
-                                if (evaluacionNode.has("nota")) evaluacion.setNota(evaluacionNode.get("nota").asDouble());
-                                if (evaluacionNode.has("profesor")) evaluacion.setProfesor(evaluacionNode.get("profesor").asText());
-                                if (evaluacionNode.has("location")) evaluacion.setLocation(evaluacionNode.get("location").asText());
-                                if (evaluacionNode.has("descripcion")) evaluacion.setDescripcion(evaluacionNode.get("descripcion").asText());
-                                if (evaluacionNode.has("colorHex")) evaluacion.setColorHex(evaluacionNode.get("colorHex").asText());
-                                
-                                // Manejar fechas
-                                if (evaluacionNode.has("startDateTime")) {
-                                    evaluacion.setStartDateTime(
-                                        java.time.LocalDateTime.parse(evaluacionNode.get("startDateTime").asText())
-                                    );
-                                }
-                                if (evaluacionNode.has("endDateTime")) {
-                                    evaluacion.setEndDateTime(
-                                        java.time.LocalDateTime.parse(evaluacionNode.get("endDateTime").asText())
-                                    );
-                                }
-                                
-                                // Manejar materia (puede ser string o objeto)
-                                JsonNode materiaNode = evaluacionNode.get("materia");
-                                if (materiaNode != null) {
-                                    Materia materia;
-                                    if (materiaNode.isTextual()) {
-                                        // Es un string, convertir a objeto Materia
-                                        String nombreMateria = materiaNode.asText();
-                                        if (materiaRepository != null) {
-                                            materia = materiaRepository.findAll().stream()
-                                                    .filter(m -> nombreMateria.equals(m.getNombre()))
-                                                    .findFirst()
-                                                    .orElse(new Materia(null, nombreMateria, "", 0));
-                                        } else {
-                                            materia = new Materia(null, nombreMateria, "", 0);
-                                        }
-                                    } else if (materiaNode.isObject()) {
-                                        // Ya es un objeto Materia
-                                        materia = objectMapper.treeToValue(materiaNode, Materia.class);
-                                    } else {
-                                        materia = null;
-                                    }
-                                    evaluacion.setMateria(materia);
-                                }
-                                
-                                evaluaciones.add(evaluacion);
-                            } catch (Exception e) {
-                                // Si falla, continuar con el siguiente
-                            }
-                        }
-                    }
-                    loaded.put(userId, evaluaciones);
-                }
-            }
-            
-            if (loaded != null && !loaded.isEmpty()) {
-                userIdToEvaluaciones.putAll(loaded);
-                long maxId = loaded.values().stream()
-                        .flatMap(List::stream)
-                        .mapToLong(e -> e.getId() == null ? 0L : e.getId())
-                        .max().orElse(0L);
-                idSequence.set(maxId + 1);
-            }
-        } catch (IOException e) {
-            // Si falla la carga, iniciar con almacenamiento en memoria vacío
-        }
+    @Value("${evaluacion.storage.shards:data/evaluaciones}")
+    private String shardsPath;
+
+    private final StreamingRecordReader<Evaluacion> reader =
+            new StreamingRecordReader<>(objectMapper, this::parseEvaluacion);
+
+    @Override
+    protected String storeName() {
+        return "evaluaciones";
     }
 
-    public Evaluacion save(Long userId, Evaluacion evaluacion) {
-        evaluacion.setId(idSequence.getAndIncrement());
-        evaluacion.setUserId(userId);
-        userIdToEvaluaciones.computeIfAbsent(userId, k -> new ArrayList<>()).add(evaluacion);
-        persist();
-        return evaluacion;
+    @Override
+    protected Class<Evaluacion> recordType() {
+        return Evaluacion.class;
     }
 
-    public List<Evaluacion> findByUserId(Long userId) {
-        return userIdToEvaluaciones.containsKey(userId)
-                ? Collections.unmodifiableList(userIdToEvaluaciones.get(userId))
-                : List.of();
+    @Override
+    protected Path legacyPath() {
+        return Paths.get(storagePath);
     }
 
-    public Evaluacion findById(Long userId, Long evaluacionId) {
-        List<Evaluacion> evaluaciones = userIdToEvaluaciones.get(userId);
-        if (evaluaciones == null) {
-            return null;
-        }
-        return evaluaciones.stream()
-                .filter(e -> e.getId() != null && e.getId().equals(evaluacionId))
-                .findFirst()
-                .orElse(null);
+    @Override
+    protected Path shardDirectory() {
+        return Paths.get(shardsPath);
     }
 
-    public Evaluacion update(Long userId, Long evaluacionId, Evaluacion updatedEvaluacion) {
-        List<Evaluacion> evaluaciones = userIdToEvaluaciones.get(userId);
-        if (evaluaciones == null) {
-            throw new IllegalArgumentException("Usuario no encontrado");
-        }
-        
-        int index = -1;
-        for (int i = 0; i < evaluaciones.size(); i++) {
-            if (evaluaciones.get(i).getId() != null && evaluaciones.get(i).getId().equals(evaluacionId)) {
-                index = i;
-                break;
+    @Override
+    protected String notFoundMessage() {
+        return "Evaluación no encontrada";
+    }
+
+    @Override
+    protected LocalDateTime startOf(Evaluacion evaluacion) {
+        return evaluacion.getStartDateTime();
+    }
+
+    @Override
+    protected LocalDateTime endOf(Evaluacion evaluacion) {
+        return evaluacion.getEndDateTime();
+    }
+
+    @Override
+    protected List<Evaluacion> readShard(Path shard) throws IOException {
+        return reader.readArray(shard);
+    }
+
+    @Override
+    protected Map<Long, List<Evaluacion>> readLegacy(Path legacyFile) throws IOException {
+        return reader.readByUser(legacyFile);
+    }
+
+    // Deserializar manualmente, token a token, para manejar materia como string u objeto.
+    // Una evaluación con fechas ilegibles se descarta y se continúa con la siguiente.
+    private Evaluacion parseEvaluacion(JsonParser parser) throws IOException {
+        Evaluacion evaluacion = new Evaluacion();
+        boolean valida = true;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken token = parser.nextToken();
+            switch (field) {
+                case "id" -> evaluacion.setId(parser.getValueAsLong());
+                case "userId" -> evaluacion.setUserId(parser.getValueAsLong());
+                case "version" -> evaluacion.setVersion(parser.currentToken() == JsonToken.VALUE_NULL ? null : parser.getValueAsLong());
+                case "titulo" -> evaluacion.setTitulo(StreamingRecordReader.text(parser));
+                case "porcentaje" -> evaluacion.setPorcentaje(token == JsonToken.VALUE_NULL ? null : parser.getValueAsDouble());
+                case "nota" -> evaluacion.setNota(token == JsonToken.VALUE_NULL ? null : parser.getValueAsDouble());
+                case "profesor" -> evaluacion.setProfesor(StreamingRecordReader.text(parser));
+                case "location" -> evaluacion.setLocation(StreamingRecordReader.text(parser));
+                case "descripcion" -> evaluacion.setDescripcion(StreamingRecordReader.text(parser));
+                case "colorHex" -> evaluacion.setColorHex(StreamingRecordReader.text(parser));
+                // Manejar fechas
+                case "startDateTime" -> {
+                    LocalDateTime start = parseDateTime(parser);
+                    valida &= start != null;
+                    evaluacion.setStartDateTime(start);
+                }
+                case "endDateTime" -> {
+                    LocalDateTime end = parseDateTime(parser);
+                    valida &= end != null;
+                    evaluacion.setEndDateTime(end);
+                }
+                case "materia" -> evaluacion.setMateria(readMateria(parser));
+                default -> parser.skipChildren();
             }
         }
-        
-        if (index == -1) {
-            throw new IllegalArgumentException("Evaluación no encontrada");
-        }
-        
-        updatedEvaluacion.setId(evaluacionId);
-        updatedEvaluacion.setUserId(userId);
-        evaluaciones.set(index, updatedEvaluacion);
-        persist();
-        return updatedEvaluacion;
+        return valida ? evaluacion : null;
     }
 
-    public void delete(Long userId, Long evaluacionId) {
-        List<Evaluacion> evaluaciones = userIdToEvaluaciones.get(userId);
-        if (evaluaciones == null) {
-            throw new IllegalArgumentException("Usuario no encontrado");
-        }
-        
-        boolean removed = evaluaciones.removeIf(e -> e.getId() != null && e.getId().equals(evaluacionId));
-        if (!removed) {
-            throw new IllegalArgumentException("Evaluación no encontrada");
+    private LocalDateTime parseDateTime(JsonParser parser) throws IOException {
+        String text = StreamingRecordReader.text(parser);
+        try {
+            return text != null ? LocalDateTime.parse(text) : null;
+        } catch (DateTimeParseException e) {
+            return null;
         }
-        
-        persist();
     }
 
-    private synchronized void persist() {
-        Path path = Paths.get(storagePath);
-        try {
-            if (path.getParent() != null) {
-                Files.createDirectories(path.getParent());
-            }
-            objectMapper.writerWithDefaultPrettyPrinter().writeValue(path.toFile(), userIdToEvaluaciones);
-        } catch (IOException e) {
-            // Ignorar errores de persistencia por ahora; se podría agregar logging
+    // Manejar materia (puede ser string u objeto)
+    private Materia readMateria(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_STRING) {
+            // Es un string, convertir a objeto Materia
+            String nombreMateria = parser.getText();
+            Materia materia = materiaRepository != null ? materiaRepository.findByNombre(nombreMateria) : null;
+            return materia != null ? materia : new Materia(null, nombreMateria, "", 0);
         }
+        if (token == JsonToken.START_OBJECT) {
+            // Ya es un objeto Materia
+            return objectMapper.readValue(parser, Materia.class);
+        }
+        parser.skipChildren();
+        return null;
     }
 }
-
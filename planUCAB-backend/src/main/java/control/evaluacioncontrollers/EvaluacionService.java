@@ -8,20 +8,34 @@ import java.util.List;
 
 import model.Evaluacion;
 import model.Materia;
+import persistence.RecordPage;
+import persistence.UserLocks;
+import control.conflictcontrollers.ConflictEngine;
 import exceptions.InvalidEventTimeException;
-import exceptions.HorarioConflictoExcepcion;
 import org.springframework.stereotype.Service;
 
 @Service
 public class EvaluacionService {
 
+    private static final DateTimeFormatter FORMATO_HORA = DateTimeFormatter.ofPattern("HH:mm");
+
     private final EvaluacionRepository evaluacionRepository;
+    private final ConflictEngine conflictEngine;
+    private final UserLocks userLocks;
 
-    public EvaluacionService(EvaluacionRepository evaluacionRepository) {
+    public EvaluacionService(EvaluacionRepository evaluacionRepository, ConflictEngine conflictEngine,
+                             UserLocks userLocks) {
         this.evaluacionRepository = evaluacionRepository;
+        this.conflictEngine = conflictEngine;
+        this.userLocks = userLocks;
     }
 
     public Evaluacion createEvaluacion(Long userId, CreateEvaluacionRequest request) {
+        // Validaciones (porcentajes, conflictos) y guardado con el lock del usuario
+        return userLocks.withLock(userId, () -> doCreateEvaluacion(userId, request));
+    }
+
+    private Evaluacion doCreateEvaluacion(Long userId, CreateEvaluacionRequest request) {
         // Obtener todas las evaluaciones existentes del usuario
         List<Evaluacion> evaluacionesExistentes = evaluacionRepository.findByUserId(userId);
 
@@ -55,28 +69,8 @@ public class EvaluacionService {
         LocalDateTime startDateTime = LocalDateTime.of(date, start);
         LocalDateTime endDateTime = LocalDateTime.of(date, end);
 
-        // Validar choque de horario con otras evaluaciones del mismo día
-        for (Evaluacion evaluacionExistente : evaluacionesExistentes) {
-            LocalDateTime existenteStart = evaluacionExistente.getStartDateTime();
-            LocalDateTime existenteEnd = evaluacionExistente.getEndDateTime();
-            
-            // Verificar si es el mismo día
-            if (existenteStart.toLocalDate().equals(date)) {
-                // Verificar solapamiento: (start < existenteEnd) && (end > existenteStart)
-                if (startDateTime.isBefore(existenteEnd) && endDateTime.isAfter(existenteStart)) {
-                    String nombreMateriaExistente = evaluacionExistente.getMateria() != null 
-                        ? evaluacionExistente.getMateria().getNombre() 
-                        : "Desconocida";
-                    throw new HorarioConflictoExcepcion(
-                        String.format("La evaluación entra en conflicto de horario con '%s' de %s (%s - %s)", 
-                            evaluacionExistente.getTitulo(),
-                            nombreMateriaExistente,
-                            formatTime(existenteStart.toLocalTime()),
-                            formatTime(existenteEnd.toLocalTime()))
-                    );
-                }
-            }
-        }
+        // Validar choque de horario con otras evaluaciones, eventos y horarios
+        conflictEngine.checkDated(userId, "La evaluación", startDateTime, endDateTime, b -> false);
 
         Evaluacion evaluacion = new Evaluacion();
         evaluacion.setUserId(userId);
@@ -98,12 +92,27 @@ public class EvaluacionService {
         return evaluacionRepository.findByUserId(userId);
     }
 
+    public RecordPage<Evaluacion> getEvaluacionesByUser(Long userId, LocalDateTime from, LocalDateTime to,
+                                                        String cursor, Integer limit) {
+        return evaluacionRepository.findByUserIdBetween(userId, from, to, cursor, limit);
+    }
+
     public Evaluacion updateEvaluacion(Long userId, Long evaluacionId, CreateEvaluacionRequest request) {
+        return updateEvaluacion(userId, evaluacionId, request, null);
+    }
+
+    // Con expectedVersion (del If-Match) solo se actualiza si el registro sigue en esa versión
+    public Evaluacion updateEvaluacion(Long userId, Long evaluacionId, CreateEvaluacionRequest request, Long expectedVersion) {
+        return userLocks.withLock(userId, () -> doUpdateEvaluacion(userId, evaluacionId, request, expectedVersion));
+    }
+
+    private Evaluacion doUpdateEvaluacion(Long userId, Long evaluacionId, CreateEvaluacionRequest request, Long expectedVersion) {
         // Verificar que la evaluación existe
         Evaluacion evaluacionExistente = evaluacionRepository.findById(userId, evaluacionId);
         if (evaluacionExistente == null) {
             throw new IllegalArgumentException("Evaluación no encontrada");
         }
+        evaluacionRepository.requireVersion(evaluacionExistente, expectedVersion);
 
         // Obtener todas las evaluaciones existentes del usuario
         List<Evaluacion> evaluacionesExistentes = evaluacionRepository.findByUserId(userId);
@@ -140,33 +149,9 @@ public class EvaluacionService {
         LocalDateTime startDateTime = LocalDateTime.of(date, start);
         LocalDateTime endDateTime = LocalDateTime.of(date, end);
 
-        // Validar choque de horario con otras evaluaciones del mismo día (excluyendo la actual)
-        for (Evaluacion otraEvaluacion : evaluacionesExistentes) {
-            // Saltar la evaluación que estamos editando
-            if (otraEvaluacion.getId() != null && otraEvaluacion.getId().equals(evaluacionId)) {
-                continue;
-            }
-            
-            LocalDateTime existenteStart = otraEvaluacion.getStartDateTime();
-            LocalDateTime existenteEnd = otraEvaluacion.getEndDateTime();
-            
-            // Verificar si es el mismo día
-            if (existenteStart.toLocalDate().equals(date)) {
-                // Verificar solapamiento: (start < existenteEnd) && (end > existenteStart)
-                if (startDateTime.isBefore(existenteEnd) && endDateTime.isAfter(existenteStart)) {
-                    String nombreMateriaExistente = otraEvaluacion.getMateria() != null 
-                        ? otraEvaluacion.getMateria().getNombre() 
-                        : "Desconocida";
-                    throw new HorarioConflictoExcepcion(
-                        String.format("La evaluación entra en conflicto de horario con '%s' de %s (%s - %s)", 
-                            otraEvaluacion.getTitulo(),
-                            nombreMateriaExistente,
-                            formatTime(existenteStart.toLocalTime()),
-                            formatTime(existenteEnd.toLocalTime()))
-                    );
-                }
-            }
-        }
+        // Validar choque de horario con otras evaluaciones, eventos y horarios (excluyendo la actual)
+        conflictEngine.checkDated(userId, "La evaluación", startDateTime, endDateTime,
+                ConflictEngine.mismo(Evaluacion.class, evaluacionId));
 
         Evaluacion updatedEvaluacion = new Evaluacion();
         updatedEvaluacion.setTitulo(request.getTitulo());
@@ -180,27 +165,30 @@ public class EvaluacionService {
         updatedEvaluacion.setEndDateTime(endDateTime);
         updatedEvaluacion.setColorHex(request.getColorHex() != null ? request.getColorHex() : "#FF9800");
 
-        return evaluacionRepository.update(userId, evaluacionId, updatedEvaluacion);
+        return evaluacionRepository.update(userId, evaluacionId, updatedEvaluacion, expectedVersion);
     }
 
     public void deleteEvaluacion(Long userId, Long evaluacionId) {
+        deleteEvaluacion(userId, evaluacionId, null);
+    }
+
+    public void deleteEvaluacion(Long userId, Long evaluacionId, Long expectedVersion) {
+        userLocks.withLock(userId, () -> doDeleteEvaluacion(userId, evaluacionId, expectedVersion));
+    }
+
+    private void doDeleteEvaluacion(Long userId, Long evaluacionId, Long expectedVersion) {
         // Verificar que la evaluación existe
         Evaluacion evaluacionExistente = evaluacionRepository.findById(userId, evaluacionId);
         if (evaluacionExistente == null) {
             throw new IllegalArgumentException("Evaluación no encontrada");
         }
+        evaluacionRepository.requireVersion(evaluacionExistente, expectedVersion);
         
-        evaluacionRepository.delete(userId, evaluacionId);
+        evaluacionRepository.delete(userId, evaluacionId, expectedVersion);
     }
 
     private LocalTime parseTime24(String input) {
-        DateTimeFormatter fmt = DateTimeFormatter.ofPattern("HH:mm");
-        return LocalTime.parse(input, fmt);
-    }
-
-    private String formatTime(LocalTime time) {
-        DateTimeFormatter fmt = DateTimeFormatter.ofPattern("HH:mm");
-        return time.format(fmt);
+        return LocalTime.parse(input, FORMATO_HORA);
     }
 }
 
@@ -1,8 +1,12 @@
 package control.eventcontrollers;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -10,18 +14,24 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 
+import control.VersionHeaders;
 import jakarta.validation.Valid;
 import model.Event;
+import persistence.RecordPage;
 
 @RestController
 @RequestMapping("/api/users/{userId}/events")
-@CrossOrigin(origins = "http://localhost:4200")
+@CrossOrigin(origins = "http://localhost:4200", exposedHeaders = { EventController.NEXT_CURSOR_HEADER, HttpHeaders.ETAG })
 public class EventController {
 
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final EventService eventService;
 
     public EventController(EventService eventService) {
@@ -29,25 +39,46 @@ public class EventController {
     }
 
     @PostMapping
-    @ResponseStatus(HttpStatus.CREATED)
-    public Event createEvent(@PathVariable Long userId, @Valid @RequestBody CreateEventRequest request) {
-        return eventService.createEvent(userId, request);
+    public ResponseEntity<Event> createEvent(@PathVariable Long userId, @Valid @RequestBody CreateEventRequest request) {
+        Event creado = eventService.createEvent(userId, request);
+        return ResponseEntity.status(HttpStatus.CREATED).eTag(VersionHeaders.etag(creado)).body(creado);
     }
 
+    // Sin parámetros devuelve todos los eventos. Con from/to (ISO), cursor o limit devuelve
+    // una página en orden de inicio; el cursor de la siguiente va en X-Next-Cursor.
     @GetMapping
-    public List<Event> getEvents(@PathVariable Long userId) {
-        return eventService.getEventsByUser(userId);
+    public ResponseEntity<List<Event>> getEvents(
+            @PathVariable Long userId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        if (from == null && to == null && cursor == null && limit == null) {
+            return ResponseEntity.ok(eventService.getEventsByUser(userId));
+        }
+        RecordPage<Event> page = eventService.getEventsByUser(userId, from, to, cursor, limit);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(page.getItems());
     }
 
+    // Con If-Match (el ETag recibido al crear o actualizar) responde 412 si el registro
+    // cambió desde entonces; sin él, reemplaza como siempre
     @PutMapping("/{eventId}")
-    public Event updateEvent(@PathVariable Long userId, @PathVariable Long eventId, @Valid @RequestBody CreateEventRequest request) {
-        return eventService.updateEvent(userId, eventId, request);
+    public ResponseEntity<Event> updateEvent(@PathVariable Long userId, @PathVariable Long eventId,
+                                     @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                     @Valid @RequestBody CreateEventRequest request) {
+        Event actualizado = eventService.updateEvent(userId, eventId, request, VersionHeaders.expectedVersion(ifMatch));
+        return ResponseEntity.ok().eTag(VersionHeaders.etag(actualizado)).body(actualizado);
     }
 
     @DeleteMapping("/{eventId}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
-    public void deleteEvent(@PathVariable Long userId, @PathVariable Long eventId) {
-        eventService.deleteEvent(userId, eventId);
+    public void deleteEvent(@PathVariable Long userId, @PathVariable Long eventId,
+                       @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        eventService.deleteEvent(userId, eventId, VersionHeaders.expectedVersion(ifMatch));
     }
 }
 
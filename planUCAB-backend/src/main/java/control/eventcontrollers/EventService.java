@@ -1,46 +1,49 @@
 package control.eventcontrollers;
 
-import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 import model.Event;
-import model.Horario;
-import control.horariocontrollers.HorarioRepository;
+import persistence.RecordPage;
+import persistence.UserLocks;
+import control.conflictcontrollers.ConflictEngine;
 import org.springframework.stereotype.Service;
 
 import exceptions.InvalidEventTimeException;
-import exceptions.HorarioConflictoExcepcion;
 
 @Service
 public class EventService {
 
+    private static final DateTimeFormatter FORMATO_HORA = DateTimeFormatter.ofPattern("HH:mm");
+
     private final EventRepository eventRepository;
-    private final HorarioRepository horarioRepository;
-
-    // Mapeo de nombres de días en español a DayOfWeek de Java
-    private static final Map<String, DayOfWeek> DIA_SEMANA_MAP = new HashMap<>();
-    static {
-        DIA_SEMANA_MAP.put("Lunes", DayOfWeek.MONDAY);
-        DIA_SEMANA_MAP.put("Martes", DayOfWeek.TUESDAY);
-        DIA_SEMANA_MAP.put("Miércoles", DayOfWeek.WEDNESDAY);
-        DIA_SEMANA_MAP.put("Jueves", DayOfWeek.THURSDAY);
-        DIA_SEMANA_MAP.put("Viernes", DayOfWeek.FRIDAY);
-        DIA_SEMANA_MAP.put("Sábado", DayOfWeek.SATURDAY);
-        DIA_SEMANA_MAP.put("Domingo", DayOfWeek.SUNDAY);
-    }
+    private final ConflictEngine conflictEngine;
+    private final UserLocks userLocks;
 
-    public EventService(EventRepository eventRepository, HorarioRepository horarioRepository) {
+    public EventService(EventRepository eventRepository, ConflictEngine conflictEngine, UserLocks userLocks) {
         this.eventRepository = eventRepository;
-        this.horarioRepository = horarioRepository;
+        this.conflictEngine = conflictEngine;
+        this.userLocks = userLocks;
     }
 
     public Event createEvent(Long userId, CreateEventRequest request) {
+        Event event = prepareEvent(request);
+
+        // Revisión de conflictos y guardado con el lock del usuario, para que dos
+        // peticiones simultáneas no pasen ambas la revisión
+        return userLocks.withLock(userId, () -> {
+            // Verificar conflictos con otros eventos, evaluaciones y horarios
+            conflictEngine.checkDated(userId, "El evento", event.getStartDateTime(), event.getEndDateTime(), b -> false);
+
+            return eventRepository.save(userId, event);
+        });
+    }
+
+    // Valida la solicitud y arma el evento sin guardarlo ni revisar conflictos
+    public Event prepareEvent(CreateEventRequest request) {
         LocalDate date = LocalDate.parse(request.getDate());
         LocalTime start = parseTime24(request.getStartTime());
         LocalTime end = parseTime24(request.getEndTime());
@@ -56,47 +59,6 @@ public class EventService {
             throw new InvalidEventTimeException("No se pueden crear eventos en el pasado");
         }
 
-        // Verificar conflictos con otros eventos del mismo día
-        List<Event> eventosExistentes = eventRepository.findByUserId(userId);
-        for (Event eventoExistente : eventosExistentes) {
-            LocalDateTime existenteStart = eventoExistente.getStartDateTime();
-            LocalDateTime existenteEnd = eventoExistente.getEndDateTime();
-            
-            // Verificar si es el mismo día
-            if (existenteStart.toLocalDate().equals(date)) {
-                // Verificar solapamiento: (start < existenteEnd) && (end > existenteStart)
-                if (startDateTime.isBefore(existenteEnd) && endDateTime.isAfter(existenteStart)) {
-                    throw new HorarioConflictoExcepcion(
-                        String.format("El evento entra en conflicto con '%s' (%s - %s)", 
-                            eventoExistente.getName(),
-                            formatTime(existenteStart.toLocalTime()),
-                            formatTime(existenteEnd.toLocalTime()))
-                    );
-                }
-            }
-        }
-
-        // Verificar conflictos con horarios del mismo día de la semana
-        DayOfWeek diaSemanaEvento = date.getDayOfWeek();
-        List<Horario> horariosExistentes = horarioRepository.findByUserId(userId);
-        for (Horario horarioExistente : horariosExistentes) {
-            DayOfWeek diaSemanaHorario = DIA_SEMANA_MAP.get(horarioExistente.getDiaSemana());
-            if (diaSemanaHorario != null && diaSemanaHorario.equals(diaSemanaEvento)) {
-                LocalTime horarioStart = parseTime24(horarioExistente.getStartTime());
-                LocalTime horarioEnd = parseTime24(horarioExistente.getEndTime());
-                
-                // Verificar solapamiento: (start < horarioEnd) && (end > horarioStart)
-                if (start.isBefore(horarioEnd) && end.isAfter(horarioStart)) {
-                    throw new HorarioConflictoExcepcion(
-                        String.format("El evento entra en conflicto con el horario '%s' (%s - %s)", 
-                            horarioExistente.getMateria(),
-                            horarioExistente.getStartTime(),
-                            horarioExistente.getEndTime())
-                    );
-                }
-            }
-        }
-
         Event event = new Event();
         event.setName(request.getName());
         event.setLocation(request.getLocation());
@@ -104,20 +66,34 @@ public class EventService {
         event.setStartDateTime(startDateTime);
         event.setEndDateTime(endDateTime);
         event.setColorHex(request.getColorHex());
-
-        return eventRepository.save(userId, event);
+        return event;
     }
 
     public List<Event> getEventsByUser(Long userId) {
         return eventRepository.findByUserId(userId);
     }
 
+    public RecordPage<Event> getEventsByUser(Long userId, LocalDateTime from, LocalDateTime to,
+                                             String cursor, Integer limit) {
+        return eventRepository.findByUserIdBetween(userId, from, to, cursor, limit);
+    }
+
     public Event updateEvent(Long userId, Long eventId, CreateEventRequest request) {
+        return updateEvent(userId, eventId, request, null);
+    }
+
+    // Con expectedVersion (del If-Match) solo se actualiza si el registro sigue en esa versión
+    public Event updateEvent(Long userId, Long eventId, CreateEventRequest request, Long expectedVersion) {
+        return userLocks.withLock(userId, () -> doUpdateEvent(userId, eventId, request, expectedVersion));
+    }
+
+    private Event doUpdateEvent(Long userId, Long eventId, CreateEventRequest request, Long expectedVersion) {
         // Verificar que el evento existe
         Event eventoExistente = eventRepository.findById(userId, eventId);
         if (eventoExistente == null) {
             throw new IllegalArgumentException("Evento no encontrado");
         }
+        eventRepository.requireVersion(eventoExistente, expectedVersion);
 
         LocalDate date = LocalDate.parse(request.getDate());
         LocalTime start = parseTime24(request.getStartTime());
@@ -128,51 +104,9 @@ public class EventService {
         LocalDateTime startDateTime = LocalDateTime.of(date, start);
         LocalDateTime endDateTime = LocalDateTime.of(date, end);
 
-        // Verificar conflictos con otros eventos del mismo día (excluyendo el evento actual)
-        List<Event> eventosExistentes = eventRepository.findByUserId(userId);
-        for (Event otroEvento : eventosExistentes) {
-            // Saltar el evento que estamos editando
-            if (otroEvento.getId() != null && otroEvento.getId().equals(eventId)) {
-                continue;
-            }
-            
-            LocalDateTime existenteStart = otroEvento.getStartDateTime();
-            LocalDateTime existenteEnd = otroEvento.getEndDateTime();
-            
-            // Verificar si es el mismo día
-            if (existenteStart.toLocalDate().equals(date)) {
-                // Verificar solapamiento: (start < existenteEnd) && (end > existenteStart)
-                if (startDateTime.isBefore(existenteEnd) && endDateTime.isAfter(existenteStart)) {
-                    throw new HorarioConflictoExcepcion(
-                        String.format("El evento entra en conflicto con '%s' (%s - %s)", 
-                            otroEvento.getName(),
-                            formatTime(existenteStart.toLocalTime()),
-                            formatTime(existenteEnd.toLocalTime()))
-                    );
-                }
-            }
-        }
-
-        // Verificar conflictos con horarios del mismo día de la semana
-        DayOfWeek diaSemanaEvento = date.getDayOfWeek();
-        List<Horario> horariosExistentes = horarioRepository.findByUserId(userId);
-        for (Horario horarioExistente : horariosExistentes) {
-            DayOfWeek diaSemanaHorario = DIA_SEMANA_MAP.get(horarioExistente.getDiaSemana());
-            if (diaSemanaHorario != null && diaSemanaHorario.equals(diaSemanaEvento)) {
-                LocalTime horarioStart = parseTime24(horarioExistente.getStartTime());
-                LocalTime horarioEnd = parseTime24(horarioExistente.getEndTime());
-                
-                // Verificar solapamiento: (start < horarioEnd) && (end > horarioStart)
-                if (start.isBefore(horarioEnd) && end.isAfter(horarioStart)) {
-                    throw new HorarioConflictoExcepcion(
-                        String.format("El evento entra en conflicto con el horario '%s' (%s - %s)", 
-                            horarioExistente.getMateria(),
-                            horarioExistente.getStartTime(),
-                            horarioExistente.getEndTime())
-                    );
-                }
-            }
-        }
+        // Verificar conflictos con otros eventos, evaluaciones y horarios (excluyendo el evento actual)
+        conflictEngine.checkDated(userId, "El evento", startDateTime, endDateTime,
+                ConflictEngine.mismo(Event.class, eventId));
 
         Event updatedEvent = new Event();
         updatedEvent.setName(request.getName());
@@ -182,27 +116,30 @@ public class EventService {
         updatedEvent.setEndDateTime(endDateTime);
         updatedEvent.setColorHex(request.getColorHex());
 
-        return eventRepository.update(userId, eventId, updatedEvent);
+        return eventRepository.update(userId, eventId, updatedEvent, expectedVersion);
     }
 
     public void deleteEvent(Long userId, Long eventId) {
+        deleteEvent(userId, eventId, null);
+    }
+
+    public void deleteEvent(Long userId, Long eventId, Long expectedVersion) {
+        userLocks.withLock(userId, () -> doDeleteEvent(userId, eventId, expectedVersion));
+    }
+
+    private void doDeleteEvent(Long userId, Long eventId, Long expectedVersion) {
         // Verificar que el evento existe
         Event eventoExistente = eventRepository.findById(userId, eventId);
         if (eventoExistente == null) {
             throw new IllegalArgumentException("Evento no encontrado");
         }
+        eventRepository.requireVersion(eventoExistente, expectedVersion);
         
-        eventRepository.delete(userId, eventId);
+        eventRepository.delete(userId, eventId, expectedVersion);
     }
 
     private LocalTime parseTime24(String input) {
-        DateTimeFormatter fmt = DateTimeFormatter.ofPattern("HH:mm");
-        return LocalTime.parse(input, fmt);
-    }
-
-    private String formatTime(LocalTime time) {
-        DateTimeFormatter fmt = DateTimeFormatter.ofPattern("HH:mm");
-        return time.format(fmt);
+        return LocalTime.parse(input, FORMATO_HORA);
     }
 
 }
@@ -2,7 +2,9 @@ package control.horariocontrollers;
 
 import java.util.List;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -10,10 +12,12 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 
+import control.VersionHeaders;
 import jakarta.validation.Valid;
 import model.Horario;
 import org.slf4j.Logger;
@@ -21,7 +25,7 @@ import org.slf4j.LoggerFactory;
 
 @RestController
 @RequestMapping("/api/users/{userId}/horarios")
-@CrossOrigin(origins = "http://localhost:4200")
+@CrossOrigin(origins = "http://localhost:4200", exposedHeaders = HttpHeaders.ETAG)
 public class HorarioController {
 
     private static final Logger logger = LoggerFactory.getLogger(HorarioController.class);
@@ -32,9 +36,9 @@ public class HorarioController {
     }
 
     @PostMapping
-    @ResponseStatus(HttpStatus.CREATED)
-    public Horario createHorario(@PathVariable Long userId, @Valid @RequestBody CreateHorarioRequest request) {
-        return horarioService.createHorario(userId, request);
+    public ResponseEntity<Horario> createHorario(@PathVariable Long userId, @Valid @RequestBody CreateHorarioRequest request) {
+        Horario creado = horarioService.createHorario(userId, request);
+        return ResponseEntity.status(HttpStatus.CREATED).eTag(VersionHeaders.etag(creado)).body(creado);
     }
 
     @GetMapping
@@ -50,15 +54,21 @@ public class HorarioController {
         }
     }
 
+    // Con If-Match (el ETag recibido al crear o actualizar) responde 412 si el registro
+    // cambió desde entonces; sin él, reemplaza como siempre
     @PutMapping("/{horarioId}")
-    public Horario updateHorario(@PathVariable Long userId, @PathVariable Long horarioId, @Valid @RequestBody CreateHorarioRequest request) {
-        return horarioService.updateHorario(userId, horarioId, request);
+    public ResponseEntity<Horario> updateHorario(@PathVariable Long userId, @PathVariable Long horarioId,
+                                     @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                     @Valid @RequestBody CreateHorarioRequest request) {
+        Horario actualizado = horarioService.updateHorario(userId, horarioId, request, VersionHeaders.expectedVersion(ifMatch));
+        return ResponseEntity.ok().eTag(VersionHeaders.etag(actualizado)).body(actualizado);
     }
 
     @DeleteMapping("/{horarioId}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
-    public void deleteHorario(@PathVariable Long userId, @PathVariable Long horarioId) {
-        horarioService.deleteHorario(userId, horarioId);
+    public void deleteHorario(@PathVariable Long userId, @PathVariable Long horarioId,
+                       @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        horarioService.deleteHorario(userId, horarioId, VersionHeaders.expectedVersion(ifMatch));
     }
 }
 
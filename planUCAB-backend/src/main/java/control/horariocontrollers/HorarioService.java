@@ -3,93 +3,56 @@ package control.horariocontrollers;
 import java.time.DayOfWeek;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
+import model.DiaSemana;
 import model.Horario;
-import model.Event;
-import control.eventcontrollers.EventRepository;
+import control.conflictcontrollers.ConflictEngine;
+import persistence.UserLocks;
 import org.springframework.stereotype.Service;
 
 import exceptions.InvalidEventTimeException;
-import exceptions.HorarioConflictoExcepcion;
 
 @Service
 public class HorarioService {
 
     private final HorarioRepository horarioRepository;
-    private final EventRepository eventRepository;
+    private final ConflictEngine conflictEngine;
+    private final UserLocks userLocks;
 
-    // Mapeo de nombres de días en español a DayOfWeek de Java
-    private static final Map<String, DayOfWeek> DIA_SEMANA_MAP = new HashMap<>();
-    static {
-        DIA_SEMANA_MAP.put("Lunes", DayOfWeek.MONDAY);
-        DIA_SEMANA_MAP.put("Martes", DayOfWeek.TUESDAY);
-        DIA_SEMANA_MAP.put("Miércoles", DayOfWeek.WEDNESDAY);
-        DIA_SEMANA_MAP.put("Jueves", DayOfWeek.THURSDAY);
-        DIA_SEMANA_MAP.put("Viernes", DayOfWeek.FRIDAY);
-        DIA_SEMANA_MAP.put("Sábado", DayOfWeek.SATURDAY);
-        DIA_SEMANA_MAP.put("Domingo", DayOfWeek.SUNDAY);
-    }
+    private static final DateTimeFormatter FORMATO_HORA = DateTimeFormatter.ofPattern("HH:mm");
 
-    public HorarioService(HorarioRepository horarioRepository, EventRepository eventRepository) {
+    public HorarioService(HorarioRepository horarioRepository, ConflictEngine conflictEngine, UserLocks userLocks) {
         this.horarioRepository = horarioRepository;
-        this.eventRepository = eventRepository;
+        this.conflictEngine = conflictEngine;
+        this.userLocks = userLocks;
     }
 
     public Horario createHorario(Long userId, CreateHorarioRequest request) {
+        Horario horario = prepareHorario(request);
+
+        // Revisión de conflictos y guardado con el lock del usuario
+        return userLocks.withLock(userId, () -> {
+            // Verificar conflictos con otros horarios, eventos y evaluaciones del mismo día de la semana
+            DayOfWeek diaSemanaHorario = DiaSemana.toDayOfWeek(request.getDiaSemana());
+            conflictEngine.checkWeekly(userId, "El horario", diaSemanaHorario, parseTime24(request.getStartTime()),
+                    parseTime24(request.getEndTime()), b -> false);
+
+            return horarioRepository.save(userId, horario);
+        });
+    }
+
+    // Valida la solicitud y arma el horario sin guardarlo ni revisar conflictos
+    public Horario prepareHorario(CreateHorarioRequest request) {
         LocalTime start = parseTime24(request.getStartTime());
         LocalTime end = parseTime24(request.getEndTime());
         if (end.isBefore(start) || end.equals(start)) {
             throw new InvalidEventTimeException("la hora de fin debe ser posterior a la hora de inicio");
         }
 
-        // Verificar conflictos con otros horarios del mismo día de la semana
-        List<Horario> horariosExistentes = horarioRepository.findByUserId(userId);
-        for (Horario horarioExistente : horariosExistentes) {
-            // Verificar si es el mismo día de la semana
-            if (horarioExistente.getDiaSemana().equals(request.getDiaSemana())) {
-                LocalTime existenteStart = parseTime24(horarioExistente.getStartTime());
-                LocalTime existenteEnd = parseTime24(horarioExistente.getEndTime());
-                
-                // Verificar solapamiento: (start < existenteEnd) && (end > existenteStart)
-                if (start.isBefore(existenteEnd) && end.isAfter(existenteStart)) {
-                    String nombreMateria = horarioExistente.getMateria() != null ? horarioExistente.getMateria().getNombre() : "Desconocida";
-                    throw new HorarioConflictoExcepcion(
-                        String.format("El horario entra en conflicto con '%s' (%s - %s)", 
-                            nombreMateria,
-                            horarioExistente.getStartTime(),
-                            horarioExistente.getEndTime())
-                    );
-                }
-            }
-        }
-
-        // Verificar conflictos con eventos del mismo día de la semana
-        DayOfWeek diaSemanaHorario = DIA_SEMANA_MAP.get(request.getDiaSemana());
-        if (diaSemanaHorario != null) {
-            List<Event> eventosExistentes = eventRepository.findByUserId(userId);
-            for (Event eventoExistente : eventosExistentes) {
-                DayOfWeek diaSemanaEvento = eventoExistente.getStartDateTime().getDayOfWeek();
-                if (diaSemanaEvento.equals(diaSemanaHorario)) {
-                    LocalTime eventoStart = eventoExistente.getStartDateTime().toLocalTime();
-                    LocalTime eventoEnd = eventoExistente.getEndDateTime().toLocalTime();
-                    
-                    // Verificar solapamiento: (start < eventoEnd) && (end > eventoStart)
-                    if (start.isBefore(eventoEnd) && end.isAfter(eventoStart)) {
-                        throw new HorarioConflictoExcepcion(
-                            String.format("El horario entra en conflicto con el evento '%s' (%s - %s)", 
-                                eventoExistente.getName(),
-                                formatTime(eventoStart),
-                                formatTime(eventoEnd))
-                        );
-                    }
-                }
-            }
-        }
-
         Horario horario = new Horario();
         horario.setMateria(request.getMateria());
         horario.setLocation(request.getLocation());
@@ -99,8 +62,7 @@ public class HorarioService {
         horario.setProfesor(request.getProfesor());
         horario.setTipoClase(request.getTipoClase());
         horario.setColorHex(request.getColorHex());
-
-        return horarioRepository.save(userId, horario);
+        return horario;
     }
 
     public List<Horario> getHorariosByUser(Long userId) {
@@ -108,11 +70,21 @@ public class HorarioService {
     }
 
     public Horario updateHorario(Long userId, Long horarioId, CreateHorarioRequest request) {
+        return updateHorario(userId, horarioId, request, null);
+    }
+
+    // Con expectedVersion (del If-Match) solo se actualiza si el registro sigue en esa versión
+    public Horario updateHorario(Long userId, Long horarioId, CreateHorarioRequest request, Long expectedVersion) {
+        return userLocks.withLock(userId, () -> doUpdateHorario(userId, horarioId, request, expectedVersion));
+    }
+
+    private Horario doUpdateHorario(Long userId, Long horarioId, CreateHorarioRequest request, Long expectedVersion) {
         // Verificar que el horario existe
         Horario horarioExistente = horarioRepository.findById(userId, horarioId);
         if (horarioExistente == null) {
             throw new IllegalArgumentException("Horario no encontrado");
         }
+        horarioRepository.requireVersion(horarioExistente, expectedVersion);
 
         LocalTime start = parseTime24(request.getStartTime());
         LocalTime end = parseTime24(request.getEndTime());
@@ -132,6 +104,27 @@ public class HorarioService {
         boolean materiaCambio = nombreMateriaExistente != null && nombreMateriaNueva != null 
             && !nombreMateriaExistente.equals(nombreMateriaNueva);
 
+        // Verificar conflictos con otros horarios, eventos y evaluaciones del mismo día de la semana
+        // (excluyendo el horario actual y los relacionados) antes de modificar nada
+        DayOfWeek diaSemanaHorario = DiaSemana.toDayOfWeek(request.getDiaSemana());
+        conflictEngine.checkWeekly(userId, "El horario", diaSemanaHorario, start, end, bloque -> {
+            if (!(bloque instanceof Horario otroHorario)) {
+                return false;
+            }
+            // Saltar el horario que estamos editando
+            if (otroHorario.getId() != null && otroHorario.getId().equals(horarioId)) {
+                return true;
+            }
+            // Saltar horarios relacionados si no cambió la materia
+            if (!materiaCambio && nombreMateriaExistente != null) {
+                String nombreMateriaOtro = otroHorario.getMateria() != null ? otroHorario.getMateria().getNombre() : null;
+                return nombreMateriaOtro != null && nombreMateriaOtro.equals(nombreMateriaExistente);
+            }
+            return false;
+        });
+
+        List<Horario> cambios = new ArrayList<>();
+
         // Si la materia no cambió, actualizar campos genéricos en todos los horarios de la misma materia
         if (!materiaCambio && nombreMateriaExistente != null) {
             List<Horario> horariosRelacionados = horarioRepository.findByUserId(userId).stream()
@@ -161,71 +154,14 @@ public class HorarioService {
                 horarioActualizado.setProfesor(request.getProfesor());
                 horarioActualizado.setTipoClase(request.getTipoClase());
                 horarioActualizado.setColorHex(request.getColorHex());
-                
-                // Actualizar el horario en el repositorio
-                horarioRepository.update(userId, horarioRelacionado.getId(), horarioActualizado);
-            }
-        }
 
-        // Verificar conflictos con otros horarios del mismo día de la semana (excluyendo el horario actual y los relacionados)
-        List<Horario> horariosExistentes = horarioRepository.findByUserId(userId);
-        for (Horario otroHorario : horariosExistentes) {
-            // Saltar el horario que estamos editando
-            if (otroHorario.getId() != null && otroHorario.getId().equals(horarioId)) {
-                continue;
-            }
-            
-            // Saltar horarios relacionados si no cambió la materia
-            if (!materiaCambio && nombreMateriaExistente != null) {
-                String nombreMateriaOtro = otroHorario.getMateria() != null ? otroHorario.getMateria().getNombre() : null;
-                if (nombreMateriaOtro != null && nombreMateriaOtro.equals(nombreMateriaExistente)) {
-                    continue;
-                }
-            }
-            
-            // Verificar si es el mismo día de la semana
-            if (otroHorario.getDiaSemana().equals(request.getDiaSemana())) {
-                LocalTime existenteStart = parseTime24(otroHorario.getStartTime());
-                LocalTime existenteEnd = parseTime24(otroHorario.getEndTime());
-                
-                // Verificar solapamiento: (start < existenteEnd) && (end > existenteStart)
-                if (start.isBefore(existenteEnd) && end.isAfter(existenteStart)) {
-                    String nombreMateria = otroHorario.getMateria() != null ? otroHorario.getMateria().getNombre() : "Desconocida";
-                    throw new HorarioConflictoExcepcion(
-                        String.format("El horario entra en conflicto con '%s' (%s - %s)", 
-                            nombreMateria,
-                            otroHorario.getStartTime(),
-                            otroHorario.getEndTime())
-                    );
-                }
-            }
-        }
-
-        // Verificar conflictos con eventos del mismo día de la semana
-        DayOfWeek diaSemanaHorario = DIA_SEMANA_MAP.get(request.getDiaSemana());
-        if (diaSemanaHorario != null) {
-            List<Event> eventosExistentes = eventRepository.findByUserId(userId);
-            for (Event eventoExistente : eventosExistentes) {
-                DayOfWeek diaSemanaEvento = eventoExistente.getStartDateTime().getDayOfWeek();
-                if (diaSemanaEvento.equals(diaSemanaHorario)) {
-                    LocalTime eventoStart = eventoExistente.getStartDateTime().toLocalTime();
-                    LocalTime eventoEnd = eventoExistente.getEndDateTime().toLocalTime();
-                    
-                    // Verificar solapamiento: (start < eventoEnd) && (end > eventoStart)
-                    if (start.isBefore(eventoEnd) && end.isAfter(eventoStart)) {
-                        throw new HorarioConflictoExcepcion(
-                            String.format("El horario entra en conflicto con el evento '%s' (%s - %s)", 
-                                eventoExistente.getName(),
-                                formatTime(eventoStart),
-                                formatTime(eventoEnd))
-                        );
-                    }
-                }
+                cambios.add(horarioActualizado);
             }
         }
 
         // Actualizar el horario específico con todos los campos (específicos y genéricos)
         Horario updatedHorario = new Horario();
+        updatedHorario.setId(horarioId);
         updatedHorario.setMateria(request.getMateria());
         updatedHorario.setLocation(request.getLocation());
         updatedHorario.setDiaSemana(request.getDiaSemana());
@@ -234,28 +170,35 @@ public class HorarioService {
         updatedHorario.setProfesor(request.getProfesor());
         updatedHorario.setTipoClase(request.getTipoClase());
         updatedHorario.setColorHex(request.getColorHex());
+        cambios.add(updatedHorario);
 
-        return horarioRepository.update(userId, horarioId, updatedHorario);
+        // Relacionados y horario editado se guardan juntos: un lock y una escritura
+        horarioRepository.updateAll(userId, cambios,
+                expectedVersion != null ? Map.of(horarioId, expectedVersion) : Map.of());
+        return updatedHorario;
     }
 
     public void deleteHorario(Long userId, Long horarioId) {
+        deleteHorario(userId, horarioId, null);
+    }
+
+    public void deleteHorario(Long userId, Long horarioId, Long expectedVersion) {
+        userLocks.withLock(userId, () -> doDeleteHorario(userId, horarioId, expectedVersion));
+    }
+
+    private void doDeleteHorario(Long userId, Long horarioId, Long expectedVersion) {
         // Verificar que el horario existe
         Horario horarioExistente = horarioRepository.findById(userId, horarioId);
         if (horarioExistente == null) {
             throw new IllegalArgumentException("Horario no encontrado");
         }
+        horarioRepository.requireVersion(horarioExistente, expectedVersion);
         
-        horarioRepository.delete(userId, horarioId);
+        horarioRepository.delete(userId, horarioId, expectedVersion);
     }
 
     private LocalTime parseTime24(String input) {
-        DateTimeFormatter fmt = DateTimeFormatter.ofPattern("HH:mm");
-        return LocalTime.parse(input, fmt);
-    }
-
-    private String formatTime(LocalTime time) {
-        DateTimeFormatter fmt = DateTimeFormatter.ofPattern("HH:mm");
-        return time.format(fmt);
+        return LocalTime.parse(input, FORMATO_HORA);
     }
 }
 
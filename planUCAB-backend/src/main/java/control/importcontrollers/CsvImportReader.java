@@ -0,0 +1,82 @@
+package control.importcontrollers;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+// Lee un CSV fila a fila. La primera línea nombra las columnas (en cualquier orden):
+// tipo, titulo, fecha, dia, inicio, fin, ubicacion, color, descripcion, profesor, tipoClase.
+// Admite campos entre comillas con comas y comillas dobles escapadas (""), no saltos de
+// línea dentro de un campo.
+class CsvImportReader {
+
+    private CsvImportReader() {
+    }
+
+    static void read(Reader input, Consumer<ImportRow> consumer) throws IOException {
+        BufferedReader reader = new BufferedReader(input);
+        String header = reader.readLine();
+        if (header == null) {
+            throw new IllegalArgumentException("El archivo está vacío");
+        }
+        // Marca de orden de bytes que agregan algunas hojas de cálculo
+        if (header.startsWith("\uFEFF")) {
+            header = header.substring(1);
+        }
+        List<String> columnas = new ArrayList<>();
+        for (String columna : split(header)) {
+            columnas.add(canonical(columna.trim()));
+        }
+
+        int linea = 1;
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+            linea++;
+            if (line.isBlank()) {
+                continue;
+            }
+            List<String> valores = split(line);
+            ImportRow row = new ImportRow(linea);
+            for (int i = 0; i < columnas.size() && i < valores.size(); i++) {
+                row.put(columnas.get(i), valores.get(i));
+            }
+            consumer.accept(row);
+        }
+    }
+
+    // Nombre de campo común; tipoClase es el único con mayúsculas
+    private static String canonical(String columna) {
+        return "tipoclase".equals(columna.toLowerCase(Locale.ROOT)) ? "tipoClase" : columna.toLowerCase(Locale.ROOT);
+    }
+
+    private static List<String> split(String line) {
+        List<String> valores = new ArrayList<>();
+        StringBuilder actual = new StringBuilder();
+        boolean entreComillas = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (entreComillas) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    actual.append('"');
+                    i++;
+                } else if (c == '"') {
+                    entreComillas = false;
+                } else {
+                    actual.append(c);
+                }
+            } else if (c == '"') {
+                entreComillas = true;
+            } else if (c == ',') {
+                valores.add(actual.toString());
+                actual.setLength(0);
+            } else {
+                actual.append(c);
+            }
+        }
+        valores.add(actual.toString());
+        return valores;
+    }
+}
@@ -0,0 +1,181 @@
+package control.importcontrollers;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.time.DateTimeException;
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.function.Consumer;
+
+import model.DiaSemana;
+
+// Lee los VEVENT de un iCalendar a medida que se completan. Un VEVENT con
+// RRULE:FREQ=WEEKLY se toma como horario (SUMMARY es el nombre de la materia); el resto,
+// como eventos. Las horas en UTC (sufijo Z) o con otro TZID se pasan a la zona del
+// calendario; las flotantes se toman tal cual.
+class IcsImportReader {
+
+    private static final DateTimeFormatter FORMATO_ICS = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss");
+    private static final DateTimeFormatter FORMATO_HORA = DateTimeFormatter.ofPattern("HH:mm");
+
+    private IcsImportReader() {
+    }
+
+    static void read(Reader input, ZoneId zona, Consumer<ImportRow> consumer) throws IOException {
+        BufferedReader reader = new BufferedReader(input);
+        ImportRow row = null;
+        String pendiente = null;
+        int lineaPendiente = 0;
+        int linea = 0;
+        for (String line = reader.readLine(); ; line = reader.readLine()) {
+            linea++;
+            // Las líneas que empiezan con espacio o tabulador continúan la anterior
+            if (line != null && !line.isEmpty() && (line.charAt(0) == ' ' || line.charAt(0) == '\t')) {
+                if (pendiente != null) {
+                    pendiente += line.substring(1);
+                }
+                continue;
+            }
+            if (pendiente != null) {
+                row = apply(row, pendiente, lineaPendiente, zona, consumer);
+            }
+            if (line == null) {
+                break;
+            }
+            pendiente = line;
+            lineaPendiente = linea;
+        }
+    }
+
+    // Procesa una línea completa; devuelve el VEVENT en curso (null fuera de uno)
+    private static ImportRow apply(ImportRow row, String line, int linea, ZoneId zona,
+                                   Consumer<ImportRow> consumer) {
+        int dosPuntos = line.indexOf(':');
+        if (dosPuntos < 0) {
+            return row;
+        }
+        String nombre = line.substring(0, dosPuntos);
+        String valor = line.substring(dosPuntos + 1);
+        String parametros = "";
+        int puntoYComa = nombre.indexOf(';');
+        if (puntoYComa >= 0) {
+            parametros = nombre.substring(puntoYComa + 1);
+            nombre = nombre.substring(0, puntoYComa);
+        }
+        switch (nombre.toUpperCase()) {
+            case "BEGIN" -> {
+                if ("VEVENT".equalsIgnoreCase(valor)) {
+                    ImportRow nueva = new ImportRow(linea);
+                    nueva.put("tipo", "evento");
+                    return nueva;
+                }
+            }
+            case "END" -> {
+                if ("VEVENT".equalsIgnoreCase(valor) && row != null) {
+                    consumer.accept(row);
+                    return null;
+                }
+            }
+            case "SUMMARY" -> put(row, "titulo", unescape(valor));
+            case "LOCATION" -> put(row, "ubicacion", unescape(valor));
+            case "DESCRIPTION" -> put(row, "descripcion", unescape(valor));
+            case "DTSTART" -> {
+                LocalDateTime start = parse(valor, tzid(parametros), zona);
+                if (start != null) {
+                    put(row, "fecha", start.toLocalDate().toString());
+                    put(row, "inicio", start.format(FORMATO_HORA));
+                    put(row, "dia", DiaSemana.nombre(start.getDayOfWeek()));
+                }
+            }
+            case "DTEND" -> {
+                LocalDateTime end = parse(valor, tzid(parametros), zona);
+                if (end != null) {
+                    put(row, "fechaFin", end.toLocalDate().toString());
+                    put(row, "fin", end.format(FORMATO_HORA));
+                }
+            }
+            case "RRULE" -> {
+                if (row != null && valor.toUpperCase().contains("FREQ=WEEKLY")) {
+                    row.put("tipo", "horario");
+                    DayOfWeek dia = byDay(valor);
+                    if (dia != null) {
+                        row.put("dia", DiaSemana.nombre(dia));
+                    }
+                }
+            }
+            default -> {
+                // Propiedades que no se importan
+            }
+        }
+        return row;
+    }
+
+    private static void put(ImportRow row, String campo, String valor) {
+        if (row != null) {
+            row.put(campo, valor);
+        }
+    }
+
+    // null si no es una fecha con hora (p. ej. un evento de día completo)
+    private static LocalDateTime parse(String valor, ZoneId origen, ZoneId zona) {
+        try {
+            if (valor.endsWith("Z")) {
+                LocalDateTime utc = LocalDateTime.parse(valor.substring(0, valor.length() - 1), FORMATO_ICS);
+                return utc.atOffset(ZoneOffset.UTC).atZoneSameInstant(zona).toLocalDateTime();
+            }
+            LocalDateTime local = LocalDateTime.parse(valor, FORMATO_ICS);
+            return origen != null ? local.atZone(origen).withZoneSameInstant(zona).toLocalDateTime() : local;
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    // Zona del parámetro TZID; null si no hay o no es un identificador conocido (la hora
+    // se toma entonces como flotante)
+    private static ZoneId tzid(String parametros) {
+        for (String parametro : parametros.split(";")) {
+            if (parametro.regionMatches(true, 0, "TZID=", 0, 5)) {
+                try {
+                    return ZoneId.of(parametro.substring(5).replace("\"", ""));
+                } catch (DateTimeException e) {
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+
+    // Primer día de BYDAY (MO, TU, ...), o null
+    private static DayOfWeek byDay(String rrule) {
+        for (String parte : rrule.toUpperCase().split(";")) {
+            if (parte.startsWith("BYDAY=") && parte.length() >= 8) {
+                String codigo = parte.substring(6, 8);
+                for (DayOfWeek dia : DayOfWeek.values()) {
+                    if (dia.name().startsWith(codigo)) {
+                        return dia;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    private static String unescape(String valor) {
+        StringBuilder result = new StringBuilder(valor.length());
+        for (int i = 0; i < valor.length(); i++) {
+            char c = valor.charAt(i);
+            if (c == '\\' && i + 1 < valor.length()) {
+                char siguiente = valor.charAt(++i);
+                result.append(siguiente == 'n' || siguiente == 'N' ? '\n' : siguiente);
+            } else {
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,42 @@
+package control.importcontrollers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@CrossOrigin(origins = "http://localhost:4200")
+public class ImportController {
+
+    private final ImportService importService;
+
+    public ImportController(ImportService importService) {
+        this.importService = importService;
+    }
+
+    // Recibe el archivo como cuerpo (text/csv o text/calendar) y lo procesa a medida que
+    // llega. 201 si se importó todo; 400 con los errores por fila si no se guardó nada.
+    @PostMapping(value = "/api/users/{userId}/import", consumes = { "text/csv", "text/calendar" })
+    public ResponseEntity<ImportResult> importar(@PathVariable Long userId,
+                                                 @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+                                                 InputStream body) throws IOException {
+        ImportService.Formato formato = "calendar".equalsIgnoreCase(contentType.getSubtype())
+                ? ImportService.Formato.ICS
+                : ImportService.Formato.CSV;
+        ImportResult result = importService.importar(userId, formato,
+                new InputStreamReader(body, contentType.getCharset() != null ? contentType.getCharset() : StandardCharsets.UTF_8));
+        HttpStatus status = result.getErrores().isEmpty() ? HttpStatus.CREATED : HttpStatus.BAD_REQUEST;
+        return ResponseEntity.status(status).body(result);
+    }
+}
@@ -0,0 +1,46 @@
+package control.importcontrollers;
+
+import java.util.List;
+
+// Resultado de una importación. Si hubo errores no se guardó nada.
+public class ImportResult {
+    private final int eventos;
+    private final int horarios;
+    private final List<FilaError> errores;
+
+    public ImportResult(int eventos, int horarios, List<FilaError> errores) {
+        this.eventos = eventos;
+        this.horarios = horarios;
+        this.errores = errores;
+    }
+
+    public int getEventos() {
+        return eventos;
+    }
+
+    public int getHorarios() {
+        return horarios;
+    }
+
+    public List<FilaError> getErrores() {
+        return errores;
+    }
+
+    public static class FilaError {
+        private final int fila;
+        private final String mensaje;
+
+        public FilaError(int fila, String mensaje) {
+            this.fila = fila;
+            this.mensaje = mensaje;
+        }
+
+        public int getFila() {
+            return fila;
+        }
+
+        public String getMensaje() {
+            return mensaje;
+        }
+    }
+}
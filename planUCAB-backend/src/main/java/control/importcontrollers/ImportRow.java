@@ -0,0 +1,32 @@
+package control.importcontrollers;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Una fila leída del archivo, ya con los nombres de campo comunes a CSV e ICS:
+// tipo, titulo, fecha, fechaFin, dia, inicio, fin, ubicacion, color, descripcion,
+// profesor y tipoClase
+class ImportRow {
+
+    private final int fila;
+    private final Map<String, String> campos = new HashMap<>();
+
+    ImportRow(int fila) {
+        this.fila = fila;
+    }
+
+    int getFila() {
+        return fila;
+    }
+
+    // Los valores vacíos se guardan como ausentes
+    void put(String campo, String valor) {
+        if (valor != null && !valor.isBlank()) {
+            campos.put(campo, valor.trim());
+        }
+    }
+
+    String get(String campo) {
+        return campos.get(campo);
+    }
+}
@@ -0,0 +1,195 @@
+package control.importcontrollers;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.time.DateTimeException;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import control.conflictcontrollers.ConflictEngine;
+import control.eventcontrollers.CreateEventRequest;
+import control.eventcontrollers.EventRepository;
+import control.eventcontrollers.EventService;
+import control.horariocontrollers.CreateHorarioRequest;
+import control.horariocontrollers.HorarioRepository;
+import control.horariocontrollers.HorarioService;
+import control.materiacontrollers.MateriaRepository;
+import exceptions.EventException;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import model.Bloque;
+import model.DiaSemana;
+import model.Event;
+import model.Horario;
+import model.Materia;
+import persistence.UserLocks;
+
+// Importa eventos y horarios en bloque. Cada fila pasa por las mismas validaciones que
+// un alta individual (anotaciones de la solicitud y EventService/HorarioService) y por
+// un único lote de conflictos, que también detecta choques entre filas del archivo. Solo
+// si ninguna fila falla se guarda todo, con una escritura por repositorio al final de la
+// importación; si falla el guardado de los horarios se deshacen los eventos ya guardados.
+@Service
+public class ImportService {
+
+    private static final int MAX_FILAS = 10_000;
+    private static final String COLOR_POR_DEFECTO = "#2196F3";
+
+    public enum Formato { CSV, ICS }
+
+    private final EventService eventService;
+    private final HorarioService horarioService;
+    private final EventRepository eventRepository;
+    private final HorarioRepository horarioRepository;
+    private final MateriaRepository materiaRepository;
+    private final ConflictEngine conflictEngine;
+    private final Validator validator;
+    private final UserLocks userLocks;
+    // Zona de las horas guardadas: las horas UTC o con otro TZID de un .ics se pasan a ella
+    private final ZoneId zona;
+
+    public ImportService(EventService eventService, HorarioService horarioService, EventRepository eventRepository,
+                         HorarioRepository horarioRepository, MateriaRepository materiaRepository,
+                         ConflictEngine conflictEngine, Validator validator, UserLocks userLocks,
+                         @Value("${calendario.zona-horaria:America/Caracas}") String zona) {
+        this.eventService = eventService;
+        this.horarioService = horarioService;
+        this.eventRepository = eventRepository;
+        this.horarioRepository = horarioRepository;
+        this.materiaRepository = materiaRepository;
+        this.conflictEngine = conflictEngine;
+        this.validator = validator;
+        this.userLocks = userLocks;
+        this.zona = ZoneId.of(zona);
+    }
+
+    public ImportResult importar(Long userId, Formato formato, Reader input) throws IOException {
+        // Primero se leen y validan las filas a medida que llegan, sin el lock del usuario
+        List<Pendiente> pendientes = new ArrayList<>();
+        List<ImportResult.FilaError> errores = new ArrayList<>();
+        int[] filas = {0};
+
+        Consumer<ImportRow> procesar = row -> {
+            if (++filas[0] > MAX_FILAS) {
+                throw new IllegalArgumentException("El archivo supera el máximo de " + MAX_FILAS + " filas");
+            }
+            try {
+                if ("horario".equalsIgnoreCase(row.get("tipo"))) {
+                    pendientes.add(new Pendiente(row.getFila(),
+                            horarioService.prepareHorario(validate(toHorarioRequest(row)))));
+                } else if (row.get("tipo") == null || "evento".equalsIgnoreCase(row.get("tipo"))) {
+                    pendientes.add(new Pendiente(row.getFila(),
+                            eventService.prepareEvent(validate(toEventRequest(row)))));
+                } else {
+                    throw new IllegalArgumentException("Tipo desconocido: " + row.get("tipo"));
+                }
+            } catch (EventException | IllegalArgumentException | DateTimeException e) {
+                errores.add(new ImportResult.FilaError(row.getFila(), e.getMessage()));
+            }
+        };
+        if (formato == Formato.CSV) {
+            CsvImportReader.read(input, procesar);
+        } else {
+            IcsImportReader.read(input, zona, procesar);
+        }
+
+        // Conflictos y guardado con el lock, para que nada se cuele entre la revisión y la escritura
+        return userLocks.withLock(userId, () -> deferPersist(() -> {
+            ConflictEngine.Batch lote = conflictEngine.batch(userId);
+            List<Event> eventos = new ArrayList<>();
+            List<Horario> horarios = new ArrayList<>();
+            for (Pendiente pendiente : pendientes) {
+                try {
+                    if (pendiente.registro() instanceof Horario horario) {
+                        lote.addWeekly("El horario", horario);
+                        horarios.add(horario);
+                    } else {
+                        lote.addDated("El evento", pendiente.registro());
+                        eventos.add((Event) pendiente.registro());
+                    }
+                } catch (EventException e) {
+                    errores.add(new ImportResult.FilaError(pendiente.fila(), e.getMessage()));
+                }
+            }
+
+            if (!errores.isEmpty()) {
+                errores.sort(Comparator.comparingInt(ImportResult.FilaError::getFila));
+                return new ImportResult(0, 0, errores);
+            }
+            List<Event> eventosAntes = eventRepository.findByUserId(userId);
+            eventRepository.saveAll(userId, eventos);
+            try {
+                horarioRepository.saveAll(userId, horarios);
+            } catch (RuntimeException e) {
+                eventRepository.revertTo(userId, eventosAntes);
+                throw e;
+            }
+            return new ImportResult(eventos.size(), horarios.size(), errores);
+        }));
+    }
+
+    // Un volcado por repositorio cuando termina la importación, ya sea completa o deshecha
+    private <R> R deferPersist(Supplier<R> action) {
+        return eventRepository.deferPersist(() -> horarioRepository.deferPersist(action));
+    }
+
+    private record Pendiente(int fila, Bloque registro) {
+    }
+
+    private CreateEventRequest toEventRequest(ImportRow row) {
+        if (row.get("fechaFin") != null && !row.get("fechaFin").equals(row.get("fecha"))) {
+            throw new IllegalArgumentException("El evento debe empezar y terminar el mismo día");
+        }
+        CreateEventRequest request = new CreateEventRequest();
+        request.setName(row.get("titulo"));
+        request.setLocation(row.get("ubicacion"));
+        request.setDate(row.get("fecha"));
+        request.setStartTime(row.get("inicio"));
+        request.setEndTime(row.get("fin"));
+        request.setDescription(row.get("descripcion"));
+        request.setColorHex(row.get("color") != null ? row.get("color") : COLOR_POR_DEFECTO);
+        return request;
+    }
+
+    private CreateHorarioRequest toHorarioRequest(ImportRow row) {
+        String nombreMateria = row.get("titulo");
+        Materia materia = nombreMateria != null ? materiaRepository.findByNombre(nombreMateria) : null;
+        if (materia == null) {
+            throw new IllegalArgumentException("Materia no encontrada: " + nombreMateria);
+        }
+        if (row.get("dia") != null && DiaSemana.toDayOfWeek(row.get("dia")) == null) {
+            throw new IllegalArgumentException("Día de la semana inválido: " + row.get("dia"));
+        }
+        CreateHorarioRequest request = new CreateHorarioRequest();
+        request.setMateria(materia);
+        request.setLocation(row.get("ubicacion"));
+        request.setDiaSemana(row.get("dia"));
+        request.setStartTime(row.get("inicio"));
+        request.setEndTime(row.get("fin"));
+        request.setProfesor(row.get("profesor"));
+        request.setTipoClase(row.get("tipoClase"));
+        request.setColorHex(row.get("color") != null ? row.get("color") : COLOR_POR_DEFECTO);
+        return request;
+    }
+
+    // Las mismas restricciones que @Valid aplica a las altas individuales
+    private <R> R validate(R request) {
+        Set<ConstraintViolation<R>> violaciones = validator.validate(request);
+        if (!violaciones.isEmpty()) {
+            throw new IllegalArgumentException(violaciones.stream()
+                    .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining("; ")));
+        }
+        return request;
+    }
+}
@@ -4,10 +4,16 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.annotation.PostConstruct;
 import model.Materia;
+import persistence.ListStorage;
+import persistence.PersistenceScheduler;
+import persistence.SnapshotCodec;
+import persistence.SnapshotFileStorage;
+import persistence.StorageFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
 import java.io.IOException;
-import java.nio.file.Files;
+import java.io.UncheckedIOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
@@ -18,25 +24,39 @@ import java.util.concurrent.CopyOnWriteArrayList;
 @Repository
 public class MateriaRepository {
 
+    private static final String STORE_NAME = "materias";
+
     private final List<Materia> materias = new CopyOnWriteArrayList<>();
     private final ObjectMapper objectMapper = new ObjectMapper();
     private final String storagePath = "data/materias.json";
 
+    @Autowired
+    private PersistenceScheduler persistenceScheduler;
+
+    @Autowired
+    private SnapshotCodec snapshotCodec;
+
+    @Autowired
+    private StorageFactory storageFactory;
+
+    private ListStorage<Materia> storage;
+
     @PostConstruct
     void init() {
+        persistenceScheduler.register(STORE_NAME, this::writeSnapshot);
         Path path = Paths.get(storagePath);
+        SnapshotFileStorage<Materia> files = new SnapshotFileStorage<>(snapshotCodec, path,
+                objectMapper.writerWithDefaultPrettyPrinter(),
+                objectMapper.getTypeFactory().constructCollectionType(List.class, Materia.class),
+                p -> objectMapper.readValue(p.toFile(), new TypeReference<List<Materia>>() {}));
+        storage = storageFactory.list(STORE_NAME, files, objectMapper, Materia.class, Materia::getId);
         try {
-            if (Files.notExists(path)) {
-                if (path.getParent() != null) {
-                    Files.createDirectories(path.getParent());
-                }
+            if (!storage.exists()) {
                 // Inicializar con materias por defecto
                 initializeDefaultMaterias();
                 persist();
             } else {
-                List<Materia> loaded = objectMapper.readValue(
-                        path.toFile(), new TypeReference<List<Materia>>() {}
-                );
+                List<Materia> loaded = storage.read();
                 if (loaded != null && !loaded.isEmpty()) {
                     materias.addAll(loaded);
                 } else {
@@ -66,16 +86,26 @@ public class MateriaRepository {
         return Collections.unmodifiableList(new ArrayList<>(materias));
     }
 
-    private synchronized void persist() {
-        Path path = Paths.get(storagePath);
-        try {
-            if (path.getParent() != null) {
-                Files.createDirectories(path.getParent());
+    // Búsqueda por nombre usada al leer registros que guardan la materia como texto
+    public Materia findByNombre(String nombre) {
+        for (Materia materia : materias) {
+            if (nombre.equals(materia.getNombre())) {
+                return materia;
             }
-            objectMapper.writerWithDefaultPrettyPrinter().writeValue(path.toFile(), materias);
+        }
+        return null;
+    }
+
+    private void persist() {
+        persistenceScheduler.markDirty(STORE_NAME);
+    }
+
+    private void writeSnapshot() {
+        try {
+            storage.write(materias);
         } catch (IOException e) {
-            // Ignorar errores de persistencia por ahora
+            // El planificador reintenta el volcado y avisa a quien lo esperaba
+            throw new UncheckedIOException(e);
         }
     }
 }
-
@@ -0,0 +1,31 @@
+package control.statscontrollers;
+
+import java.util.List;
+
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import persistence.UserScopedRepository;
+import persistence.WorkingSetStats;
+
+@RestController
+@RequestMapping("/api/stats")
+@CrossOrigin(origins = "http://localhost:4200")
+public class WorkingSetController {
+
+    private final List<UserScopedRepository<?>> repositories;
+
+    public WorkingSetController(List<UserScopedRepository<?>> repositories) {
+        this.repositories = repositories;
+    }
+
+    // Aciertos, fallos y desalojos del working set de cada repositorio por usuario
+    @GetMapping("/working-set")
+    public List<WorkingSetStats> getWorkingSetStats() {
+        return repositories.stream()
+                .map(UserScopedRepository::workingSetStats)
+                .toList();
+    }
+}
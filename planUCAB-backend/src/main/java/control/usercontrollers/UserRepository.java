@@ -5,26 +5,49 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import jakarta.annotation.PostConstruct;
 import model.User;
+import persistence.IdAllocator;
+import persistence.ListStorage;
+import persistence.PersistenceScheduler;
+import persistence.SnapshotCodec;
+import persistence.SnapshotFileStorage;
+import persistence.StorageFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 
 import java.io.IOException;
-import java.nio.file.Files;
+import java.io.UncheckedIOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicLong;
 
 @Repository
 public class UserRepository {
 
+    private static final String STORE_NAME = "usuarios";
+
     private final Map<Long, User> users = new ConcurrentHashMap<>();
-    private final AtomicLong idSequence = new AtomicLong(1);
+    // Correo normalizado -> id; también garantiza que cada correo se registre una sola vez
+    private final Map<String, Long> emailToUserId = new ConcurrentHashMap<>();
+    private IdAllocator idAllocator;
     private final ObjectMapper objectMapper;
 
+    @Autowired
+    private PersistenceScheduler persistenceScheduler;
+
+    @Autowired
+    private SnapshotCodec snapshotCodec;
+
+    @Autowired
+    private StorageFactory storageFactory;
+
+    private ListStorage<User> storage;
+
     public UserRepository() {
         this.objectMapper = new ObjectMapper();
         this.objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
@@ -33,39 +56,71 @@ public class UserRepository {
     @Value("${user.storage.path:data/usuarios.json}")
     private String storagePath;
 
+    @Value("${persistence.sequence.path:data/sequences}")
+    private String sequencePath;
+
+    @Value("${persistence.sequence.block-size:1000}")
+    private long idBlockSize;
+
     @PostConstruct
     void init() {
         Path path = Paths.get(storagePath);
+        SnapshotFileStorage<User> files = new SnapshotFileStorage<>(snapshotCodec, path,
+                objectMapper.writerWithDefaultPrettyPrinter(),
+                objectMapper.getTypeFactory().constructCollectionType(List.class, User.class),
+                p -> objectMapper.readValue(p.toFile(), new TypeReference<List<User>>() {}));
+        storage = storageFactory.list(STORE_NAME, files, objectMapper, User.class, User::getId);
         try {
-            if (Files.notExists(path)) {
-                if (path.getParent() != null) {
-                    Files.createDirectories(path.getParent());
-                }
+            if (!storage.exists()) {
                 // Inicializar lista vacía []
-                objectMapper.writeValue(path.toFile(), new ArrayList<User>());
+                storage.write(new ArrayList<User>());
             }
-            List<User> loaded = objectMapper.readValue(
-                    path.toFile(), new TypeReference<List<User>>() {}
-            );
+            List<User> loaded = storage.read();
             if (loaded != null) {
                 for (User user : loaded) {
                     users.put(user.getId(), user);
-                    if (user.getId() != null && user.getId() >= idSequence.get()) {
-                        idSequence.set(user.getId() + 1);
-                    }
+                    indexEmail(user);
                 }
             }
         } catch (IOException e) {
             // Si falla la carga, iniciar con almacenamiento en memoria vacío
         }
+        idAllocator = new IdAllocator(Paths.get(sequencePath, STORE_NAME + ".seq"), idBlockSize);
+        try {
+            idAllocator.ensureAbove(users.keySet().stream().mapToLong(Long::longValue).max().orElse(0L));
+        } catch (IOException e) {
+            throw new IllegalStateException("No se pudo inicializar la secuencia de ids de usuarios", e);
+        }
+        persistenceScheduler.registerKeyed(STORE_NAME, this::writeUsers);
     }
 
     public User save(User user) {
         if (user.getId() == null) {
-            user.setId(idSequence.getAndIncrement());
+            user.setId(idAllocator.next());
         }
         users.put(user.getId(), user);
-        persist();
+        indexEmail(user);
+        persist(user.getId());
+        return user;
+    }
+
+    // Guarda un usuario nuevo solo si su correo no está registrado. El correo se reserva
+    // con putIfAbsent antes de guardar, así que de dos registros simultáneos con el mismo
+    // correo solo uno lo consigue. Devuelve null si el correo ya estaba en uso. El correo
+    // se guarda normalizado, igual que la clave del índice.
+    public User saveIfEmailAvailable(User user) {
+        String email = normalizeEmail(user.getEmail());
+        if (email == null) {
+            throw new IllegalArgumentException("El correo electrónico es obligatorio");
+        }
+        Long id = user.getId() != null ? user.getId() : idAllocator.next();
+        if (emailToUserId.putIfAbsent(email, id) != null) {
+            return null;
+        }
+        user.setId(id);
+        user.setEmail(email);
+        users.put(id, user);
+        persist(id);
         return user;
     }
 
@@ -74,32 +129,53 @@ public class UserRepository {
     }
 
     public User findByEmail(String email) {
-        return users.values().stream()
-                .filter(u -> u.getEmail().equalsIgnoreCase(email))
-                .findFirst()
-                .orElse(null);
+        String key = normalizeEmail(email);
+        Long id = key != null ? emailToUserId.get(key) : null;
+        return id != null ? users.get(id) : null;
     }
 
     public boolean existsByEmail(String email) {
-        return users.values().stream()
-                .anyMatch(u -> u.getEmail().equalsIgnoreCase(email));
+        String key = normalizeEmail(email);
+        return key != null && emailToUserId.containsKey(key);
     }
 
     public List<User> findAll() {
         return new ArrayList<>(users.values());
     }
 
-    private synchronized void persist() {
-        Path path = Paths.get(storagePath);
+    private void indexEmail(User user) {
+        String email = normalizeEmail(user.getEmail());
+        if (email != null && user.getId() != null) {
+            // Si el archivo trae correos repetidos se conserva el primero
+            emailToUserId.putIfAbsent(email, user.getId());
+        }
+    }
+
+    // Forma canónica de un correo: clave del índice y valor que se guarda en el usuario
+    public static String normalizeEmail(String email) {
+        return email != null ? email.trim().toLowerCase(Locale.ROOT) : null;
+    }
+
+    private void persist(Long userId) {
+        persistenceScheduler.markDirty(STORE_NAME, userId);
+    }
+
+    // Recibe los ids modificados desde el último volcado: el almacenamiento en H2 solo
+    // actualiza esas filas; el de archivo reescribe la lista completa
+    private void writeUsers(Set<Long> userIds) {
         try {
-            if (path.getParent() != null) {
-                Files.createDirectories(path.getParent());
-            }
             List<User> userList = new ArrayList<>(users.values());
-            objectMapper.writerWithDefaultPrettyPrinter().writeValue(path.toFile(), userList);
+            List<User> changed = new ArrayList<>(userIds.size());
+            for (Long id : userIds) {
+                User user = users.get(id);
+                if (user != null) {
+                    changed.add(user);
+                }
+            }
+            storage.upsert(userList, changed);
         } catch (IOException e) {
-            // Ignorar errores de persistencia por ahora; se podría agregar logging
+            // El planificador reintenta el volcado y avisa a quien lo esperaba
+            throw new UncheckedIOException(e);
         }
     }
 }
-
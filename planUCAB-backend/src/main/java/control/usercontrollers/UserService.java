@@ -14,22 +14,21 @@ public class UserService {
     }
 
     public UserResponse register(CreateUserRequest request) {
-        // Validar que el email no esté registrado
-        if (userRepository.existsByEmail(request.getEmail())) {
-            throw new EventException("El correo electrónico ya está registrado");
-        }
-
         User user = new User();
         user.setUsername(request.getUsername());
-        user.setEmail(request.getEmail().toLowerCase());
+        user.setEmail(UserRepository.normalizeEmail(request.getEmail()));
         user.setPassword(request.getPassword()); // En producción, aquí se debería encriptar la contraseña
 
-        User savedUser = userRepository.save(user);
+        // El repositorio reserva el correo de forma atómica: si ya está registrado no guarda nada
+        User savedUser = userRepository.saveIfEmailAvailable(user);
+        if (savedUser == null) {
+            throw new EventException("El correo electrónico ya está registrado");
+        }
         return new UserResponse(savedUser.getId(), savedUser.getUsername(), savedUser.getEmail());
     }
 
     public UserResponse login(LoginRequest request) {
-        User user = userRepository.findByEmail(request.getEmail().toLowerCase());
+        User user = userRepository.findByEmail(request.getEmail());
         
         if (user == null) {
             throw new EventException("Credenciales inválidas");
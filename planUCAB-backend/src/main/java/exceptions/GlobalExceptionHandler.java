@@ -25,6 +25,12 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
     }
 
+    @ExceptionHandler(VersionConflictException.class)
+    public ResponseEntity<ErrorResponse> handleVersionConflictException(VersionConflictException ex) {
+        ErrorResponse error = new ErrorResponse(ex.getMessage());
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(error);
+    }
+
     @ExceptionHandler(EventException.class)
     public ResponseEntity<ErrorResponse> handleEventException(EventException ex) {
         ErrorResponse error = new ErrorResponse(ex.getMessage());
@@ -0,0 +1,9 @@
+package exceptions;
+
+// El registro cambió desde que el cliente lo leyó (If-Match no coincide con su versión)
+public class VersionConflictException extends EventException {
+
+    public VersionConflictException(String message) {
+        super(message);
+    }
+}
@@ -6,6 +6,9 @@ public abstract class Bloque {
     private Long userId;
     private String colorHex;
     private String location;
+    // Se incrementa en cada cambio; los controladores lo exponen como ETag. null en
+    // registros guardados antes de que existiera (equivale a 0).
+    private Long version;
 
     public Long getId() {
         return id;
@@ -38,5 +41,13 @@ public abstract class Bloque {
     public void setLocation(String location) {
         this.location = location;
     }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 }
 
@@ -0,0 +1,38 @@
+package model;
+
+import java.time.DayOfWeek;
+import java.util.HashMap;
+import java.util.Map;
+
+// Mapeo de nombres de días en español a DayOfWeek de Java
+public final class DiaSemana {
+
+    private static final Map<String, DayOfWeek> DIA_SEMANA_MAP = new HashMap<>();
+    static {
+        DIA_SEMANA_MAP.put("Lunes", DayOfWeek.MONDAY);
+        DIA_SEMANA_MAP.put("Martes", DayOfWeek.TUESDAY);
+        DIA_SEMANA_MAP.put("Miércoles", DayOfWeek.WEDNESDAY);
+        DIA_SEMANA_MAP.put("Jueves", DayOfWeek.THURSDAY);
+        DIA_SEMANA_MAP.put("Viernes", DayOfWeek.FRIDAY);
+        DIA_SEMANA_MAP.put("Sábado", DayOfWeek.SATURDAY);
+        DIA_SEMANA_MAP.put("Domingo", DayOfWeek.SUNDAY);
+    }
+
+    private DiaSemana() {
+    }
+
+    // null si el nombre no corresponde a ningún día
+    public static DayOfWeek toDayOfWeek(String diaSemana) {
+        return diaSemana != null ? DIA_SEMANA_MAP.get(diaSemana) : null;
+    }
+
+    // Nombre en español del día, o null
+    public static String nombre(DayOfWeek dia) {
+        for (Map.Entry<String, DayOfWeek> entry : DIA_SEMANA_MAP.entrySet()) {
+            if (entry.getValue() == dia) {
+                return entry.getKey();
+            }
+        }
+        return null;
+    }
+}
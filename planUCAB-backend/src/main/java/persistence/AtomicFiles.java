@@ -0,0 +1,23 @@
+package persistence;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+public final class AtomicFiles {
+
+    private AtomicFiles() {}
+
+    // Escribe a un temporal y lo mueve encima del destino para no dejar nunca un archivo a medias
+    public static void writeJson(ObjectWriter writer, Path path, Object value) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        writer.writeValue(tmp.toFile(), value);
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,143 @@
+package persistence;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+
+// Lista global en una tabla H2, una fila por elemento con su id como clave primaria; se
+// lee en orden de id. upsert actualiza solo las filas que cambiaron, así que un alta no
+// cuesta más con muchos elementos guardados. La primera vez importa el archivo JSON.
+public class H2ListStorage<T> extends H2Storage implements ListStorage<T> {
+
+    private static final Logger logger = LoggerFactory.getLogger(H2ListStorage.class);
+
+    private final ListStorage<T> files;
+    private final ObjectMapper mapper;
+    private final Class<T> type;
+    private final Function<T, Long> idOf;
+    private boolean opened;
+
+    public H2ListStorage(DataSource dataSource, String table, ListStorage<T> files, ObjectMapper mapper,
+                         Class<T> type, Function<T, Long> idOf) {
+        super(dataSource, table);
+        this.files = files;
+        this.mapper = mapper;
+        this.type = type;
+        this.idOf = idOf;
+    }
+
+    @Override
+    public synchronized boolean exists() throws IOException {
+        open();
+        return withConnection(this::isSeeded);
+    }
+
+    @Override
+    public synchronized List<T> read() throws IOException {
+        open();
+        return withConnection(connection -> isSeeded(connection) ? readAll(connection, "id") : null);
+    }
+
+    @Override
+    public synchronized void write(List<T> records) throws IOException {
+        open();
+        inTransaction(connection -> {
+            replaceAll(connection, records);
+            return null;
+        });
+    }
+
+    @Override
+    public synchronized void upsert(List<T> all, Collection<T> changed) throws IOException {
+        open();
+        inTransaction(connection -> {
+            merge(connection, changed);
+            markSeeded(connection);
+            return null;
+        });
+    }
+
+    private void open() throws IOException {
+        if (opened) {
+            return;
+        }
+        inTransaction(connection -> {
+            migrateSchema(connection);
+            execute(connection, "CREATE TABLE IF NOT EXISTS " + table + " (id BIGINT PRIMARY KEY, data CLOB NOT NULL)");
+            if (!isSeeded(connection) && files.exists()) {
+                // Primer arranque con H2: importar el archivo JSON
+                List<T> records = files.read();
+                replaceAll(connection, records != null ? records : List.of());
+                logger.info("Importados {} registros a la tabla H2 {}", records != null ? records.size() : 0, table);
+            }
+            return null;
+        });
+        opened = true;
+    }
+
+    // Las versiones anteriores usaban la posición en la lista como clave (pos, email, data):
+    // se pasa el contenido a la tabla con clave id
+    private void migrateSchema(Connection connection) throws SQLException, IOException {
+        if (!hasColumn(connection, "POS")) {
+            return;
+        }
+        List<T> records = readAll(connection, "pos");
+        execute(connection, "DROP TABLE " + table);
+        execute(connection, "CREATE TABLE " + table + " (id BIGINT PRIMARY KEY, data CLOB NOT NULL)");
+        merge(connection, records);
+        logger.info("Tabla H2 {} migrada a clave por id ({} registros)", table, records.size());
+    }
+
+    private boolean hasColumn(Connection connection, String column) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT 1 FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_NAME = ? AND COLUMN_NAME = ?")) {
+            statement.setString(1, table.toUpperCase(Locale.ROOT));
+            statement.setString(2, column);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    private List<T> readAll(Connection connection, String orderBy) throws SQLException, IOException {
+        List<T> records = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT data FROM " + table + " ORDER BY " + orderBy);
+             ResultSet rs = statement.executeQuery()) {
+            while (rs.next()) {
+                records.add(mapper.readValue(rs.getString(1), type));
+            }
+        }
+        return records;
+    }
+
+    private void replaceAll(Connection connection, List<T> records) throws SQLException, IOException {
+        execute(connection, "DELETE FROM " + table);
+        merge(connection, records);
+        markSeeded(connection);
+    }
+
+    private void merge(Connection connection, Collection<T> records) throws SQLException, IOException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "MERGE INTO " + table + " (id, data) KEY (id) VALUES (?, ?)")) {
+            for (T record : records) {
+                statement.setLong(1, idOf.apply(record));
+                statement.setString(2, mapper.writeValueAsString(record));
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+}
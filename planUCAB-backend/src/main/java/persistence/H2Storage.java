@@ -0,0 +1,86 @@
+package persistence;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+// Base de los almacenamientos sobre H2: conexión, transacciones y la tabla storage_meta,
+// que registra qué tablas ya importaron los archivos JSON (para no reimportarlos si la
+// tabla queda vacía) y qué migraciones de esquema ya se aplicaron.
+abstract class H2Storage {
+
+    @FunctionalInterface
+    interface SqlWork<R> {
+        R run(Connection connection) throws SQLException, IOException;
+    }
+
+    protected final DataSource dataSource;
+    protected final String table;
+
+    protected H2Storage(DataSource dataSource, String table) {
+        this.dataSource = dataSource;
+        this.table = table;
+    }
+
+    protected <R> R withConnection(SqlWork<R> work) throws IOException {
+        try (Connection connection = dataSource.getConnection()) {
+            return work.run(connection);
+        } catch (SQLException e) {
+            throw new IOException("Error de H2 en la tabla " + table + ": " + e.getMessage(), e);
+        }
+    }
+
+    protected <R> R inTransaction(SqlWork<R> work) throws IOException {
+        return withConnection(connection -> {
+            connection.setAutoCommit(false);
+            try {
+                R result = work.run(connection);
+                connection.commit();
+                return result;
+            } catch (SQLException | IOException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            }
+        });
+    }
+
+    protected void execute(Connection connection, String... statements) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : statements) {
+                statement.execute(sql);
+            }
+        }
+    }
+
+    protected boolean isSeeded(Connection connection) throws SQLException {
+        return isMarked(connection, table);
+    }
+
+    protected void markSeeded(Connection connection) throws SQLException {
+        mark(connection, table);
+    }
+
+    // storage_meta registra también migraciones de esquema ya aplicadas ("<tabla>_<paso>")
+    protected boolean isMarked(Connection connection, String key) throws SQLException {
+        execute(connection, "CREATE TABLE IF NOT EXISTS storage_meta (table_name VARCHAR(64) PRIMARY KEY)");
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT 1 FROM storage_meta WHERE table_name = ?")) {
+            statement.setString(1, key);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    protected void mark(Connection connection, String key) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "MERGE INTO storage_meta (table_name) KEY (table_name) VALUES (?)")) {
+            statement.setString(1, key);
+            statement.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package persistence;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import model.Bloque;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Registros por usuario en una tabla H2: una fila por registro con el registro completo en
+// JSON y, en columnas, los valores que se consultan: inicio y fin (índice por
+// (user_id, start_date_time)) y día de la semana (índice por (user_id, dia_semana)). Con
+// ellos readOverlapping y readByDiaSemana se resuelven sin leer todo el usuario; el
+// repositorio los usa para usuarios que no están en memoria (working set). La primera vez
+// importa los shards JSON existentes.
+public class H2UserScopedStorage<T extends Bloque> extends H2Storage implements UserScopedStorage<T> {
+
+    private static final Logger logger = LoggerFactory.getLogger(H2UserScopedStorage.class);
+
+    private final UserScopedStorage<T> files;
+    private final ObjectMapper mapper;
+    private final Class<T> type;
+    private final IndexedColumns<T> columns;
+
+    public H2UserScopedStorage(DataSource dataSource, String table, UserScopedStorage<T> files, ObjectMapper mapper,
+                               Class<T> type, IndexedColumns<T> columns) {
+        super(dataSource, table);
+        this.files = files;
+        this.mapper = mapper;
+        this.type = type;
+        this.columns = columns;
+    }
+
+    @Override
+    public void migrateIfNeeded(Path legacyFile, LegacyReader<T> legacyReader) throws IOException {
+        inTransaction(connection -> {
+            // Los índices compuestos empiezan por user_id, así que también sirven a read y write
+            execute(connection,
+                    "CREATE TABLE IF NOT EXISTS " + table + " (id BIGINT PRIMARY KEY, user_id BIGINT NOT NULL, "
+                            + "start_date_time TIMESTAMP, end_date_time TIMESTAMP, dia_semana VARCHAR(16), "
+                            + "data CLOB NOT NULL)",
+                    "ALTER TABLE " + table + " ADD COLUMN IF NOT EXISTS start_date_time TIMESTAMP",
+                    "ALTER TABLE " + table + " ADD COLUMN IF NOT EXISTS end_date_time TIMESTAMP",
+                    "ALTER TABLE " + table + " ADD COLUMN IF NOT EXISTS dia_semana VARCHAR(16)",
+                    "CREATE INDEX IF NOT EXISTS " + table + "_user_start ON " + table + " (user_id, start_date_time)",
+                    "CREATE INDEX IF NOT EXISTS " + table + "_user_dia ON " + table + " (user_id, dia_semana)",
+                    "DROP INDEX IF EXISTS " + table + "_user");
+            if (isSeeded(connection)) {
+                // Una versión anterior guardaba las filas sin estas columnas: se completan una vez
+                if (!isMarked(connection, table + "_columnas")) {
+                    fillColumns(connection);
+                    mark(connection, table + "_columnas");
+                }
+                return null;
+            }
+            // Primer arranque con H2: importar lo que haya en los archivos JSON
+            files.migrateIfNeeded(legacyFile, legacyReader);
+            List<Long> userIds = files.userIds();
+            for (Long userId : userIds) {
+                List<T> records = files.read(userId);
+                if (records != null) {
+                    insert(connection, userId, records);
+                }
+            }
+            markSeeded(connection);
+            mark(connection, table + "_columnas");
+            logger.info("Importados {} usuarios de los shards JSON a la tabla H2 {}", userIds.size(), table);
+            return null;
+        });
+    }
+
+    @Override
+    public Map<Long, List<T>> loadAll() throws IOException {
+        return withConnection(connection -> {
+            Map<Long, List<T>> loaded = new HashMap<>();
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT user_id, data FROM " + table + " ORDER BY user_id, id");
+                 ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    loaded.computeIfAbsent(rs.getLong(1), k -> new ArrayList<>())
+                            .add(mapper.readValue(rs.getString(2), type));
+                }
+            }
+            return loaded;
+        });
+    }
+
+    @Override
+    public List<Long> userIds() throws IOException {
+        return withConnection(connection -> {
+            List<Long> userIds = new ArrayList<>();
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT DISTINCT user_id FROM " + table);
+                 ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    userIds.add(rs.getLong(1));
+                }
+            }
+            return userIds;
+        });
+    }
+
+    @Override
+    public List<T> read(Long userId) throws IOException {
+        return withConnection(connection -> {
+            List<T> records = new ArrayList<>();
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT data FROM " + table + " WHERE user_id = ? ORDER BY id")) {
+                statement.setLong(1, userId);
+                try (ResultSet rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        records.add(mapper.readValue(rs.getString(1), type));
+                    }
+                }
+            }
+            return records.isEmpty() ? null : records;
+        });
+    }
+
+    @Override
+    public void write(Long userId, List<T> records) throws IOException {
+        inTransaction(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "DELETE FROM " + table + " WHERE user_id = ?")) {
+                statement.setLong(1, userId);
+                statement.executeUpdate();
+            }
+            if (records != null && !records.isEmpty()) {
+                insert(connection, userId, records);
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public List<T> readOverlapping(Long userId, LocalDateTime from, LocalDateTime to,
+                                   LocalDateTime afterStart, Long afterId, int limit) throws IOException {
+        // Misma regla de solapamiento que los índices en memoria; el rango sobre
+        // start_date_time recorre el índice (user_id, start_date_time) ya en orden
+        String sql = "SELECT data FROM " + table + " WHERE user_id = ? AND start_date_time < ? AND end_date_time > ?"
+                + (afterStart != null ? " AND (start_date_time > ? OR (start_date_time = ? AND id > ?))" : "")
+                + " ORDER BY start_date_time, id LIMIT ?";
+        return withConnection(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                int i = 1;
+                statement.setLong(i++, userId);
+                statement.setObject(i++, to);
+                statement.setObject(i++, from);
+                if (afterStart != null) {
+                    statement.setObject(i++, afterStart);
+                    statement.setObject(i++, afterStart);
+                    statement.setLong(i++, afterId);
+                }
+                statement.setInt(i, limit);
+                return readData(statement);
+            }
+        });
+    }
+
+    @Override
+    public List<T> readByDiaSemana(Long userId, Collection<String> dias) throws IOException {
+        if (dias.isEmpty()) {
+            return List.of();
+        }
+        String sql = "SELECT data FROM " + table + " WHERE user_id = ? AND dia_semana IN ("
+                + String.join(", ", Collections.nCopies(dias.size(), "?")) + ") ORDER BY id";
+        return withConnection(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                int i = 1;
+                statement.setLong(i++, userId);
+                for (String dia : dias) {
+                    statement.setString(i++, dia);
+                }
+                return readData(statement);
+            }
+        });
+    }
+
+    private List<T> readData(PreparedStatement statement) throws SQLException, IOException {
+        List<T> records = new ArrayList<>();
+        try (ResultSet rs = statement.executeQuery()) {
+            while (rs.next()) {
+                records.add(mapper.readValue(rs.getString(1), type));
+            }
+        }
+        return records;
+    }
+
+    private void insert(Connection connection, Long userId, List<T> records) throws SQLException, IOException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "INSERT INTO " + table + " (id, user_id, start_date_time, end_date_time, dia_semana, data) "
+                        + "VALUES (?, ?, ?, ?, ?, ?)")) {
+            for (T record : records) {
+                statement.setLong(1, record.getId());
+                statement.setLong(2, userId);
+                setColumns(statement, 3, record);
+                statement.setString(6, mapper.writeValueAsString(record));
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+
+    // Calcula las columnas indexadas de las filas existentes a partir de su JSON
+    private void fillColumns(Connection connection) throws SQLException, IOException {
+        int filas = 0;
+        try (PreparedStatement select = connection.prepareStatement("SELECT id, data FROM " + table);
+             PreparedStatement update = connection.prepareStatement("UPDATE " + table
+                     + " SET start_date_time = ?, end_date_time = ?, dia_semana = ? WHERE id = ?");
+             ResultSet rs = select.executeQuery()) {
+            while (rs.next()) {
+                setColumns(update, 1, mapper.readValue(rs.getString(2), type));
+                update.setLong(4, rs.getLong(1));
+                update.addBatch();
+                filas++;
+            }
+            update.executeBatch();
+        }
+        logger.info("Completadas las columnas indexadas de {} filas de la tabla H2 {}", filas, table);
+    }
+
+    // Inicio, fin y día de la semana a partir de la posición first
+    private void setColumns(PreparedStatement statement, int first, T record) throws SQLException {
+        statement.setObject(first, columns.startOf().apply(record), Types.TIMESTAMP);
+        statement.setObject(first + 1, columns.endOf().apply(record), Types.TIMESTAMP);
+        statement.setString(first + 2, columns.diaSemanaOf().apply(record));
+    }
+}
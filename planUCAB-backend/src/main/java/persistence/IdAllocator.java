@@ -0,0 +1,130 @@
+package persistence;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Reparte ids de un tipo de registro a partir de un archivo de secuencia compartido. El
+// archivo guarda el techo: el primer id que nadie reservó todavía. Cada instancia toma
+// bloques enteros (techo, techo + tamaño) con el archivo bloqueado (FileLock, válido entre
+// procesos) y los entrega desde memoria; solo vuelve al disco cuando agota el bloque. Los
+// ids de un bloque sin usar al apagar se pierden: quedan huecos, nunca duplicados.
+public class IdAllocator {
+
+    // FileLock excluye a otros procesos pero no a otro canal de la misma JVM (falla con
+    // OverlappingFileLockException): las instancias de un proceso sobre el mismo archivo
+    // se turnan con este monitor antes de pedir el lock del archivo
+    private static final ConcurrentMap<Path, Object> IN_PROCESS_LOCKS = new ConcurrentHashMap<>();
+
+    private final Path file;
+    private final long blockSize;
+
+    // Siguiente id del bloque actual y fin (exclusivo) del bloque. Sin bloque, ambos en 0.
+    private final AtomicLong cursor = new AtomicLong();
+    private volatile long limit;
+
+    public IdAllocator(Path file, long blockSize) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("El tamaño de bloque debe ser mayor que cero");
+        }
+        this.file = file;
+        this.blockSize = blockSize;
+    }
+
+    // true si el archivo ya tiene un techo; si no, hace falta conocer el id máximo guardado
+    public boolean initialized() throws IOException {
+        return Files.exists(file) && withLockedFile(IdAllocator::readCeiling) > 0;
+    }
+
+    // Sube el techo por encima de maxId si hiciera falta (primer arranque, archivo de
+    // secuencia perdido o datos restaurados de una copia)
+    public void ensureAbove(long maxId) throws IOException {
+        withLockedFile(channel -> {
+            if (readCeiling(channel) <= maxId) {
+                writeCeiling(channel, maxId + 1);
+            }
+            return null;
+        });
+    }
+
+    public long next() {
+        while (true) {
+            long id = cursor.get();
+            if (id < limit) {
+                if (cursor.compareAndSet(id, id + 1)) {
+                    return id;
+                }
+                continue;
+            }
+            synchronized (this) {
+                if (cursor.get() >= limit) {
+                    lease();
+                }
+            }
+        }
+    }
+
+    private void lease() {
+        long start;
+        try {
+            start = withLockedFile(channel -> {
+                long ceiling = Math.max(readCeiling(channel), 1);
+                writeCeiling(channel, ceiling + blockSize);
+                return ceiling;
+            });
+        } catch (IOException e) {
+            throw new IllegalStateException("No se pudo reservar un bloque de ids en " + file, e);
+        }
+        // Primero el cursor y después el límite: quien vea el límite nuevo ya ve el cursor nuevo
+        cursor.set(start);
+        limit = start + blockSize;
+    }
+
+    private interface FileAction<R> {
+        R apply(FileChannel channel) throws IOException;
+    }
+
+    private <R> R withLockedFile(FileAction<R> action) throws IOException {
+        Path absolute = file.toAbsolutePath().normalize();
+        Files.createDirectories(absolute.getParent());
+        synchronized (IN_PROCESS_LOCKS.computeIfAbsent(absolute, k -> new Object())) {
+            try (FileChannel channel = FileChannel.open(absolute, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+                 FileLock lock = channel.lock()) {
+                return action.apply(channel);
+            }
+        }
+    }
+
+    private static long readCeiling(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(channel.size(), 64));
+        channel.read(buffer, 0);
+        String text = new String(buffer.array(), 0, buffer.position(), StandardCharsets.US_ASCII).trim();
+        if (text.isEmpty()) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(text);
+        } catch (NumberFormatException e) {
+            throw new IOException("Archivo de secuencia corrupto: " + text, e);
+        }
+    }
+
+    // Sobrescribe en el lugar y después recorta lo que quede del contenido anterior (solo
+    // si era más largo, p. ej. un archivo editado a mano). Se trunca después de escribir y
+    // no antes, para que una caída a mitad no deje el archivo vacío.
+    private static void writeCeiling(FileChannel channel, long ceiling) throws IOException {
+        byte[] bytes = (ceiling + "\n").getBytes(StandardCharsets.US_ASCII);
+        channel.write(ByteBuffer.wrap(bytes), 0);
+        channel.truncate(bytes.length);
+        channel.force(true);
+    }
+}
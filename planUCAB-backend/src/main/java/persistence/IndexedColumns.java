@@ -0,0 +1,11 @@
+package persistence;
+
+import java.time.LocalDateTime;
+import java.util.function.Function;
+
+// Valores de cada registro que el backend H2 guarda en columnas indexadas, para resolver
+// consultas por rango o por día sin leer todos los registros del usuario. Cualquiera de
+// las funciones puede devolver null (p. ej. un horario no tiene fecha de inicio).
+public record IndexedColumns<T>(Function<T, LocalDateTime> startOf, Function<T, LocalDateTime> endOf,
+                                Function<T, String> diaSemanaOf) {
+}
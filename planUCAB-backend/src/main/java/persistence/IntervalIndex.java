@@ -0,0 +1,112 @@
+package persistence;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+// Índice de intervalos de un usuario ordenado por inicio. Como se conoce la duración
+// máxima registrada, los candidatos a solapar [start, end) están en el rango de claves
+// [start - duraciónMáxima, end): la consulta cuesta O(log n + m), con m los registros que
+// empiezan en esa ventana. m es cercano a los k que se solapan cuando las duraciones son
+// parecidas; un solo intervalo muy largo ensancha la ventana de todas las consultas
+// mientras siga registrado.
+public class IntervalIndex<T> implements RecordIndex<T> {
+
+    private final NavigableMap<LocalDateTime, List<T>> byStart = new TreeMap<>();
+    private final Function<T, LocalDateTime> startOf;
+    private final Function<T, LocalDateTime> endOf;
+    // Multiconjunto de duraciones (duración -> cantidad): al borrar el intervalo más largo
+    // la ventana vuelve a la duración máxima de los que quedan
+    private final NavigableMap<Duration, Integer> durations = new TreeMap<>();
+
+    public IntervalIndex(Function<T, LocalDateTime> startOf, Function<T, LocalDateTime> endOf, Collection<T> records) {
+        this.startOf = startOf;
+        this.endOf = endOf;
+        for (T record : records) {
+            add(record);
+        }
+    }
+
+    @Override
+    public synchronized void add(T record) {
+        LocalDateTime start = startOf.apply(record);
+        LocalDateTime end = endOf.apply(record);
+        if (start == null || end == null) {
+            return;
+        }
+        byStart.computeIfAbsent(start, k -> new ArrayList<>(1)).add(record);
+        durations.merge(Duration.between(start, end), 1, Integer::sum);
+    }
+
+    @Override
+    public synchronized void remove(T record) {
+        LocalDateTime start = startOf.apply(record);
+        if (start == null) {
+            return;
+        }
+        List<T> sameStart = byStart.get(start);
+        if (sameStart != null && sameStart.remove(record)) {
+            if (sameStart.isEmpty()) {
+                byStart.remove(start);
+            }
+            durations.computeIfPresent(Duration.between(start, endOf.apply(record)),
+                    (duration, count) -> count > 1 ? count - 1 : null);
+        }
+    }
+
+    Duration maxDuration() {
+        return durations.isEmpty() ? Duration.ZERO : durations.lastKey();
+    }
+
+    // Registros que se solapan con [start, end): inicio < end y fin > start
+    public synchronized List<T> overlapping(LocalDateTime start, LocalDateTime end) {
+        List<T> result = new ArrayList<>();
+        for (List<T> sameStart : byStart.subMap(start.minus(maxDuration()), true, end, false).values()) {
+            for (T record : sameStart) {
+                if (endOf.apply(record).isAfter(start)) {
+                    result.add(record);
+                }
+            }
+        }
+        return result;
+    }
+
+    // Como overlapping, pero en orden de inicio (a igual inicio, según tieOrder) y por
+    // páginas: solo recorre claves >= since (null = sin cota), omite los registros que
+    // accept rechace y se detiene al reunir limit. Cuesta O(log n) más los registros de la
+    // ventana recorridos hasta completar la página.
+    public synchronized List<T> overlappingPage(LocalDateTime start, LocalDateTime end, LocalDateTime since,
+                                                Comparator<T> tieOrder, Predicate<T> accept, int limit) {
+        List<T> result = new ArrayList<>();
+        LocalDateTime lower = start.minus(maxDuration());
+        if (since != null && since.isAfter(lower)) {
+            lower = since;
+        }
+        if (lower.isAfter(end)) {
+            return result;
+        }
+        for (List<T> sameStart : byStart.subMap(lower, true, end, false).values()) {
+            List<T> ordered = sameStart;
+            if (sameStart.size() > 1) {
+                ordered = new ArrayList<>(sameStart);
+                ordered.sort(tieOrder);
+            }
+            for (T record : ordered) {
+                if (endOf.apply(record).isAfter(start) && accept.test(record)) {
+                    result.add(record);
+                    if (result.size() >= limit) {
+                        return result;
+                    }
+                }
+            }
+        }
+        return result;
+    }
+}
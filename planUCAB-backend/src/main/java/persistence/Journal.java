@@ -0,0 +1,243 @@
+package persistence;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+// Log de solo-anexado: cada mutación se escribe como una línea JSON compacta en el
+// segmento activo. Al compactar se abre un segmento nuevo y, una vez escrito el
+// snapshot, se borran los segmentos anteriores. El replay es idempotente (PUT/DELETE
+// por id), así que volver a aplicar segmentos ya incluidos en el snapshot es seguro.
+// Anexar solo deja la línea en el archivo; sync() la fuerza a disco. Cada anexado devuelve
+// un número de orden y sync(n) cubre todo lo anexado hasta n: quienes llaman a sync
+// mientras otro está forzando esperan y, casi siempre, ya quedan cubiertos por ese force.
+// El journal lleva además qué usuarios tienen entradas en los segmentos sin compactar.
+public class Journal<T> {
+
+    // Segmento que cubrirá el snapshot y usuarios cuyos shards hay que reescribir para él
+    public record Rollover(long covered, Set<Long> dirtyUsers) {
+    }
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final Path directory;
+    private final ObjectMapper objectMapper;
+    private final JavaType entryType;
+    private final JavaType batchType;
+
+    private FileChannel channel;
+    private Writer writer;
+    private long activeSegment;
+    private long entriesSinceSnapshot;
+    private Set<Long> dirtyUsers = new HashSet<>();
+    // Número de orden del último anexado y del último que se sabe forzado a disco
+    private long appended;
+    private final AtomicLong synced = new AtomicLong();
+    // Un force a la vez; los que esperan suelen quedar cubiertos por el que está en curso
+    private final Object syncLock = new Object();
+
+    public Journal(Path directory, ObjectMapper objectMapper, Class<T> recordType) {
+        this.directory = directory;
+        this.objectMapper = objectMapper;
+        this.entryType = objectMapper.getTypeFactory().constructParametricType(JournalEntry.class, recordType);
+        this.batchType = objectMapper.getTypeFactory().constructCollectionType(List.class, entryType);
+    }
+
+    // Reaplica todos los segmentos existentes en orden y abre uno nuevo para escribir
+    public synchronized void open(Consumer<JournalEntry<T>> replay) throws IOException {
+        Files.createDirectories(directory);
+        List<Long> segments = listSegments();
+        Consumer<JournalEntry<T>> track = entry -> {
+            dirtyUsers.add(entry.getUserId());
+            replay.accept(entry);
+        };
+        for (Long segment : segments) {
+            entriesSinceSnapshot += replaySegment(segmentPath(segment), track);
+        }
+        activeSegment = segments.isEmpty() ? 1 : segments.get(segments.size() - 1) + 1;
+        openSegment(activeSegment);
+    }
+
+    // Devuelve el número de orden a pasar a sync() para que la entrada sea durable
+    public synchronized long append(JournalEntry<T> entry) throws IOException {
+        writeLine(objectMapper.writeValueAsString(entry));
+        entriesSinceSnapshot++;
+        dirtyUsers.add(entry.getUserId());
+        return ++appended;
+    }
+
+    // Escribe varias entradas como una sola línea (un arreglo JSON). Si la escritura se
+    // corta, la línea queda truncada y el replay la descarta entera: el lote se aplica
+    // completo o no se aplica.
+    public synchronized long appendAll(List<JournalEntry<T>> entries) throws IOException {
+        writeLine(objectMapper.writeValueAsString(entries));
+        entriesSinceSnapshot += entries.size();
+        entries.forEach(entry -> dirtyUsers.add(entry.getUserId()));
+        return ++appended;
+    }
+
+    // Número de orden del último anexado: sync() con él cubre todo lo escrito hasta ahora
+    public synchronized long lastAppended() {
+        return appended;
+    }
+
+    // Fuerza a disco todo lo anexado hasta upTo (incluido). Si otro hilo está forzando,
+    // espera a que termine y solo fuerza otra vez si ese force no lo cubrió.
+    public void sync(long upTo) throws IOException {
+        if (synced.get() >= upTo) {
+            return;
+        }
+        synchronized (syncLock) {
+            if (synced.get() >= upTo) {
+                return;
+            }
+            FileChannel target;
+            long covered;
+            synchronized (this) {
+                target = channel;
+                covered = appended;
+            }
+            try {
+                if (target == null) {
+                    throw new ClosedChannelException();
+                }
+                // force(false) equivale a fdatasync: incluye el tamaño del archivo, que hace
+                // falta para releer lo anexado, y omite solo metadatos como la fecha
+                target.force(false);
+            } catch (ClosedChannelException e) {
+                // roll() y close() fuerzan el segmento antes de cerrarlo
+                if (synced.get() >= upTo) {
+                    return;
+                }
+                throw e;
+            }
+            synced.accumulateAndGet(covered, Math::max);
+        }
+    }
+
+    public synchronized long entriesSinceSnapshot() {
+        return entriesSinceSnapshot;
+    }
+
+    // Fuerza y cierra el segmento activo y abre el siguiente. Devuelve el último segmento
+    // cubierto por el snapshot que se va a escribir a continuación y los usuarios con
+    // entradas hasta él; lo anexado después queda para la próxima compactación.
+    public synchronized Rollover roll() throws IOException {
+        long covered = activeSegment;
+        closeSegment();
+        activeSegment++;
+        openSegment(activeSegment);
+        entriesSinceSnapshot = 0;
+        Rollover rollover = new Rollover(covered, dirtyUsers);
+        dirtyUsers = new HashSet<>();
+        return rollover;
+    }
+
+    // Usuarios cuyos shards no se pudieron escribir al compactar: se reescriben en la próxima
+    public synchronized void markDirty(Set<Long> userIds) {
+        dirtyUsers.addAll(userIds);
+    }
+
+    // Se llama después de persistir el snapshot: los segmentos <= covered ya no hacen falta
+    public synchronized void discardUpTo(long covered) throws IOException {
+        for (Long segment : listSegments()) {
+            if (segment <= covered) {
+                Files.deleteIfExists(segmentPath(segment));
+            }
+        }
+    }
+
+    public synchronized void close() throws IOException {
+        if (writer != null) {
+            closeSegment();
+            writer = null;
+            channel = null;
+        }
+    }
+
+    private void writeLine(String line) throws IOException {
+        writer.write(line);
+        writer.write('\n');
+        // Deja la línea en el archivo (sin forzarla): lo que sync() ve al leer appended
+        // ya está en el canal
+        writer.flush();
+    }
+
+    private void closeSegment() throws IOException {
+        writer.flush();
+        channel.force(false);
+        synced.accumulateAndGet(appended, Math::max);
+        writer.close();
+    }
+
+    private long replaySegment(Path segment, Consumer<JournalEntry<T>> replay) throws IOException {
+        long count = 0;
+        try (BufferedReader reader = Files.newBufferedReader(segment, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                List<JournalEntry<T>> entries;
+                try {
+                    if (line.startsWith("[")) {
+                        entries = objectMapper.readValue(line, batchType);
+                    } else {
+                        // Con una variable intermedia: dentro de List.of(...) el tipo genérico
+                        // de readValue se infiere como el arreglo del varargs
+                        JournalEntry<T> entry = objectMapper.readValue(line, entryType);
+                        entries = List.of(entry);
+                    }
+                } catch (IOException e) {
+                    // Última línea truncada por una caída a mitad de escritura: se descarta
+                    break;
+                }
+                entries.forEach(replay);
+                count += entries.size();
+            }
+        }
+        return count;
+    }
+
+    private void openSegment(long segment) throws IOException {
+        channel = FileChannel.open(segmentPath(segment),
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE);
+        writer = new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(channel), StandardCharsets.UTF_8));
+    }
+
+    private Path segmentPath(long segment) {
+        return directory.resolve(String.format("%s%06d%s", SEGMENT_PREFIX, segment, SEGMENT_SUFFIX));
+    }
+
+    private List<Long> listSegments() throws IOException {
+        List<Long> segments = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(p -> p.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                    .forEach(name -> segments.add(Long.parseLong(
+                            name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()))));
+        }
+        segments.sort(Long::compare);
+        return segments;
+    }
+}
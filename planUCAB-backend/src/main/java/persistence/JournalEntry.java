@@ -0,0 +1,60 @@
+package persistence;
+
+public class JournalEntry<T> {
+
+    public enum Op { PUT, DELETE }
+
+    private Op op;
+    private Long userId;
+    private Long id;
+    private T data;
+
+    public JournalEntry() {}
+
+    public JournalEntry(Op op, Long userId, Long id, T data) {
+        this.op = op;
+        this.userId = userId;
+        this.id = id;
+        this.data = data;
+    }
+
+    public static <T> JournalEntry<T> put(Long userId, Long id, T data) {
+        return new JournalEntry<>(Op.PUT, userId, id, data);
+    }
+
+    public static <T> JournalEntry<T> delete(Long userId, Long id) {
+        return new JournalEntry<>(Op.DELETE, userId, id, null);
+    }
+
+    public Op getOp() {
+        return op;
+    }
+
+    public void setOp(Op op) {
+        this.op = op;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public T getData() {
+        return data;
+    }
+
+    public void setData(T data) {
+        this.data = data;
+    }
+}
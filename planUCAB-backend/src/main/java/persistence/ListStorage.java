@@ -0,0 +1,23 @@
+package persistence;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+
+// Almacenamiento de una lista global (usuarios, materias) que se guarda completa.
+// Implementaciones: SnapshotFileStorage (archivo JSON/binario) y H2ListStorage.
+public interface ListStorage<T> {
+
+    boolean exists() throws IOException;
+
+    // Lista guardada, o null si no hay
+    List<T> read() throws IOException;
+
+    void write(List<T> records) throws IOException;
+
+    // Guarda las altas y cambios de changed; all es la lista completa. Por defecto la
+    // reescribe entera (un archivo no admite otra cosa); H2 solo toca las filas de changed.
+    default void upsert(List<T> all, Collection<T> changed) throws IOException {
+        write(all);
+    }
+}
@@ -0,0 +1,319 @@
+package persistence;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+// Planificador de escrituras compartido por todos los repositorios. Cada repositorio
+// registra su rutina de volcado y, en lugar de reescribir su archivo en el hilo de la
+// petición, lo marca como sucio. Las mutaciones que llegan en ráfaga se agrupan en un
+// único volcado por intervalo (o en cuanto se alcanza el tamaño de lote). Los
+// repositorios particionados por usuario marcan además qué usuario cambió, para que
+// el volcado reescriba solo esos shards. El hilo programador solo decide cuándo volcar;
+// la escritura en sí corre en un pool de E/S aparte, para que un volcado lento de un
+// repositorio no retrase los de los demás. Las rutinas de volcado señalan un fallo
+// lanzando una excepción: las claves vuelven a quedar pendientes para un reintento y
+// quien esperaba ese volcado recibe el error en lugar de darlo por durable.
+// Dentro de awaitDurable (las secciones de UserLocks) la espera por el volcado se
+// aplaza hasta salir de la sección: con el lock tomado solo se encola.
+@Component
+@DependsOn("storageFactory")
+public class PersistenceScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(PersistenceScheduler.class);
+
+    // Espera antes de reintentar un volcado que falló
+    private static final long RETRY_DELAY_MS = 1000;
+
+    public enum Durability {
+        // Volcado inmediato en el hilo de la petición (comportamiento original)
+        SYNC,
+        // La petición espera a que el volcado agrupado que incluye su cambio termine
+        GROUP_COMMIT,
+        // La petición retorna en cuanto el cambio está en memoria
+        ASYNC;
+
+        static Durability parse(String value) {
+            return Durability.valueOf(value.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+        }
+    }
+
+    private final Map<String, Target> targets = new ConcurrentHashMap<>();
+    private ScheduledExecutorService executor;
+    private ExecutorService ioExecutor;
+    private Durability durability;
+    // Esperas aplazadas por awaitDurable en el hilo actual; null fuera de una sección
+    private final ThreadLocal<List<Runnable>> deferredWaits = new ThreadLocal<>();
+
+    @Value("${persistence.durability:sync}")
+    private String durabilityProperty;
+
+    @Value("${persistence.flush-interval-ms:50}")
+    private long flushIntervalMs;
+
+    @Value("${persistence.batch-size:100}")
+    private int batchSize;
+
+    @Value("${persistence.io-threads:2}")
+    private int ioThreads;
+
+    @PostConstruct
+    void init() {
+        durability = Durability.parse(durabilityProperty);
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "persistence-flush");
+            t.setDaemon(true);
+            return t;
+        });
+        AtomicInteger ioThreadNumber = new AtomicInteger();
+        ioExecutor = Executors.newFixedThreadPool(Math.max(1, ioThreads), r -> {
+            Thread t = new Thread(r, "persistence-io-" + ioThreadNumber.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        logger.info("Persistencia en modo {} (intervalo {} ms, lote {}, {} hilos de E/S)",
+                durability, flushIntervalMs, batchSize, ioThreads);
+    }
+
+    public void register(String name, Runnable flush) {
+        registerKeyed(name, keys -> flush.run());
+    }
+
+    // El volcado recibe el conjunto de claves (ids de usuario) marcadas desde el anterior
+    public void registerKeyed(String name, Consumer<Set<Long>> flush) {
+        targets.put(name, new Target(name, flush));
+    }
+
+    public Durability getDurability() {
+        return durability;
+    }
+
+    public void markDirty(String name) {
+        markDirty(name, null);
+    }
+
+    // Marca el repositorio (y opcionalmente la clave) como sucio; según la durabilidad
+    // configurada espera o no al volcado (dentro de awaitDurable, al salir de la acción)
+    public void markDirty(String name, Long key) {
+        Target target = targets.get(name);
+        if (target == null) {
+            throw new IllegalStateException("Repositorio no registrado para persistencia: " + name);
+        }
+        Runnable wait;
+        if (durability == Durability.SYNC) {
+            Set<Long> keys = key == null ? Set.of() : Set.of(key);
+            wait = () -> flushNow(target, keys);
+        } else {
+            CompletableFuture<Void> pending = target.enqueue(key);
+            if (durability == Durability.ASYNC) {
+                return;
+            }
+            wait = () -> join(pending);
+        }
+        List<Runnable> waits = deferredWaits.get();
+        if (waits != null) {
+            waits.add(wait);
+        } else {
+            wait.run();
+        }
+    }
+
+    // Para cambios que ya están escritos en su archivo (el journal) y solo falta forzar a
+    // disco: SYNC y GROUP_COMMIT esperan el force (dentro de awaitDurable, al salir de la
+    // acción; los que esperan a la vez comparten uno) y ASYNC lo deja al pool de E/S
+    public void awaitForce(Runnable force) {
+        if (durability == Durability.ASYNC) {
+            if (ioExecutor.isShutdown()) {
+                // Cerrando: el repositorio compacta al apagarse
+                return;
+            }
+            ioExecutor.execute(() -> {
+                try {
+                    force.run();
+                } catch (RuntimeException e) {
+                    logger.error("Falló el force en segundo plano: {}", e.getMessage());
+                }
+            });
+            return;
+        }
+        List<Runnable> waits = deferredWaits.get();
+        if (waits != null) {
+            waits.add(force);
+        } else {
+            force.run();
+        }
+    }
+
+    // Ejecuta la acción y, al terminar, espera a que lo que haya marcado sea durable. Con
+    // la acción como sección crítica de un lock, las peticiones que lo esperan entran
+    // mientras tanto y suman sus cambios al mismo volcado agrupado en lugar de hacer cola
+    // detrás de él. Si la acción falla, lo que llegó a marcar se vuelca igual (ya está en
+    // memoria). Las llamadas anidadas se suman a la más externa.
+    public <R> R awaitDurable(Supplier<R> action) {
+        if (deferredWaits.get() != null) {
+            return action.get();
+        }
+        List<Runnable> waits = new ArrayList<>();
+        deferredWaits.set(waits);
+        R result = null;
+        RuntimeException failure = null;
+        try {
+            result = action.get();
+        } catch (RuntimeException e) {
+            failure = e;
+        } finally {
+            deferredWaits.remove();
+        }
+        for (Runnable wait : waits) {
+            try {
+                wait.run();
+            } catch (RuntimeException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return result;
+    }
+
+    private void flushNow(Target target, Set<Long> keys) {
+        try {
+            if (!Thread.currentThread().isVirtual()) {
+                target.flush(keys);
+                return;
+            }
+            // Un hilo virtual que escribe dentro de un bloque synchronized queda fijado a su
+            // hilo portador durante toda la E/S; se la pasa al pool y espera sin bloquearlo
+            join(CompletableFuture.runAsync(() -> target.flush(keys), ioExecutor));
+        } catch (RuntimeException e) {
+            // El cambio ya está en memoria: queda pendiente para el volcado en segundo plano
+            target.retry(keys, e);
+            throw e;
+        }
+    }
+
+    private static void join(CompletableFuture<Void> future) {
+        try {
+            future.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+            ioExecutor.shutdown();
+            ioExecutor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Volcado final de lo que haya quedado pendiente
+        targets.values().forEach(Target::flushPending);
+    }
+
+    private final class Target {
+        private final String name;
+        private final Consumer<Set<Long>> flush;
+        private Set<Long> dirtyKeys = new HashSet<>();
+        private CompletableFuture<Void> nextFlush;
+        private int pendingMutations;
+        private boolean scheduled;
+
+        Target(String name, Consumer<Set<Long>> flush) {
+            this.name = name;
+            this.flush = flush;
+        }
+
+        synchronized CompletableFuture<Void> enqueue(Long key) {
+            if (nextFlush == null) {
+                nextFlush = new CompletableFuture<>();
+            }
+            if (key != null) {
+                dirtyKeys.add(key);
+            }
+            pendingMutations++;
+            if (pendingMutations >= batchSize) {
+                ioExecutor.execute(this::flushPending);
+            } else if (!scheduled) {
+                scheduled = true;
+                executor.schedule(() -> ioExecutor.execute(this::flushPending), flushIntervalMs, TimeUnit.MILLISECONDS);
+            }
+            return nextFlush;
+        }
+
+        // Devuelve las claves de un volcado fallido al conjunto pendiente y programa otro
+        // intento; lo que se marque mientras tanto se suma a ese mismo volcado
+        synchronized void retry(Set<Long> keys, RuntimeException cause) {
+            logger.error("Falló el volcado de {}, se reintenta en {} ms: {}", name, RETRY_DELAY_MS, cause.getMessage());
+            if (nextFlush == null) {
+                nextFlush = new CompletableFuture<>();
+            }
+            dirtyKeys.addAll(keys);
+            pendingMutations++;
+            if (!scheduled && !executor.isShutdown()) {
+                scheduled = true;
+                executor.schedule(() -> ioExecutor.execute(this::flushPending), RETRY_DELAY_MS, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        void flushPending() {
+            CompletableFuture<Void> completing;
+            Set<Long> keys;
+            synchronized (this) {
+                completing = nextFlush;
+                keys = dirtyKeys;
+                dirtyKeys = new HashSet<>();
+                nextFlush = null;
+                pendingMutations = 0;
+                scheduled = false;
+            }
+            if (completing == null) {
+                return;
+            }
+            try {
+                flush(keys);
+                completing.complete(null);
+            } catch (RuntimeException e) {
+                retry(keys, e);
+                completing.completeExceptionally(e);
+            }
+        }
+
+        // Un solo volcado a la vez por repositorio
+        void flush(Set<Long> keys) {
+            synchronized (flush) {
+                flush.accept(keys);
+            }
+            logger.debug("Repositorio {} volcado a disco", name);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package persistence;
+
+// Índice en memoria sobre los registros de un usuario, mantenido por UserIndex
+public interface RecordIndex<T> {
+
+    void add(T record);
+
+    void remove(T record);
+}
@@ -0,0 +1,22 @@
+package persistence;
+
+import java.util.List;
+
+// Una página de registros y el cursor de la siguiente (null si no hay más)
+public class RecordPage<T> {
+    private final List<T> items;
+    private final String nextCursor;
+
+    public RecordPage(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
@@ -0,0 +1,185 @@
+package persistence;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+// Formato de los snapshots en disco. En modo "binary" cada archivo .json se sustituye
+// por un .bin con cabecera propia (magic, versión, longitud, CRC32) y el contenido en
+// Smile (JSON binario de Jackson). La lectura copia el archivo a un buffer del heap con
+// una sola lectura del canal y no lo mapea: un MappedByteBuffer no se libera hasta que lo
+// recoge el GC y, mientras siga mapeado, Windows no deja reemplazar el archivo con el
+// siguiente snapshot. Lo que acelera el arranque es no parsear JSON con sangrías. Los
+// lectores aceptan ambos formatos; en modo binario un archivo que todavía está en JSON se
+// convierte la primera vez que se lee.
+@Component
+public class SnapshotCodec {
+
+    private static final Logger logger = LoggerFactory.getLogger(SnapshotCodec.class);
+
+    private static final int MAGIC = 0x50554342; // "PUCB"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 4 + 4 + 4 + 8;
+    private static final String JSON_SUFFIX = ".json";
+    private static final String BINARY_SUFFIX = ".bin";
+
+    @FunctionalInterface
+    public interface JsonReader<T> {
+        T read(Path jsonFile) throws IOException;
+    }
+
+    private final ObjectMapper smileMapper;
+
+    @Value("${persistence.format:json}")
+    private String formatProperty;
+
+    private boolean binary;
+
+    public SnapshotCodec() {
+        this.smileMapper = new ObjectMapper(new SmileFactory());
+        this.smileMapper.registerModule(new JavaTimeModule());
+    }
+
+    @PostConstruct
+    void init() {
+        binary = "binary".equalsIgnoreCase(formatProperty.trim());
+        logger.info("Formato de snapshots: {}", binary ? "binario (Smile + CRC32)" : "JSON");
+    }
+
+    public boolean isBinary() {
+        return binary;
+    }
+
+    public static Path binaryPath(Path jsonPath) {
+        String name = jsonPath.getFileName().toString();
+        String base = name.endsWith(JSON_SUFFIX) ? name.substring(0, name.length() - JSON_SUFFIX.length()) : name;
+        return jsonPath.resolveSibling(base + BINARY_SUFFIX);
+    }
+
+    public boolean exists(Path jsonPath) {
+        return Files.exists(jsonPath) || Files.exists(binaryPath(jsonPath));
+    }
+
+    // Escribe en el formato configurado y borra la copia en el otro formato
+    public void write(Path jsonPath, ObjectWriter jsonWriter, Object value) throws IOException {
+        Path binaryPath = binaryPath(jsonPath);
+        if (binary) {
+            writeBinary(binaryPath, value);
+            Files.deleteIfExists(jsonPath);
+        } else {
+            AtomicFiles.writeJson(jsonWriter, jsonPath, value);
+            Files.deleteIfExists(binaryPath);
+        }
+    }
+
+    public void delete(Path jsonPath) throws IOException {
+        Files.deleteIfExists(jsonPath);
+        Files.deleteIfExists(binaryPath(jsonPath));
+    }
+
+    // Lee preferentemente el formato configurado; devuelve null si no hay archivo
+    public <T> T read(Path jsonPath, JavaType type, JsonReader<T> jsonReader) throws IOException {
+        Path binaryPath = binaryPath(jsonPath);
+        boolean hasBinary = Files.exists(binaryPath);
+        boolean hasJson = Files.exists(jsonPath);
+        if (hasBinary && (binary || !hasJson)) {
+            try {
+                return readBinary(binaryPath, type);
+            } catch (IOException e) {
+                if (!hasJson) {
+                    throw e;
+                }
+                logger.warn("Snapshot binario inválido ({}), se usa {}", e.getMessage(), jsonPath);
+            }
+        }
+        if (!hasJson) {
+            return null;
+        }
+        T value = jsonReader.read(jsonPath);
+        if (binary && value != null) {
+            writeBinary(binaryPath, value);
+            Files.deleteIfExists(jsonPath);
+        }
+        return value;
+    }
+
+    private void writeBinary(Path path, Object value) throws IOException {
+        byte[] payload = smileMapper.writeValueAsBytes(value);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).putInt(VERSION).putInt(payload.length).putLong(crc.getValue());
+        header.flip();
+
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer[] parts = { header, ByteBuffer.wrap(payload) };
+            while (parts[1].hasRemaining()) {
+                channel.write(parts);
+            }
+            // El contenido tiene que estar en disco antes de que el rename lo haga visible; si
+            // no, tras una caída el archivo nuevo puede quedar vacío y el anterior ya no existe
+            channel.force(true);
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private <T> T readBinary(Path path, JavaType type) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES) {
+                throw new IOException("Snapshot binario truncado: " + path);
+            }
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot binario demasiado grande: " + path);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // leer hasta completar el archivo
+            }
+            buffer.flip();
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("No es un snapshot binario de PlanUCAB: " + path);
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("Versión de snapshot no soportada (" + version + "): " + path);
+            }
+            int length = buffer.getInt();
+            long expectedCrc = buffer.getLong();
+            if (length < 0 || HEADER_BYTES + (long) length > size) {
+                throw new IOException("Snapshot binario truncado: " + path);
+            }
+
+            ByteBuffer payload = buffer.slice(HEADER_BYTES, length);
+            CRC32 crc = new CRC32();
+            crc.update(payload.duplicate());
+            if (crc.getValue() != expectedCrc) {
+                throw new IOException("Checksum inválido en " + path);
+            }
+            return smileMapper.readValue(new ByteBufferBackedInputStream(payload), type);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package persistence;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+// Lista guardada en un único archivo a través de SnapshotCodec (JSON o binario)
+public class SnapshotFileStorage<T> implements ListStorage<T> {
+
+    private final SnapshotCodec codec;
+    private final Path path;
+    private final ObjectWriter writer;
+    private final JavaType listType;
+    private final SnapshotCodec.JsonReader<List<T>> reader;
+
+    public SnapshotFileStorage(SnapshotCodec codec, Path path, ObjectWriter writer, JavaType listType,
+                               SnapshotCodec.JsonReader<List<T>> reader) {
+        this.codec = codec;
+        this.path = path;
+        this.writer = writer;
+        this.listType = listType;
+        this.reader = reader;
+    }
+
+    @Override
+    public boolean exists() {
+        return codec.exists(path);
+    }
+
+    @Override
+    public List<T> read() throws IOException {
+        return codec.read(path, listType, reader);
+    }
+
+    @Override
+    public void write(List<T> records) throws IOException {
+        codec.write(path, writer, records);
+    }
+}
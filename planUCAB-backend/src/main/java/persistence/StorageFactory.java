@@ -0,0 +1,67 @@
+package persistence;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import model.Bloque;
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Function;
+
+// Elige el backend de almacenamiento de los repositorios (persistence.backend):
+// "json" usa los archivos de siempre; "h2" una base embebida en archivo que, la primera
+// vez, importa el contenido de esos archivos.
+@Component
+public class StorageFactory {
+
+    private static final Logger logger = LoggerFactory.getLogger(StorageFactory.class);
+
+    @Value("${persistence.backend:json}")
+    private String backendProperty;
+
+    @Value("${persistence.h2.url:jdbc:h2:file:./data/planucab;DB_CLOSE_ON_EXIT=FALSE}")
+    private String h2Url;
+
+    private JdbcConnectionPool pool;
+
+    @PostConstruct
+    void init() {
+        if ("h2".equalsIgnoreCase(backendProperty.trim())) {
+            pool = JdbcConnectionPool.create(h2Url, "sa", "");
+            logger.info("Almacenamiento en H2 ({})", h2Url);
+        } else {
+            logger.info("Almacenamiento en archivos JSON");
+        }
+    }
+
+    // El planificador de persistencia depende de este bean, así que su volcado final
+    // ocurre antes de cerrar el pool
+    @PreDestroy
+    void shutdown() {
+        if (pool != null) {
+            pool.dispose();
+        }
+    }
+
+    // columns son los valores que H2 guarda en columnas indexadas (rango y día de la semana)
+    public <T extends Bloque> UserScopedStorage<T> userScoped(String name, UserShardStore<T> files, ObjectMapper mapper,
+                                                              Class<T> type, IndexedColumns<T> columns) {
+        if (pool == null) {
+            return files;
+        }
+        return new H2UserScopedStorage<>(pool, name, files, mapper, type, columns);
+    }
+
+    // idOf identifica cada elemento, para que H2 pueda actualizar solo las filas que cambian
+    public <T> ListStorage<T> list(String name, ListStorage<T> files, ObjectMapper mapper, Class<T> type,
+                                   Function<T, Long> idOf) {
+        if (pool == null) {
+            return files;
+        }
+        return new H2ListStorage<>(pool, name, files, mapper, type, idOf);
+    }
+}
@@ -0,0 +1,90 @@
+package persistence;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Lector por streaming (JsonParser) de archivos de registros: avanza token a token y
+// construye cada registro directamente, sin armar el árbol JsonNode del archivo completo.
+public class StreamingRecordReader<T> {
+
+    @FunctionalInterface
+    public interface RecordParser<T> {
+        // El parser está en START_OBJECT y debe quedar en el END_OBJECT del registro.
+        // Devuelve null para descartar el registro.
+        T parse(JsonParser parser) throws IOException;
+    }
+
+    private final ObjectMapper objectMapper;
+    private final RecordParser<T> recordParser;
+
+    public StreamingRecordReader(ObjectMapper objectMapper, RecordParser<T> recordParser) {
+        this.objectMapper = objectMapper;
+        this.recordParser = recordParser;
+    }
+
+    // Formato de un shard: [ {...}, {...} ]
+    public List<T> readArray(Path file) throws IOException {
+        try (JsonParser parser = objectMapper.createParser(file.toFile())) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                return new ArrayList<>();
+            }
+            return readRecords(parser);
+        }
+    }
+
+    // Formato monolítico anterior: { "userId": [ {...} ], ... }
+    public Map<Long, List<T>> readByUser(Path file) throws IOException {
+        Map<Long, List<T>> loaded = new HashMap<>();
+        try (JsonParser parser = objectMapper.createParser(file.toFile())) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return loaded;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                Long userId = Long.parseLong(parser.currentName());
+                if (parser.nextToken() == JsonToken.START_ARRAY) {
+                    loaded.put(userId, readRecords(parser));
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return loaded;
+    }
+
+    private List<T> readRecords(JsonParser parser) throws IOException {
+        List<T> records = new ArrayList<>();
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+            if (token != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+            T record = recordParser.parse(parser);
+            if (record != null) {
+                records.add(record);
+            }
+        }
+        return records;
+    }
+
+    // Valor de texto del campo actual; los objetos/arreglos inesperados se saltan
+    public static String text(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (!token.isScalarValue()) {
+            parser.skipChildren();
+            return null;
+        }
+        return parser.getValueAsString();
+    }
+}
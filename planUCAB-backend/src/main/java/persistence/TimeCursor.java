@@ -0,0 +1,49 @@
+package persistence;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+// Posición dentro de un listado ordenado por (inicio, id). Viaja al cliente como un texto
+// opaco; la siguiente página empieza justo después de este registro.
+public final class TimeCursor {
+
+    private final LocalDateTime start;
+    private final long id;
+
+    public TimeCursor(LocalDateTime start, long id) {
+        this.start = start;
+        this.id = id;
+    }
+
+    public LocalDateTime getStart() {
+        return start;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    // true si el registro (start, id) va después del cursor
+    public boolean precedes(LocalDateTime recordStart, Long recordId) {
+        int byStart = recordStart.compareTo(start);
+        return byStart > 0 || (byStart == 0 && recordId != null && recordId > id);
+    }
+
+    public String encode() {
+        String raw = start + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static TimeCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf('|');
+            return new TimeCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                    Long.parseLong(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Cursor inválido");
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package persistence;
+
+import model.Bloque;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+// Un índice por usuario sobre un UserScopedRepository (ver registerIndex). Se construye a
+// partir de los registros residentes la primera vez que se pide y después lo mantiene
+// el repositorio en cada mutación, con el lock del usuario tomado; el working set lo
+// descarta junto con los registros del usuario.
+public class UserIndex<T extends Bloque, I extends RecordIndex<T>> {
+
+    private final UserScopedRepository<T> repository;
+    private final Function<Collection<T>, I> builder;
+    private final Map<Long, I> byUser = new ConcurrentHashMap<>();
+
+    UserIndex(UserScopedRepository<T> repository, Function<Collection<T>, I> builder) {
+        this.repository = repository;
+        this.builder = builder;
+    }
+
+    public I get(Long userId) {
+        I index = byUser.get(userId);
+        if (index != null && repository.isResident(userId)) {
+            return index;
+        }
+        return repository.withResidentRecords(userId,
+                records -> byUser.computeIfAbsent(userId, k -> builder.apply(records)));
+    }
+
+    void added(Long userId, T record) {
+        I index = byUser.get(userId);
+        if (index != null) {
+            index.add(record);
+        }
+    }
+
+    void removed(Long userId, T record) {
+        I index = byUser.get(userId);
+        if (index != null) {
+            index.remove(record);
+        }
+    }
+
+    void unloaded(Long userId) {
+        byUser.remove(userId);
+    }
+}
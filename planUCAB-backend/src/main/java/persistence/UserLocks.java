@@ -0,0 +1,46 @@
+package persistence;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+// Locks por usuario repartidos en franjas fijas: las operaciones de un mismo usuario se
+// ejecutan de a una y las de usuarios en franjas distintas, en paralelo. Son reentrantes,
+// así que una operación compuesta puede llamar a otras que toman el mismo lock. La
+// espera por la durabilidad de lo guardado ocurre después de soltar el lock (ver
+// PersistenceScheduler.awaitDurable): con el lock tomado solo se encola el volcado.
+@Component
+public class UserLocks {
+
+    private static final int STRIPES = 64;
+
+    private final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+    private final PersistenceScheduler persistenceScheduler;
+
+    public UserLocks(PersistenceScheduler persistenceScheduler) {
+        this.persistenceScheduler = persistenceScheduler;
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    public <R> R withLock(Long userId, Supplier<R> action) {
+        ReentrantLock lock = locks[Math.floorMod(Long.hashCode(userId), STRIPES)];
+        return persistenceScheduler.awaitDurable(() -> {
+            lock.lock();
+            try {
+                return action.get();
+            } finally {
+                lock.unlock();
+            }
+        });
+    }
+
+    public void withLock(Long userId, Runnable action) {
+        withLock(userId, () -> {
+            action.run();
+            return null;
+        });
+    }
+}
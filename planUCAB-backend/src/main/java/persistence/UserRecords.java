@@ -0,0 +1,89 @@
+package persistence;
+
+import model.Bloque;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Registros de un usuario indexados por id y en orden de inserción: buscar, reemplazar o
+// borrar un registro es O(1) y reemplazarlo conserva su posición. No es thread-safe; el
+// repositorio lo usa con el lock del usuario tomado. Las excepciones son published(): una copia
+// inmutable que se arma una vez tras cada cambio, y find(): una búsqueda por id sobre un
+// mapa concurrente que se actualiza junto con el ordenado; ambas se pueden usar sin lock.
+final class UserRecords<T extends Bloque> {
+
+    private final Map<Long, T> byId = new LinkedHashMap<>();
+    // Mismo contenido que byId, para buscar por id sin lock
+    private final Map<Long, T> lookup = new ConcurrentHashMap<>();
+    // null mientras no se haya vuelto a publicar desde el último cambio
+    private volatile List<T> publicada;
+
+    UserRecords() {
+    }
+
+    UserRecords(Collection<T> records) {
+        for (T record : records) {
+            put(record);
+        }
+    }
+
+    T get(Long id) {
+        return byId.get(id);
+    }
+
+    // Se puede llamar sin lock: ve el último registro guardado con ese id
+    T find(Long id) {
+        return id != null ? lookup.get(id) : null;
+    }
+
+    // Devuelve el registro anterior con el mismo id, o null
+    T put(T record) {
+        publicada = null;
+        if (record.getId() != null) {
+            lookup.put(record.getId(), record);
+        }
+        return byId.put(record.getId(), record);
+    }
+
+    T remove(Long id) {
+        publicada = null;
+        if (id != null) {
+            lookup.remove(id);
+        }
+        return byId.remove(id);
+    }
+
+    int size() {
+        return byId.size();
+    }
+
+    // Vista de solo lectura; solo debe recorrerse con el lock del usuario tomado
+    Collection<T> values() {
+        return Collections.unmodifiableCollection(byId.values());
+    }
+
+    List<T> snapshot() {
+        return new ArrayList<>(byId.values());
+    }
+
+    // Última copia publicada, o null si hubo cambios desde entonces. Se puede llamar sin lock.
+    List<T> published() {
+        return publicada;
+    }
+
+    // Publica (si hace falta) y devuelve la copia inmutable actual. Varias mutaciones
+    // seguidas cuestan una sola copia, la del primer lector que llega después.
+    List<T> publish() {
+        List<T> actual = publicada;
+        if (actual == null) {
+            actual = List.copyOf(byId.values());
+            publicada = actual;
+        }
+        return actual;
+    }
+}
@@ -0,0 +1,930 @@
+package persistence;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import exceptions.VersionConflictException;
+import model.Bloque;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// Base de los repositorios cuyos registros pertenecen a un usuario (eventos, horarios,
+// evaluaciones). Mantiene el mapa userId -> registros (indexados por id) en memoria y lo
+// persiste en un shard por usuario; opcionalmente, cada mutación se anexa además a un journal.
+// Cada mutación toma solo el lock del usuario (UserLocks, el mismo que usan los servicios),
+// así que las escrituras de usuarios distintos avanzan en paralelo.
+// Con persistence.working-set.enabled solo se mantienen en memoria los usuarios activos:
+// el shard se carga en el primer acceso y se descarta tras la inactividad configurada o
+// cuando se supera el máximo de usuarios residentes (nunca con cambios sin volcar).
+public abstract class UserScopedRepository<T extends Bloque> {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserScopedRepository.class);
+
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 500;
+    // Extremos usados cuando el rango se deja abierto
+    private static final LocalDateTime RANGE_MIN = LocalDateTime.of(1, 1, 1, 0, 0);
+    private static final LocalDateTime RANGE_MAX = LocalDateTime.of(9999, 12, 31, 23, 59);
+
+    private final Map<Long, UserRecords<T>> userIdToRecords = new ConcurrentHashMap<>();
+    // Cargas de shards en curso (modo working set): quien llega mientras tanto espera la misma
+    private final Map<Long, CompletableFuture<UserRecords<T>>> loading = new ConcurrentHashMap<>();
+    private IdAllocator idAllocator;
+    protected final ObjectMapper objectMapper;
+
+    @Autowired
+    private PersistenceScheduler persistenceScheduler;
+
+    @Autowired
+    private SnapshotCodec snapshotCodec;
+
+    @Autowired
+    private StorageFactory storageFactory;
+
+    @Autowired
+    private UserLocks userLocks;
+
+    private UserScopedStorage<T> storage;
+    private Journal<T> journal;
+    private ExecutorService compactionExecutor;
+    private final AtomicBoolean compactionPending = new AtomicBoolean(false);
+
+    @Value("${persistence.sequence.path:data/sequences}")
+    private String sequencePath;
+
+    @Value("${persistence.sequence.block-size:1000}")
+    private long idBlockSize;
+
+    @Value("${persistence.working-set.enabled:false}")
+    private boolean workingSet;
+
+    @Value("${persistence.working-set.max-users:10000}")
+    private int maxResidentUsers;
+
+    @Value("${persistence.working-set.idle-minutes:30}")
+    private long idleMinutes;
+
+    // userId -> marca de la última mutación aún no escrita en su shard
+    private final Map<Long, Long> unflushed = new ConcurrentHashMap<>();
+    private final AtomicLong mutationStamp = new AtomicLong();
+    private final Map<Long, Long> lastAccess = new ConcurrentHashMap<>();
+    // userId -> marca de su última mutación desde el arranque (no se descarta al desalojar)
+    private final Map<Long, Long> versions = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private ScheduledExecutorService evictionExecutor;
+    private final AtomicBoolean evictionPending = new AtomicBoolean(false);
+
+    private final List<UserIndex<T, ?>> indexes = new CopyOnWriteArrayList<>();
+    // Usuarios cuya persistencia se posterga hasta que termine deferPersist en este hilo
+    private final ThreadLocal<Set<Long>> deferred = new ThreadLocal<>();
+
+    // Registros de cada usuario ordenados en el tiempo (solo los que tienen inicio y fin)
+    private final UserIndex<T, IntervalIndex<T>> byTime =
+            registerIndex(records -> new IntervalIndex<>(this::startOf, this::endOf, records));
+
+    protected UserScopedRepository() {
+        this.objectMapper = new ObjectMapper();
+        this.objectMapper.registerModule(new JavaTimeModule());
+        this.objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    }
+
+    // Nombre con el que se registra en el planificador de persistencia
+    protected abstract String storeName();
+
+    protected abstract Class<T> recordType();
+
+    // Archivo monolítico anterior al layout por usuario (se migra en el primer arranque)
+    protected abstract Path legacyPath();
+
+    protected abstract Path shardDirectory();
+
+    protected abstract String notFoundMessage();
+
+    // Directorio del journal, o null si el repositorio no usa journal
+    protected Path journalDirectory() {
+        return null;
+    }
+
+    protected long compactThreshold() {
+        return 1000;
+    }
+
+    // Inicio y fin de cada registro, para el índice temporal (y columnas indexadas en H2)
+    protected LocalDateTime startOf(T record) {
+        return null;
+    }
+
+    protected LocalDateTime endOf(T record) {
+        return null;
+    }
+
+    // Día de la semana de los registros semanales (columna indexada en H2)
+    protected String diaSemanaOf(T record) {
+        return null;
+    }
+
+    // Registra un índice por usuario que el repositorio mantiene en cada mutación
+    public <I extends RecordIndex<T>> UserIndex<T, I> registerIndex(Function<Collection<T>, I> builder) {
+        UserIndex<T, I> index = new UserIndex<>(this, builder);
+        indexes.add(index);
+        return index;
+    }
+
+    // Cambia con cada mutación de los registros del usuario; 0 si no hubo ninguna desde el
+    // arranque. Sirve para validar cachés (ETag) sin recorrer los registros.
+    public long version(Long userId) {
+        return versions.getOrDefault(userId, 0L);
+    }
+
+    public UserIndex<T, IntervalIndex<T>> timeIndex() {
+        return byTime;
+    }
+
+    // Si los registros del usuario están en memoria (siempre, fuera del modo working set)
+    public boolean isResident(Long userId) {
+        return !workingSet || userIdToRecords.containsKey(userId);
+    }
+
+    // Ejecuta la función sobre los registros residentes del usuario con su lock tomado
+    <R> R withResidentRecords(Long userId, Function<Collection<T>, R> function) {
+        return userLocks.withLock(userId, () -> {
+            UserRecords<T> records = resident(userId);
+            return function.apply(records != null ? records.values() : List.of());
+        });
+    }
+
+    protected List<T> readShard(Path shard) throws IOException {
+        JavaType listType = objectMapper.getTypeFactory().constructCollectionType(List.class, recordType());
+        return objectMapper.readValue(shard.toFile(), listType);
+    }
+
+    protected Map<Long, List<T>> readLegacy(Path legacyFile) throws IOException {
+        JavaType mapType = objectMapper.getTypeFactory().constructMapType(Map.class,
+                objectMapper.constructType(Long.class),
+                objectMapper.getTypeFactory().constructCollectionType(List.class, recordType()));
+        Map<Long, List<T>> loaded = objectMapper.readValue(legacyFile.toFile(), mapType);
+        return loaded != null ? loaded : Map.of();
+    }
+
+    @PostConstruct
+    void init() {
+        JavaType listType = objectMapper.getTypeFactory().constructCollectionType(List.class, recordType());
+        UserShardStore<T> shards = new UserShardStore<>(shardDirectory(), objectMapper.writerWithDefaultPrettyPrinter(),
+                this::readShard, snapshotCodec, listType);
+        storage = storageFactory.userScoped(storeName(), shards, objectMapper, recordType(),
+                new IndexedColumns<>(this::startOf, this::endOf, this::diaSemanaOf));
+        idAllocator = new IdAllocator(Paths.get(sequencePath, storeName() + ".seq"), idBlockSize);
+        long startNanos = System.nanoTime();
+        long maxId = 0L;
+        try {
+            storage.migrateIfNeeded(legacyPath(), this::readLegacy);
+            if (workingSet) {
+                // Nada queda residente; solo si todavía no hay archivo de secuencia se recorre
+                // el disco una vez para conocer el ID máximo
+                if (!idAllocator.initialized()) {
+                    maxId = scanMaxId();
+                }
+                logger.info("Working set de {} activo (máx. {} usuarios, inactividad {} min)",
+                        storeName(), maxResidentUsers, idleMinutes);
+            } else {
+                storage.loadAll().forEach((userId, records) -> userIdToRecords.put(userId, new UserRecords<>(records)));
+                logger.info("Cargados {} usuarios de {} en {} ms", userIdToRecords.size(), storeName(),
+                        (System.nanoTime() - startNanos) / 1_000_000);
+            }
+        } catch (IOException e) {
+            // Si falla la carga, iniciar con almacenamiento en memoria vacío
+            logger.error("No se pudieron cargar los registros de {}: {}", storeName(), e.getMessage());
+        }
+
+        if (journalDirectory() != null) {
+            openJournal();
+        }
+        persistenceScheduler.registerKeyed(storeName(), this::flushShards);
+
+        // El techo de la secuencia debe quedar por encima de todo lo cargado (incluido lo
+        // recuperado del journal); con el archivo al día esto no cambia nada
+        for (UserRecords<T> records : userIdToRecords.values()) {
+            maxId = Math.max(maxId, maxIdOf(records.values()));
+        }
+        try {
+            idAllocator.ensureAbove(maxId);
+        } catch (IOException e) {
+            throw new IllegalStateException("No se pudo inicializar la secuencia de ids de " + storeName(), e);
+        }
+
+        if (workingSet) {
+            evictionExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, storeName() + "-working-set");
+                t.setDaemon(true);
+                return t;
+            });
+            evictionExecutor.scheduleWithFixedDelay(this::evictIdle, 1, 1, TimeUnit.MINUTES);
+        }
+    }
+
+    private long scanMaxId() throws IOException {
+        long maxId = 0L;
+        for (Long userId : storage.userIds()) {
+            List<T> records = storage.read(userId);
+            if (records != null) {
+                maxId = Math.max(maxId, maxIdOf(records));
+            }
+        }
+        return maxId;
+    }
+
+    private long maxIdOf(Collection<T> records) {
+        long maxId = 0L;
+        for (T r : records) {
+            if (r.getId() != null) {
+                maxId = Math.max(maxId, r.getId());
+            }
+        }
+        return maxId;
+    }
+
+    private void openJournal() {
+        journal = new Journal<>(journalDirectory(), objectMapper, recordType());
+        try {
+            journal.open(this::applyEntry);
+            compactionExecutor = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, storeName() + "-journal-compaction");
+                t.setDaemon(true);
+                return t;
+            });
+            logger.info("Journal de {} abierto en {} ({} entradas pendientes de compactar)",
+                    storeName(), journalDirectory(), journal.entriesSinceSnapshot());
+        } catch (IOException e) {
+            // Sin journal no hay durabilidad incremental: volver a escribir shards
+            logger.error("No se pudo abrir el journal de {}, se escriben los shards directamente: {}",
+                    storeName(), e.getMessage());
+            journal = null;
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (evictionExecutor != null) {
+            evictionExecutor.shutdownNow();
+        }
+        if (journal == null) {
+            return;
+        }
+        if (compactionExecutor != null) {
+            compactionExecutor.shutdown();
+        }
+        compact();
+        try {
+            journal.close();
+        } catch (IOException e) {
+            // Ignorar: el siguiente arranque reaplica lo que haya quedado en el log
+        }
+    }
+
+    public T save(Long userId, T record) {
+        record.setId(idAllocator.next());
+        record.setUserId(userId);
+        record.setVersion(1L);
+        userLocks.withLock(userId, () -> {
+            residentOrNew(userId).put(record);
+            indexes.forEach(index -> index.added(userId, record));
+            markUnflushed(userId);
+            recordInJournal(userId, JournalEntry.put(userId, record.getId(), record));
+        });
+        persist(userId);
+        return record;
+    }
+
+    // Guarda varios registros del usuario de una vez: un solo paso por el lock y una sola
+    // escritura del shard para todo el lote
+    public List<T> saveAll(Long userId, List<T> nuevos) {
+        if (nuevos.isEmpty()) {
+            return nuevos;
+        }
+        userLocks.withLock(userId, () -> {
+            UserRecords<T> records = residentOrNew(userId);
+            List<JournalEntry<T>> entries = new ArrayList<>(nuevos.size());
+            for (T record : nuevos) {
+                record.setId(idAllocator.next());
+                record.setUserId(userId);
+                record.setVersion(1L);
+                records.put(record);
+                indexes.forEach(index -> index.added(userId, record));
+                entries.add(JournalEntry.put(userId, record.getId(), record));
+            }
+            markUnflushed(userId);
+            recordInJournal(userId, entries);
+        });
+        persist(userId);
+        return nuevos;
+    }
+
+    public static long versionOf(Bloque record) {
+        return record.getVersion() != null ? record.getVersion() : 0L;
+    }
+
+    // Falla con VersionConflictException si expectedVersion no es null y no coincide
+    public void requireVersion(T record, Long expectedVersion) {
+        if (expectedVersion != null && expectedVersion != versionOf(record)) {
+            throw new VersionConflictException(String.format(
+                    "El registro fue modificado por otra petición (versión actual %d, esperada %d)",
+                    versionOf(record), expectedVersion));
+        }
+    }
+
+    // Registros del usuario en orden de inserción, como lista inmutable. Si no hubo cambios
+    // desde la última lectura se devuelve la misma copia sin tomar el lock ni copiar.
+    public List<T> findByUserId(Long userId) {
+        UserRecords<T> records = resident(userId);
+        if (records == null) {
+            return List.of();
+        }
+        List<T> publicada = records.published();
+        if (publicada != null) {
+            return publicada;
+        }
+        return userLocks.withLock(userId, records::publish);
+    }
+
+    // Registros que se solapan con [from, to) en orden de inicio e id, empezando después
+    // del cursor. Cualquiera de los extremos puede omitirse. Con el índice temporal solo
+    // recorre la ventana del rango (ver IntervalIndex), no todo el historial del usuario.
+    public RecordPage<T> findByUserIdBetween(Long userId, LocalDateTime from, LocalDateTime to,
+                                             String cursor, Integer limit) {
+        LocalDateTime start = from != null ? from : RANGE_MIN;
+        LocalDateTime end = to != null ? to : RANGE_MAX;
+        if (!end.isAfter(start)) {
+            throw new IllegalArgumentException("La fecha final debe ser posterior a la inicial");
+        }
+        int pageSize = limit != null ? limit : DEFAULT_PAGE_SIZE;
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("limit debe estar entre 1 y " + MAX_PAGE_SIZE);
+        }
+        TimeCursor after = cursor != null && !cursor.isBlank() ? TimeCursor.decode(cursor) : null;
+
+        // Se pide un registro de más para saber si hay otra página
+        List<T> items = pushDown(userId, () -> storage.readOverlapping(userId, start, end,
+                after != null ? after.getStart() : null, after != null ? after.getId() : null, pageSize + 1));
+        if (items == null) {
+            items = byTime.get(userId).overlappingPage(start, end, after != null ? after.getStart() : null,
+                    Comparator.comparing(Bloque::getId),
+                    r -> after == null || after.precedes(startOf(r), r.getId()),
+                    pageSize + 1);
+        }
+        if (items.size() <= pageSize) {
+            return new RecordPage<>(items, null);
+        }
+        List<T> page = new ArrayList<>(items.subList(0, pageSize));
+        T last = page.get(pageSize - 1);
+        return new RecordPage<>(page, new TimeCursor(startOf(last), last.getId()).encode());
+    }
+
+    // Registros que se solapan con [from, to), en orden de inicio
+    public List<T> findOverlapping(Long userId, LocalDateTime from, LocalDateTime to) {
+        List<T> items = pushDown(userId, () -> storage.readOverlapping(userId, from, to, null, null, Integer.MAX_VALUE));
+        return items != null ? items : byTime.get(userId).overlapping(from, to);
+    }
+
+    // Registros cuyo día de la semana (diaSemanaOf) es uno de los indicados
+    public List<T> findByDiaSemana(Long userId, Collection<String> dias) {
+        List<T> items = pushDown(userId, () -> storage.readByDiaSemana(userId, dias));
+        if (items != null) {
+            return items;
+        }
+        List<T> delDia = new ArrayList<>();
+        for (T record : findByUserId(userId)) {
+            if (dias.contains(diaSemanaOf(record))) {
+                delDia.add(record);
+            }
+        }
+        return delDia;
+    }
+
+    private interface StorageQuery<R> {
+        R run() throws IOException;
+    }
+
+    // Consulta al almacenamiento para un usuario que no está en memoria, si lo resuelve con
+    // sus índices (H2): así no se carga el usuario entero para una lectura acotada. Un
+    // usuario no residente no tiene cambios sin escribir, así que el almacenamiento está al
+    // día. Devuelve null si hay que responder desde memoria.
+    private <R> R pushDown(Long userId, StorageQuery<R> query) {
+        if (isResident(userId)) {
+            return null;
+        }
+        try {
+            return query.run();
+        } catch (IOException e) {
+            logger.warn("Falló la consulta de {} en el almacenamiento, se carga el usuario {}: {}",
+                    storeName(), userId, e.getMessage());
+            return null;
+        }
+    }
+
+    // Sin lock: el registro vigente del índice por id de UserRecords
+    public T findById(Long userId, Long id) {
+        UserRecords<T> records = resident(userId);
+        return records != null ? records.find(id) : null;
+    }
+
+    public T update(Long userId, Long id, T updated) {
+        return update(userId, id, updated, null);
+    }
+
+    // Compare-and-set: si expectedVersion no es null, solo reemplaza el registro si su
+    // versión sigue siendo esa; si no, lanza VersionConflictException
+    public T update(Long userId, Long id, T updated, Long expectedVersion) {
+        userLocks.withLock(userId, () -> {
+            UserRecords<T> records = resident(userId);
+            if (records == null) {
+                throw new IllegalArgumentException("Usuario no encontrado");
+            }
+            T actual = records.get(id);
+            if (actual == null) {
+                throw new IllegalArgumentException(notFoundMessage());
+            }
+            requireVersion(actual, expectedVersion);
+
+            updated.setId(id);
+            updated.setUserId(userId);
+            updated.setVersion(versionOf(actual) + 1);
+            // Conserva la posición del registro reemplazado
+            T previous = records.put(updated);
+            indexes.forEach(userIndex -> {
+                userIndex.removed(userId, previous);
+                userIndex.added(userId, updated);
+            });
+            markUnflushed(userId);
+            recordInJournal(userId, JournalEntry.put(userId, id, updated));
+        });
+        persist(userId);
+        return updated;
+    }
+
+    // Reemplaza varios registros del usuario (cada uno identificado por su id) como una
+    // sola operación: se comprueba que existan todos antes de tocar nada, se aplican bajo
+    // un mismo lock y se persisten con una única escritura
+    public List<T> updateAll(Long userId, List<T> cambios) {
+        return updateAll(userId, cambios, Map.of());
+    }
+
+    // Igual, pero los registros con id en expectedVersions solo se reemplazan si siguen en
+    // esa versión; si alguno no coincide no se aplica ningún cambio
+    public List<T> updateAll(Long userId, List<T> cambios, Map<Long, Long> expectedVersions) {
+        if (cambios.isEmpty()) {
+            return cambios;
+        }
+        userLocks.withLock(userId, () -> {
+            UserRecords<T> records = resident(userId);
+            if (records == null) {
+                throw new IllegalArgumentException("Usuario no encontrado");
+            }
+            for (T updated : cambios) {
+                T actual = updated.getId() != null ? records.get(updated.getId()) : null;
+                if (actual == null) {
+                    throw new IllegalArgumentException(notFoundMessage());
+                }
+                requireVersion(actual, expectedVersions.get(updated.getId()));
+            }
+
+            List<JournalEntry<T>> entries = new ArrayList<>(cambios.size());
+            for (T updated : cambios) {
+                updated.setUserId(userId);
+                updated.setVersion(versionOf(records.get(updated.getId())) + 1);
+                T previous = records.put(updated);
+                indexes.forEach(userIndex -> {
+                    userIndex.removed(userId, previous);
+                    userIndex.added(userId, updated);
+                });
+                entries.add(JournalEntry.put(userId, updated.getId(), updated));
+            }
+            markUnflushed(userId);
+            recordInJournal(userId, entries);
+        });
+        persist(userId);
+        return cambios;
+    }
+
+    public void delete(Long userId, Long id) {
+        delete(userId, id, null);
+    }
+
+    // Borra el registro solo si sigue en expectedVersion (si no es null)
+    public void delete(Long userId, Long id, Long expectedVersion) {
+        userLocks.withLock(userId, () -> {
+            UserRecords<T> records = resident(userId);
+            if (records == null) {
+                throw new IllegalArgumentException("Usuario no encontrado");
+            }
+
+            T actual = records.get(id);
+            if (actual == null) {
+                throw new IllegalArgumentException(notFoundMessage());
+            }
+            requireVersion(actual, expectedVersion);
+            T removed = records.remove(id);
+            indexes.forEach(index -> index.removed(userId, removed));
+            markUnflushed(userId);
+            recordInJournal(userId, JournalEntry.delete(userId, id));
+        });
+
+        persist(userId);
+    }
+
+    // Devuelve los registros del usuario al estado de una copia tomada con findByUserId:
+    // borra los que no estaban y repone los que cambiaron, conservando sus ids. Solo toca
+    // (índices y journal incluidos) los registros que difieren de la copia.
+    public void revertTo(Long userId, List<T> snapshot) {
+        boolean changed = userLocks.withLock(userId, () -> {
+            UserRecords<T> records = residentOrNew(userId);
+            Map<Long, T> previos = new HashMap<>();
+            for (T record : snapshot) {
+                previos.put(record.getId(), record);
+            }
+
+            List<JournalEntry<T>> entries = new ArrayList<>();
+            for (T actual : records.snapshot()) {
+                if (!previos.containsKey(actual.getId())) {
+                    records.remove(actual.getId());
+                    indexes.forEach(index -> index.removed(userId, actual));
+                    entries.add(JournalEntry.delete(userId, actual.getId()));
+                }
+            }
+            for (T previo : snapshot) {
+                T actual = records.get(previo.getId());
+                if (actual != previo) {
+                    T restaurado = previo;
+                    if (actual != null) {
+                        // La versión sigue creciendo: un ETag leído durante el lote no
+                        // debe volver a ser válido. Se cambia en una copia, porque previo
+                        // también está en las listas publicadas antes del lote.
+                        restaurado = copyOf(previo);
+                        restaurado.setVersion(versionOf(actual) + 1);
+                        indexes.forEach(index -> index.removed(userId, actual));
+                    }
+                    T nuevo = restaurado;
+                    records.put(nuevo);
+                    indexes.forEach(index -> index.added(userId, nuevo));
+                    entries.add(JournalEntry.put(userId, nuevo.getId(), nuevo));
+                }
+            }
+            if (entries.isEmpty()) {
+                return false;
+            }
+            markUnflushed(userId);
+            recordInJournal(userId, entries);
+            return true;
+        });
+        if (changed) {
+            persist(userId);
+        }
+    }
+
+    private T copyOf(T record) {
+        return objectMapper.convertValue(record, recordType());
+    }
+
+    // Ejecuta la acción y persiste una sola vez, al final, a cada usuario que haya
+    // modificado. Las llamadas anidadas se suman a la más externa.
+    public <R> R deferPersist(Supplier<R> action) {
+        if (deferred.get() != null) {
+            return action.get();
+        }
+        Set<Long> pendientes = new HashSet<>();
+        deferred.set(pendientes);
+        try {
+            return action.get();
+        } finally {
+            deferred.remove();
+            pendientes.forEach(this::persist);
+        }
+    }
+
+    // Aplica una entrada del journal sobre el mapa en memoria (usado en el replay)
+    private void applyEntry(JournalEntry<T> entry) {
+        UserRecords<T> records = resident(entry.getUserId());
+        if (records == null) {
+            records = new UserRecords<>();
+            userIdToRecords.put(entry.getUserId(), records);
+            touch(entry.getUserId());
+        }
+        markUnflushed(entry.getUserId());
+        if (entry.getOp() == JournalEntry.Op.PUT && entry.getData() != null) {
+            records.put(entry.getData());
+        } else {
+            records.remove(entry.getId());
+        }
+    }
+
+    // Debe llamarse con el lock del usuario tomado para que el orden de sus entradas en el
+    // log coincida con el orden en que se aplicaron sus cambios en memoria. Journal ordena
+    // las escrituras al archivo y anota al usuario junto con su entrada, así que roll() no
+    // puede separarlas. Si no se pudo anexar, el cambio se persiste escribiendo su shard.
+    private void recordInJournal(Long userId, JournalEntry<T> entry) {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.append(entry);
+        } catch (IOException e) {
+            journalFailed(userId, e);
+        }
+    }
+
+    // Variante para lotes: todas las entradas quedan en una sola línea del log
+    private void recordInJournal(Long userId, List<JournalEntry<T>> entries) {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.appendAll(entries);
+        } catch (IOException e) {
+            journalFailed(userId, e);
+        }
+    }
+
+    private void journalFailed(Long userId, IOException e) {
+        logger.error("No se pudo escribir en el journal de {}, se escribe el shard del usuario {}: {}",
+                storeName(), userId, e.getMessage());
+        persistenceScheduler.markDirty(storeName(), userId);
+    }
+
+    private void persist(Long userId) {
+        Set<Long> pendientes = deferred.get();
+        if (pendientes != null) {
+            pendientes.add(userId);
+            return;
+        }
+        if (journal == null) {
+            persistenceScheduler.markDirty(storeName(), userId);
+            return;
+        }
+        // El cambio ya está en el segmento activo; falta forzarlo a disco. Se fuerza todo lo
+        // anexado hasta ahora, así que las peticiones simultáneas comparten un mismo force.
+        // Los shards se compactan en segundo plano.
+        long upTo = journal.lastAppended();
+        persistenceScheduler.awaitForce(() -> syncJournal(upTo));
+        if (journal.entriesSinceSnapshot() >= compactThreshold() && compactionPending.compareAndSet(false, true)) {
+            compactionExecutor.execute(() -> {
+                try {
+                    compact();
+                } finally {
+                    compactionPending.set(false);
+                }
+            });
+        }
+    }
+
+    // Si el force falla el cambio sigue en memoria y su usuario pendiente en el journal: la
+    // próxima compactación escribe su shard. Quien esperaba recibe el error.
+    private void syncJournal(long upTo) {
+        try {
+            journal.sync(upTo);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo forzar el journal de " + storeName(), e);
+        }
+    }
+
+    private void compact() {
+        try {
+            Journal.Rollover rollover = journal.roll();
+            Set<Long> failed = writeShards(rollover.dirtyUsers());
+            if (!failed.isEmpty()) {
+                // Sin sus shards al día los segmentos siguen siendo la única copia de esos
+                // cambios: se conservan y los usuarios vuelven a quedar pendientes para la
+                // próxima compactación (o el próximo arranque, que reaplica los segmentos)
+                journal.markDirty(failed);
+                logger.error("Compactación del journal de {} incompleta: {} shards sin escribir, se conservan los segmentos",
+                        storeName(), failed.size());
+                return;
+            }
+            journal.discardUpTo(rollover.covered());
+        } catch (IOException e) {
+            // Si falla el cambio de segmento o el borrado, los segmentos que queden se
+            // reaplican en el próximo arranque (el replay es idempotente)
+            logger.error("Falló la compactación del journal de {}: {}", storeName(), e.getMessage());
+        }
+    }
+
+    // Volcado del planificador: si algún shard no se pudo escribir lo informa con una
+    // excepción para que esos usuarios se reintenten y nadie los dé por durables
+    private void flushShards(Set<Long> userIds) {
+        Set<Long> failed = writeShards(userIds);
+        if (!failed.isEmpty()) {
+            throw new UncheckedIOException(new IOException(
+                    "No se pudieron escribir " + failed.size() + " shards de " + storeName()));
+        }
+    }
+
+    // Shard pendiente de un usuario: la copia publicada y la marca de su última mutación
+    private record ShardCopy<T>(List<T> records, Long stamp) {
+    }
+
+    // Toma la copia publicada de cada usuario bajo su lock (solo memoria) y escribe fuera de
+    // él. Devuelve los usuarios cuyo shard no se pudo escribir.
+    private Set<Long> writeShards(Set<Long> userIds) {
+        Set<Long> failed = new HashSet<>();
+        for (Long userId : userIds) {
+            ShardCopy<T> copy = userLocks.withLock(userId, () -> {
+                UserRecords<T> records = userIdToRecords.get(userId);
+                if (records == null && workingSet) {
+                    // No residente: su shard ya está al día (no se desaloja con cambios pendientes)
+                    return null;
+                }
+                return new ShardCopy<>(records != null ? records.publish() : List.<T>of(), unflushed.get(userId));
+            });
+            if (copy == null) {
+                continue;
+            }
+            Long stamp = copy.stamp();
+            try {
+                storage.write(userId, copy.records());
+                // Si hubo otra mutación mientras se escribía, sigue pendiente
+                if (stamp != null) {
+                    unflushed.remove(userId, stamp);
+                }
+            } catch (IOException e) {
+                logger.error("No se pudo escribir el shard del usuario {} en {}: {}", userId, storeName(), e.getMessage());
+                failed.add(userId);
+            }
+        }
+        return failed;
+    }
+
+    // Debe llamarse con el lock del usuario tomado
+    private void markUnflushed(Long userId) {
+        long stamp = mutationStamp.incrementAndGet();
+        unflushed.put(userId, stamp);
+        versions.put(userId, stamp);
+    }
+
+    // Registros residentes del usuario; en modo working set carga el shard si no está en
+    // memoria. Devuelve null si el usuario no tiene registros.
+    private UserRecords<T> resident(Long userId) {
+        UserRecords<T> records = userIdToRecords.get(userId);
+        if (!workingSet) {
+            return records;
+        }
+        if (records != null) {
+            hits.increment();
+            touch(userId);
+            return records;
+        }
+        records = load(userId);
+        if (records != null) {
+            touch(userId);
+        }
+        if (userIdToRecords.size() > maxResidentUsers && evictionPending.compareAndSet(false, true)) {
+            // El desalojo toma el lock de cada usuario: corre en el hilo del working set para
+            // no hacerlo desde un hilo que quizá ya tiene el lock de otro usuario
+            evictionExecutor.execute(() -> {
+                try {
+                    evictOverBudget();
+                } finally {
+                    evictionPending.set(false);
+                }
+            });
+        }
+        return records;
+    }
+
+    // Lee el shard del usuario sin tomar ningún lock global: solo un hilo lo lee y los demás
+    // que lo piden mientras tanto esperan su resultado, sin frenar a otros usuarios. No
+    // hace falta su lock: un usuario no residente no tiene cambios en memoria que su shard
+    // no tenga, y quien crea sus registros vacíos (residentOrNew) también pasa por aquí.
+    private UserRecords<T> load(Long userId) {
+        UserRecords<T> records = userIdToRecords.get(userId);
+        if (records != null) {
+            hits.increment();
+            return records;
+        }
+        CompletableFuture<UserRecords<T>> nueva = new CompletableFuture<>();
+        CompletableFuture<UserRecords<T>> enCurso = loading.putIfAbsent(userId, nueva);
+        if (enCurso != null) {
+            hits.increment();
+            try {
+                return enCurso.join();
+            } catch (CompletionException e) {
+                throw (IllegalStateException) e.getCause();
+            }
+        }
+        try {
+            // Otro hilo pudo terminar su carga entre la consulta y el registro de la nuestra
+            records = userIdToRecords.get(userId);
+            if (records == null) {
+                misses.increment();
+                List<T> loaded = storage.read(userId);
+                if (loaded != null) {
+                    // Si residentOrNew publicó los suyos mientras se leía, esos son los vigentes
+                    UserRecords<T> previos = userIdToRecords.putIfAbsent(userId, new UserRecords<>(loaded));
+                    records = previos != null ? previos : userIdToRecords.get(userId);
+                }
+            } else {
+                hits.increment();
+            }
+            nueva.complete(records);
+            return records;
+        } catch (IOException e) {
+            // Sin datos del usuario no se puede operar sobre él sin arriesgar su shard
+            IllegalStateException error = new IllegalStateException(
+                    "No se pudo cargar el shard del usuario " + userId, e);
+            nueva.completeExceptionally(error);
+            throw error;
+        } finally {
+            loading.remove(userId, nueva);
+        }
+    }
+
+    // Registros residentes del usuario, creándolos vacíos si no tiene. Con su lock tomado.
+    private UserRecords<T> residentOrNew(Long userId) {
+        UserRecords<T> records = resident(userId);
+        if (records == null) {
+            records = new UserRecords<>();
+            userIdToRecords.put(userId, records);
+            touch(userId);
+        }
+        return records;
+    }
+
+    private void touch(Long userId) {
+        if (workingSet) {
+            lastAccess.put(userId, System.nanoTime());
+        }
+    }
+
+    // Desaloja los usuarios menos usados hasta quedar en el 90% del máximo. Como evictIdle,
+    // solo corre en el hilo del working set, así que los desalojos nunca se cruzan entre sí.
+    private void evictOverBudget() {
+        int target = maxResidentUsers - maxResidentUsers / 10;
+        List<Map.Entry<Long, Long>> byAccess = new ArrayList<>(lastAccess.entrySet());
+        byAccess.sort(Map.Entry.comparingByValue(Comparator.naturalOrder()));
+        for (Map.Entry<Long, Long> entry : byAccess) {
+            if (userIdToRecords.size() <= target) {
+                break;
+            }
+            evict(entry.getKey());
+        }
+    }
+
+    private void evictIdle() {
+        long cutoff = System.nanoTime() - TimeUnit.MINUTES.toNanos(idleMinutes);
+        for (Map.Entry<Long, Long> entry : new ArrayList<>(lastAccess.entrySet())) {
+            if (entry.getValue() < cutoff) {
+                evict(entry.getKey());
+            }
+        }
+    }
+
+    // Con el lock del usuario: ninguna mutación suya queda a medias ni se pierde
+    private void evict(Long userId) {
+        userLocks.withLock(userId, () -> {
+            if (unflushed.containsKey(userId)) {
+                return;
+            }
+            lastAccess.remove(userId);
+            if (userIdToRecords.remove(userId) != null) {
+                indexes.forEach(index -> index.unloaded(userId));
+                evictions.increment();
+            }
+        });
+    }
+
+    public WorkingSetStats workingSetStats() {
+        return new WorkingSetStats(storeName(), workingSet, userIdToRecords.size(),
+                hits.sum(), misses.sum(), evictions.sum());
+    }
+}
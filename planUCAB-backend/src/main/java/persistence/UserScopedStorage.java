@@ -0,0 +1,47 @@
+package persistence;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+// Almacenamiento de los registros de cada usuario detrás de UserScopedRepository.
+// Implementaciones: UserShardStore (un archivo por usuario) y H2UserScopedStorage.
+public interface UserScopedStorage<T> {
+
+    @FunctionalInterface
+    interface LegacyReader<T> {
+        Map<Long, List<T>> read(Path legacyFile) throws IOException;
+    }
+
+    // Importa el archivo monolítico anterior si el almacenamiento todavía no existe
+    void migrateIfNeeded(Path legacyFile, LegacyReader<T> legacyReader) throws IOException;
+
+    Map<Long, List<T>> loadAll() throws IOException;
+
+    List<Long> userIds() throws IOException;
+
+    // Registros de un usuario, o null si no tiene
+    List<T> read(Long userId) throws IOException;
+
+    // Reemplaza todos los registros del usuario; una lista vacía los elimina
+    void write(Long userId, List<T> records) throws IOException;
+
+    // Consultas que un backend con índices resuelve sin leer todos los registros del
+    // usuario. Devuelven null si el backend no las soporta; el repositorio entonces carga
+    // al usuario y responde desde memoria.
+
+    // Registros que se solapan con [from, to), en orden de inicio e id, posteriores a
+    // (afterStart, afterId) si afterStart no es null, hasta limit
+    default List<T> readOverlapping(Long userId, LocalDateTime from, LocalDateTime to,
+                                    LocalDateTime afterStart, Long afterId, int limit) throws IOException {
+        return null;
+    }
+
+    // Registros cuyo día de la semana es uno de los indicados
+    default List<T> readByDiaSemana(Long userId, Collection<String> dias) throws IOException {
+        return null;
+    }
+}
@@ -0,0 +1,152 @@
+package persistence;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Almacenamiento particionado por usuario: un archivo user-<id>.json (o .bin en formato
+// binario) por usuario dentro del directorio del repositorio, de modo que un cambio solo
+// reescribe el shard afectado.
+public class UserShardStore<T> implements UserScopedStorage<T> {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserShardStore.class);
+    private static final String SHARD_PREFIX = "user-";
+    private static final String SHARD_SUFFIX = ".json";
+    private static final String BINARY_SUFFIX = ".bin";
+
+    @FunctionalInterface
+    public interface ShardReader<T> {
+        List<T> read(Path shard) throws IOException;
+    }
+
+    private final Path directory;
+    private final ObjectWriter writer;
+    private final ShardReader<T> reader;
+    private final SnapshotCodec codec;
+    private final JavaType listType;
+
+    public UserShardStore(Path directory, ObjectWriter writer, ShardReader<T> reader,
+                          SnapshotCodec codec, JavaType listType) {
+        this.directory = directory;
+        this.writer = writer;
+        this.reader = reader;
+        this.codec = codec;
+        this.listType = listType;
+    }
+
+    // Primer arranque con el layout nuevo: reparte el archivo monolítico en shards y lo
+    // renombra a .migrated para no volver a migrarlo
+    @Override
+    public void migrateIfNeeded(Path legacyFile, LegacyReader<T> legacyReader) throws IOException {
+        if (Files.isDirectory(directory)) {
+            return;
+        }
+        Files.createDirectories(directory);
+        if (Files.notExists(legacyFile)) {
+            return;
+        }
+        Map<Long, List<T>> legacy = legacyReader.read(legacyFile);
+        for (Map.Entry<Long, List<T>> entry : legacy.entrySet()) {
+            write(entry.getKey(), entry.getValue());
+        }
+        Files.move(legacyFile, legacyFile.resolveSibling(legacyFile.getFileName() + ".migrated"),
+                StandardCopyOption.REPLACE_EXISTING);
+        logger.info("Migrados {} usuarios de {} a shards en {}", legacy.size(), legacyFile, directory);
+    }
+
+    // Carga todos los shards en paralelo; un shard ilegible solo deja fuera a su usuario.
+    // Registra registros/s y los bytes asignados por los hilos de carga.
+    @Override
+    public Map<Long, List<T>> loadAll() throws IOException {
+        List<Long> userIds = userIds();
+        Map<Long, List<T>> loaded = new ConcurrentHashMap<>();
+        LongAdder recordCount = new LongAdder();
+        LongAdder allocated = new LongAdder();
+        long startNanos = System.nanoTime();
+        userIds.parallelStream().forEach(userId -> {
+            long allocatedBefore = allocatedBytes();
+            try {
+                List<T> records = read(userId);
+                if (records != null) {
+                    loaded.put(userId, records);
+                    recordCount.add(records.size());
+                }
+            } catch (IOException e) {
+                logger.error("No se pudo leer el shard del usuario {} en {}: {}", userId, directory, e.getMessage());
+            } finally {
+                allocated.add(allocatedBytes() - allocatedBefore);
+            }
+        });
+        long elapsedNanos = Math.max(System.nanoTime() - startNanos, 1);
+        long records = recordCount.sum();
+        logger.info("Leídos {} registros de {} shards en {} ms ({} registros/s, {} KB asignados)",
+                records, loaded.size(), elapsedNanos / 1_000_000,
+                records * 1_000_000_000L / elapsedNanos, allocated.sum() / 1024);
+        return loaded;
+    }
+
+    // Usuarios con shard en disco
+    @Override
+    public List<Long> userIds() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(UserShardStore::userIdOf).filter(Objects::nonNull).distinct()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    // Shard de un usuario, o null si no tiene
+    @Override
+    public List<T> read(Long userId) throws IOException {
+        return codec.read(shardPath(userId), listType, reader::read);
+    }
+
+    // Bytes asignados por el hilo actual; 0 si la JVM no lo expone
+    private static long allocatedBytes() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads
+                && threads.isThreadAllocatedMemorySupported()) {
+            return threads.getCurrentThreadAllocatedBytes();
+        }
+        return 0L;
+    }
+
+    @Override
+    public void write(Long userId, List<T> records) throws IOException {
+        Path shard = shardPath(userId);
+        if (records == null || records.isEmpty()) {
+            codec.delete(shard);
+            return;
+        }
+        codec.write(shard, writer, records);
+    }
+
+    private Path shardPath(Long userId) {
+        return directory.resolve(SHARD_PREFIX + userId + SHARD_SUFFIX);
+    }
+
+    private static Long userIdOf(Path shard) {
+        String name = shard.getFileName().toString();
+        String suffix = name.endsWith(SHARD_SUFFIX) ? SHARD_SUFFIX : name.endsWith(BINARY_SUFFIX) ? BINARY_SUFFIX : null;
+        if (!name.startsWith(SHARD_PREFIX) || suffix == null) {
+            return null;
+        }
+        try {
+            return Long.parseLong(name.substring(SHARD_PREFIX.length(), name.length() - suffix.length()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
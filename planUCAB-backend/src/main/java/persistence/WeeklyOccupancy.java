@@ -0,0 +1,160 @@
+package persistence;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+// Ocupación semanal de un usuario con resolución de un minuto: un BitSet de 1440 bits
+// por día y, aparte, los registros que ocupan cada día. Comprobar un rango es un AND
+// palabra a palabra; solo si hay intersección se buscan los ocupantes. Un registro puede
+// ocupar varios tramos (Span) en días distintos: los que cruzan la medianoche o duran
+// varios días se reparten entre todos los días que tocan.
+public class WeeklyOccupancy<T> implements RecordIndex<T> {
+
+    public static final int MINUTES_PER_DAY = 24 * 60;
+
+    // Minutos [startMinute, endMinute) de un día de la semana
+    public record Span(DayOfWeek day, int startMinute, int endMinute) {
+    }
+
+    private record Occupant<T>(T record, int startMinute, int endMinute) {
+    }
+
+    private final Map<DayOfWeek, BitSet> occupied = new EnumMap<>(DayOfWeek.class);
+    private final Map<DayOfWeek, List<Occupant<T>>> owners = new EnumMap<>(DayOfWeek.class);
+    // Tramos que ocupa cada registro; vacío si no se puede interpretar
+    private final Function<T, List<Span>> spansOf;
+
+    public WeeklyOccupancy(Function<T, List<Span>> spansOf, Iterable<T> records) {
+        this.spansOf = spansOf;
+        for (T record : records) {
+            add(record);
+        }
+    }
+
+    // Tramos de un bloque semanal; si fin < inicio cruza la medianoche y sigue al día siguiente
+    public static List<Span> weekly(DayOfWeek day, int startMinute, int endMinute) {
+        if (day == null || startMinute < 0 || endMinute < 0 || startMinute == endMinute) {
+            return List.of();
+        }
+        if (endMinute > startMinute) {
+            return List.of(new Span(day, startMinute, endMinute));
+        }
+        List<Span> spans = new ArrayList<>(2);
+        spans.add(new Span(day, startMinute, MINUTES_PER_DAY));
+        if (endMinute > 0) {
+            spans.add(new Span(day.plus(1), 0, endMinute));
+        }
+        return spans;
+    }
+
+    // Tramos de [start, end) en cada día que toca; una semana o más ocupa todos los días
+    public static List<Span> between(LocalDateTime start, LocalDateTime end) {
+        List<Span> spans = new ArrayList<>();
+        if (start == null || end == null || !end.isAfter(start)) {
+            return spans;
+        }
+        if (!end.isBefore(start.plusDays(7))) {
+            for (DayOfWeek day : DayOfWeek.values()) {
+                spans.add(new Span(day, 0, MINUTES_PER_DAY));
+            }
+            return spans;
+        }
+        for (LocalDate day = start.toLocalDate(); day.atStartOfDay().isBefore(end); day = day.plusDays(1)) {
+            int from = day.equals(start.toLocalDate()) ? minuteOfDay(start) : 0;
+            int to = day.equals(end.toLocalDate()) ? minuteOfDay(end) : MINUTES_PER_DAY;
+            if (to > from) {
+                spans.add(new Span(day.getDayOfWeek(), from, to));
+            }
+        }
+        return spans;
+    }
+
+    private static int minuteOfDay(LocalDateTime dateTime) {
+        return dateTime.toLocalTime().toSecondOfDay() / 60;
+    }
+
+    @Override
+    public synchronized void add(T record) {
+        for (Span span : spansOf.apply(record)) {
+            owners.computeIfAbsent(span.day(), k -> new ArrayList<>())
+                    .add(new Occupant<>(record, span.startMinute(), span.endMinute()));
+            occupied.computeIfAbsent(span.day(), k -> new BitSet(MINUTES_PER_DAY))
+                    .set(span.startMinute(), span.endMinute());
+        }
+    }
+
+    @Override
+    public synchronized void remove(T record) {
+        for (DayOfWeek day : DayOfWeek.values()) {
+            List<Occupant<T>> dayOwners = owners.get(day);
+            if (dayOwners == null || !dayOwners.removeIf(owner -> owner.record().equals(record))) {
+                continue;
+            }
+            // Los rangos pueden solaparse: se reconstruye el día con los ocupantes restantes
+            BitSet bits = new BitSet(MINUTES_PER_DAY);
+            for (Occupant<T> owner : dayOwners) {
+                bits.set(owner.startMinute(), owner.endMinute());
+            }
+            occupied.put(day, bits);
+        }
+    }
+
+    public synchronized boolean isOccupied(DayOfWeek day, int startMinute, int endMinute) {
+        BitSet bits = occupied.get(day);
+        if (bits == null || endMinute <= startMinute) {
+            return false;
+        }
+        BitSet range = new BitSet(MINUTES_PER_DAY);
+        range.set(startMinute, endMinute);
+        return bits.intersects(range);
+    }
+
+    // Tramos ocupados del día ya fusionados, como pares {inicio, fin} en minutos y en orden
+    public synchronized List<int[]> busyRanges(DayOfWeek day) {
+        List<int[]> ranges = new ArrayList<>();
+        BitSet bits = occupied.get(day);
+        if (bits == null) {
+            return ranges;
+        }
+        for (int start = bits.nextSetBit(0); start >= 0; start = bits.nextSetBit(start)) {
+            int end = bits.nextClearBit(start);
+            ranges.add(new int[] { start, end });
+            start = end;
+        }
+        return ranges;
+    }
+
+    // Registros que ocupan algún minuto de [startMinute, endMinute), cada uno una vez
+    public synchronized List<T> occupants(DayOfWeek day, int startMinute, int endMinute) {
+        List<T> result = new ArrayList<>();
+        if (!isOccupied(day, startMinute, endMinute)) {
+            return result;
+        }
+        for (Occupant<T> owner : owners.get(day)) {
+            if (owner.startMinute() < endMinute && owner.endMinute() > startMinute && !result.contains(owner.record())) {
+                result.add(owner.record());
+            }
+        }
+        return result;
+    }
+
+    // Registros que ocupan algún minuto de cualquiera de los tramos, cada uno una vez
+    public List<T> occupants(List<Span> spans) {
+        List<T> result = new ArrayList<>();
+        for (Span span : spans) {
+            for (T record : occupants(span.day(), span.startMinute(), span.endMinute())) {
+                if (!result.contains(record)) {
+                    result.add(record);
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,44 @@
+package persistence;
+
+// Contadores del working set de un repositorio particionado por usuario
+public class WorkingSetStats {
+    private final String store;
+    private final boolean enabled;
+    private final int residentUsers;
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+
+    public WorkingSetStats(String store, boolean enabled, int residentUsers, long hits, long misses, long evictions) {
+        this.store = store;
+        this.enabled = enabled;
+        this.residentUsers = residentUsers;
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+    }
+
+    public String getStore() {
+        return store;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getResidentUsers() {
+        return residentUsers;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+}
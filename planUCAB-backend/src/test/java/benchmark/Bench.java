@@ -0,0 +1,122 @@
+package benchmark;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Map;
+
+// Utilidades de las pruebas de rendimiento (etiqueta "benchmark", fuera de mvn test; se
+// corren con mvn -Pbenchmark test). Miden tiempos con System.nanoTime tras un
+// calentamiento y reportan por log; los tamaños grandes se ajustan con -Dbench.<nombre>.
+public final class Bench {
+
+    public static final String TAG = "benchmark";
+
+    private static final Logger logger = LoggerFactory.getLogger("benchmark");
+
+    private Bench() {
+    }
+
+    public interface Operation {
+        void run() throws Exception;
+    }
+
+    // Tiempos (ns) de cada iteración medida
+    public record Stats(long[] nanos) {
+
+        public double percentileMicros(double percentile) {
+            long[] sorted = nanos.clone();
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1_000.0;
+        }
+
+        public double p50() {
+            return percentileMicros(50);
+        }
+
+        public double p99() {
+            return percentileMicros(99);
+        }
+
+        public double meanMicros() {
+            return Arrays.stream(nanos).average().orElse(0) / 1_000.0;
+        }
+
+        public double opsPerSecond() {
+            long total = Arrays.stream(nanos).sum();
+            return total == 0 ? 0 : nanos.length * 1_000_000_000.0 / total;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("p50 %.1f us, p99 %.1f us, media %.1f us, %.0f ops/s",
+                    p50(), p99(), meanMicros(), opsPerSecond());
+        }
+    }
+
+    // Ejecuta warmup iteraciones sin medir y luego iterations midiendo cada una
+    public static Stats measure(int warmup, int iterations, Operation operation) {
+        try {
+            for (int i = 0; i < warmup; i++) {
+                operation.run();
+            }
+            long[] nanos = new long[iterations];
+            for (int i = 0; i < iterations; i++) {
+                long start = System.nanoTime();
+                operation.run();
+                nanos[i] = System.nanoTime() - start;
+            }
+            return new Stats(nanos);
+        } catch (Exception e) {
+            throw new IllegalStateException("Falló la operación medida", e);
+        }
+    }
+
+    // Tiempo total (ms) de una sola ejecución
+    public static double millis(Operation operation) {
+        long start = System.nanoTime();
+        try {
+            operation.run();
+        } catch (Exception e) {
+            throw new IllegalStateException("Falló la operación medida", e);
+        }
+        return (System.nanoTime() - start) / 1_000_000.0;
+    }
+
+    // Bytes asignados por el hilo actual durante la operación
+    public static long allocatedBytes(Operation operation) {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long before = threads.getCurrentThreadAllocatedBytes();
+        try {
+            operation.run();
+        } catch (Exception e) {
+            throw new IllegalStateException("Falló la operación medida", e);
+        }
+        return threads.getCurrentThreadAllocatedBytes() - before;
+    }
+
+    // Contexto con solo los componentes indicados y las propiedades dadas, para comparar
+    // configuraciones (modo de almacenamiento, tamaño) dentro de una misma prueba
+    public static AnnotationConfigApplicationContext context(Map<String, Object> properties, Class<?>... components) {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("benchmark", properties));
+        context.register(components);
+        context.refresh();
+        return context;
+    }
+
+    // Tamaño configurable con -Dbench.<nombre>=...
+    public static int size(String name, int defaultValue) {
+        return Integer.getInteger("bench." + name, defaultValue);
+    }
+
+    public static void report(String format, Object... args) {
+        logger.info(format, args);
+    }
+}
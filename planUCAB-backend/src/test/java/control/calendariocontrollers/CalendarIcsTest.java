@@ -0,0 +1,111 @@
+package control.calendariocontrollers;
+
+import control.evaluacioncontrollers.EvaluacionRepository;
+import control.eventcontrollers.EventRepository;
+import control.horariocontrollers.HorarioRepository;
+import model.Horario;
+import model.Materia;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import persistence.PersistenceScheduler;
+import persistence.SnapshotCodec;
+import persistence.StorageFactory;
+import persistence.UserLocks;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Path;
+import java.time.ZoneId;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Export iCalendar: las clases se repiten desde el inicio del periodo (no desde la semana
+// en curso) y todas las horas llevan el TZID de la zona del calendario
+@SpringJUnitConfig({ CalendarService.class, EventRepository.class, HorarioRepository.class,
+        EvaluacionRepository.class, UserLocks.class, PersistenceScheduler.class, SnapshotCodec.class,
+        StorageFactory.class })
+class CalendarIcsTest {
+
+    private static final Long USER = 1L;
+
+    @TempDir
+    static Path dataDir;
+
+    @DynamicPropertySource
+    static void storage(DynamicPropertyRegistry registry) {
+        registry.add("event.storage.path", () -> dataDir.resolve("eventos.json").toString());
+        registry.add("event.storage.shards", () -> dataDir.resolve("eventos").toString());
+        registry.add("horario.storage.path", () -> dataDir.resolve("horarios.json").toString());
+        registry.add("horario.storage.shards", () -> dataDir.resolve("horarios").toString());
+        registry.add("evaluacion.storage.path", () -> dataDir.resolve("evaluaciones.json").toString());
+        registry.add("evaluacion.storage.shards", () -> dataDir.resolve("evaluaciones").toString());
+        registry.add("persistence.sequence.path", () -> dataDir.resolve("sequences").toString());
+        registry.add("calendario.zona-horaria", () -> "America/Caracas");
+        // Un miércoles
+        registry.add("calendario.inicio-periodo", () -> "2027-09-15");
+    }
+
+    @Autowired
+    private CalendarService calendarService;
+
+    @Autowired
+    private HorarioRepository horarioRepository;
+
+    private static Horario horario(String dia) {
+        Materia materia = new Materia();
+        materia.setNombre("Cálculo");
+        Horario horario = new Horario();
+        horario.setMateria(materia);
+        horario.setDiaSemana(dia);
+        horario.setStartTime("07:00");
+        horario.setEndTime("09:00");
+        horario.setColorHex("#112233");
+        return horario;
+    }
+
+    private static String ics(IcsWriterAction action) throws IOException {
+        StringWriter out = new StringWriter();
+        action.write(new IcsWriter(out));
+        return out.toString();
+    }
+
+    private interface IcsWriterAction {
+        void write(IcsWriter ics) throws IOException;
+    }
+
+    @Test
+    void weeklyClassesStartAtTheirFirstClassOfTheTerm() throws IOException {
+        horarioRepository.saveAll(USER, List.of(horario("Lunes"), horario("Miércoles"), horario("Jueves")));
+        String etag = calendarService.icsTag(USER);
+
+        StringWriter out = new StringWriter();
+        calendarService.writeIcs(USER, out);
+
+        assertThat(out.toString())
+                .contains("BEGIN:VTIMEZONE\r\nTZID:America/Caracas\r\n")
+                .contains("TZOFFSETTO:-0400\r\n")
+                // El lunes de la semana de inicio es anterior al periodo: pasa al siguiente
+                .contains("DTSTART;TZID=America/Caracas:20270920T070000\r\n")
+                .contains("DTSTART;TZID=America/Caracas:20270915T070000\r\n")
+                .contains("DTSTART;TZID=America/Caracas:20270916T070000\r\n")
+                .contains("DTEND;TZID=America/Caracas:20270920T090000\r\n")
+                .doesNotContain("DTSTART:2027");
+        assertThat(calendarService.icsTag(USER)).isEqualTo(etag);
+    }
+
+    @Test
+    void timezoneWithDaylightSavingHasYearlyRules() throws IOException {
+        String vtimezone = ics(ics -> ics.timezone(ZoneId.of("America/New_York")));
+
+        // Segundo domingo de marzo y primero de noviembre, a las 2:00 locales
+        assertThat(vtimezone).contains("BEGIN:DAYLIGHT\r\nDTSTART:19700308T020000\r\nTZOFFSETFROM:-0500\r\n"
+                + "TZOFFSETTO:-0400\r\nRRULE:FREQ=YEARLY;BYMONTH=3;BYDAY=SU;BYMONTHDAY=8,9,10,11,12,13,14\r\n");
+        assertThat(vtimezone).contains("BEGIN:STANDARD\r\nDTSTART:19701101T020000\r\nTZOFFSETFROM:-0400\r\n"
+                + "TZOFFSETTO:-0500\r\nRRULE:FREQ=YEARLY;BYMONTH=11;BYDAY=SU;BYMONTHDAY=1,2,3,4,5,6,7\r\n");
+    }
+}
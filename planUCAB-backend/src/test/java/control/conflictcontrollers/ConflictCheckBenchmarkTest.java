@@ -0,0 +1,187 @@
+package control.conflictcontrollers;
+
+import benchmark.Bench;
+import control.evaluacioncontrollers.EvaluacionRepository;
+import control.eventcontrollers.CreateEventRequest;
+import control.eventcontrollers.EventRepository;
+import control.eventcontrollers.EventService;
+import control.horariocontrollers.HorarioRepository;
+import model.DiaSemana;
+import model.Evaluacion;
+import model.Event;
+import model.Horario;
+import model.Materia;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import persistence.PersistenceScheduler;
+import persistence.SnapshotCodec;
+import persistence.StorageFactory;
+import persistence.UserLocks;
+
+import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Costo por save de la revisión de conflictos a medida que el usuario acumula registros:
+// ConflictEngine (índices de intervalos y semana tipo) frente al recorrido lineal de las
+// tres listas que hacían antes los servicios, y el createEvent completo (en modo async,
+// para medir la revisión y no el disco). Los bloques ocupan una hora de cada tres y cada
+// consulta cae en un hueco, así que ninguna termina antes de revisar todo.
+@Tag(Bench.TAG)
+class ConflictCheckBenchmarkTest {
+
+    private static final LocalDateTime ORIGIN = LocalDateTime.of(2030, 1, 7, 0, 0);
+    private static final Long USER = 1L;
+
+    @TempDir
+    Path dataDir;
+
+    private static LocalDateTime slot(int n) {
+        return ORIGIN.plusHours(3L * n);
+    }
+
+    private static Event event(int n) {
+        Event event = new Event();
+        event.setName("Evento " + n);
+        event.setColorHex("#336699");
+        event.setStartDateTime(slot(n));
+        event.setEndDateTime(slot(n).plusHours(1));
+        return event;
+    }
+
+    private static Evaluacion evaluacion(int n) {
+        Evaluacion evaluacion = new Evaluacion();
+        evaluacion.setTitulo("Parcial " + n);
+        evaluacion.setColorHex("#993366");
+        evaluacion.setStartDateTime(slot(n));
+        evaluacion.setEndDateTime(slot(n).plusHours(1));
+        return evaluacion;
+    }
+
+    // Clases de 09:00 a 10:00 y de 15:00 a 16:00, horas que también ocupan los eventos
+    private static List<Horario> horarios() {
+        List<Horario> horarios = new ArrayList<>();
+        for (DayOfWeek dia : List.of(DayOfWeek.MONDAY, DayOfWeek.TUESDAY, DayOfWeek.WEDNESDAY, DayOfWeek.THURSDAY,
+                DayOfWeek.FRIDAY, DayOfWeek.SATURDAY)) {
+            for (String inicio : List.of("09:00", "15:00")) {
+                Materia materia = new Materia();
+                materia.setNombre("Materia");
+                Horario horario = new Horario();
+                horario.setMateria(materia);
+                horario.setDiaSemana(DiaSemana.nombre(dia));
+                horario.setStartTime(inicio);
+                horario.setEndTime(inicio.equals("09:00") ? "10:00" : "16:00");
+                horario.setColorHex("#112233");
+                horarios.add(horario);
+            }
+        }
+        return horarios;
+    }
+
+    // Lo que hacían los servicios antes: recorrer las tres listas completas
+    private static boolean linearConflict(List<Event> events, List<Evaluacion> evaluaciones, List<Horario> horarios,
+                                          LocalDateTime start, LocalDateTime end) {
+        for (Event event : events) {
+            if (event.getStartDateTime().isBefore(end) && event.getEndDateTime().isAfter(start)) {
+                return true;
+            }
+        }
+        for (Evaluacion evaluacion : evaluaciones) {
+            if (evaluacion.getStartDateTime().isBefore(end) && evaluacion.getEndDateTime().isAfter(start)) {
+                return true;
+            }
+        }
+        for (Horario horario : horarios) {
+            if (DiaSemana.toDayOfWeek(horario.getDiaSemana()) == start.getDayOfWeek()
+                    && LocalTime.parse(horario.getStartTime()).isBefore(end.toLocalTime())
+                    && LocalTime.parse(horario.getEndTime()).isAfter(start.toLocalTime())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static CreateEventRequest request(LocalDateTime start) {
+        CreateEventRequest request = new CreateEventRequest();
+        request.setName("Nuevo");
+        request.setDate(start.toLocalDate().toString());
+        request.setStartTime(start.toLocalTime().toString());
+        request.setEndTime(start.toLocalTime().plusHours(1).toString());
+        request.setColorHex("#336699");
+        return request;
+    }
+
+    private AnnotationConfigApplicationContext context(Path dir) {
+        Map<String, Object> properties = Map.of(
+                "event.storage.path", dir.resolve("eventos.json").toString(),
+                "event.storage.shards", dir.resolve("eventos").toString(),
+                "horario.storage.path", dir.resolve("horarios.json").toString(),
+                "horario.storage.shards", dir.resolve("horarios").toString(),
+                "evaluacion.storage.path", dir.resolve("evaluaciones.json").toString(),
+                "evaluacion.storage.shards", dir.resolve("evaluaciones").toString(),
+                "persistence.sequence.path", dir.resolve("sequences").toString(),
+                "persistence.durability", "async");
+        return Bench.context(properties, EventService.class, ConflictEngine.class, EventRepository.class,
+                HorarioRepository.class, EvaluacionRepository.class, UserLocks.class, PersistenceScheduler.class,
+                SnapshotCodec.class, StorageFactory.class);
+    }
+
+    @Test
+    void perSaveCostAsEntriesAccumulate() {
+        for (int stored : List.of(100, 1_000, Bench.size("conflict.medium", 10_000),
+                Bench.size("conflict.large", 100_000))) {
+            try (AnnotationConfigApplicationContext context = context(dataDir.resolve("n" + stored))) {
+                EventRepository eventRepository = context.getBean(EventRepository.class);
+                EvaluacionRepository evaluacionRepository = context.getBean(EvaluacionRepository.class);
+                HorarioRepository horarioRepository = context.getBean(HorarioRepository.class);
+                List<Event> events = new ArrayList<>();
+                List<Evaluacion> evaluaciones = new ArrayList<>();
+                for (int n = 0; n < stored; n++) {
+                    if (n % 10 == 9) {
+                        evaluaciones.add(evaluacion(n));
+                    } else {
+                        events.add(event(n));
+                    }
+                }
+                eventRepository.saveAll(USER, events);
+                evaluacionRepository.saveAll(USER, evaluaciones);
+                horarioRepository.saveAll(USER, horarios());
+                ConflictEngine engine = context.getBean(ConflictEngine.class);
+                EventService eventService = context.getBean(EventService.class);
+
+                // Huecos: 01:30-02:30 después de cada bloque
+                int[] next = new int[3];
+                Bench.Stats indexed = Bench.measure(1000, 5000, () -> {
+                    LocalDateTime start = slot(next[0]++ % stored).plusMinutes(90);
+                    engine.checkDated(USER, "El evento", start, start.plusHours(1), b -> false);
+                });
+                List<Event> eventList = eventRepository.findByUserId(USER);
+                List<Evaluacion> evaluacionList = evaluacionRepository.findByUserId(USER);
+                List<Horario> horarioList = horarioRepository.findByUserId(USER);
+                int iterations = stored >= 100_000 ? 500 : 5000;
+                int[] conflicts = new int[1];
+                Bench.Stats linear = Bench.measure(iterations / 5, iterations, () -> {
+                    LocalDateTime start = slot(next[1]++ % stored).plusMinutes(90);
+                    if (linearConflict(eventList, evaluacionList, horarioList, start, start.plusHours(1))) {
+                        conflicts[0]++;
+                    }
+                });
+                assertThat(conflicts[0]).isZero();
+                // Cada save ocupa un hueco distinto, así el usuario sigue acumulando
+                Bench.Stats saves = Bench.measure(200, 2000, () ->
+                        eventService.createEvent(USER, request(slot(next[2]++).plusMinutes(90))));
+
+                Bench.report("{} registros: revision ConflictEngine {} | lineal {}", stored, indexed, linear);
+                Bench.report("{} registros: createEvent completo {}", stored, saves);
+            }
+        }
+    }
+}
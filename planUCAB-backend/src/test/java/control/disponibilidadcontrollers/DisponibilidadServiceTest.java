@@ -0,0 +1,45 @@
+package control.disponibilidadcontrollers;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Límites que se validan antes de tocar los repositorios (IllegalArgumentException -> 400)
+class DisponibilidadServiceTest {
+
+    private static final LocalDateTime FROM = LocalDateTime.of(2027, 9, 1, 0, 0);
+
+    private final DisponibilidadService service = new DisponibilidadService(null, 1);
+
+    @Test
+    void rangeUpToTheMaximumIsAccepted() {
+        assertThatCode(() -> service.validateRange(FROM, FROM.plusDays(DisponibilidadService.MAX_RANGE_DAYS), 30))
+                .doesNotThrowAnyException();
+    }
+
+    @Test
+    void rangeLongerThanTheMaximumIsRejected() {
+        assertThatThrownBy(() -> service.validateRange(FROM,
+                FROM.plusDays(DisponibilidadService.MAX_RANGE_DAYS).plusMinutes(1), 30))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining(String.valueOf(DisponibilidadService.MAX_RANGE_DAYS));
+    }
+
+    @Test
+    void groupLargerThanTheMaximumIsRejected() {
+        GroupFreeSlotsRequest request = new GroupFreeSlotsRequest();
+        List<Long> userIds = LongStream.rangeClosed(1, DisponibilidadService.MAX_GROUP_SIZE + 1).boxed().toList();
+        request.setUserIds(userIds);
+        request.setFrom(FROM);
+        request.setTo(FROM.plusDays(7));
+
+        assertThatThrownBy(() -> service.groupFreeSlots(request))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining(String.valueOf(DisponibilidadService.MAX_GROUP_SIZE));
+    }
+}
@@ -0,0 +1,179 @@
+package control.disponibilidadcontrollers;
+
+import benchmark.Bench;
+import control.conflictcontrollers.ConflictEngine;
+import control.evaluacioncontrollers.EvaluacionRepository;
+import control.eventcontrollers.EventRepository;
+import control.horariocontrollers.HorarioRepository;
+import model.Evaluacion;
+import model.Event;
+import model.Horario;
+import model.Materia;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import persistence.PersistenceScheduler;
+import persistence.SnapshotCodec;
+import persistence.StorageFactory;
+import persistence.UserLocks;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Huecos libres de un estudiante con horario completo (12 clases semanales), 3 eventos
+// por semana y una evaluación semanal, sobre un semestre (20 semanas) y sobre el rango
+// máximo de 366 días; y huecos en común de grupos de estudiantes así
+@Tag(Bench.TAG)
+class FreeSlotsBenchmarkTest {
+
+    private static final Long USER = 1L;
+    private static final LocalDateTime SEMESTER_START = LocalDateTime.of(2027, 9, 13, 0, 0);
+    private static final int WEEKS = 20;
+    private static final String[] DIAS = { "Lunes", "Martes", "Miércoles", "Jueves", "Viernes", "Sábado" };
+
+    @TempDir
+    Path dataDir;
+
+    private static Materia materia(int n) {
+        Materia materia = new Materia();
+        materia.setNombre("Materia " + n);
+        return materia;
+    }
+
+    private static Horario horario(int n) {
+        Horario horario = new Horario();
+        horario.setMateria(materia(n % 6));
+        horario.setDiaSemana(DIAS[n % DIAS.length]);
+        // Dos bloques por día: 07:00-09:00 y 11:00-13:00
+        int inicio = n < DIAS.length ? 7 : 11;
+        horario.setStartTime(String.format("%02d:00", inicio));
+        horario.setEndTime(String.format("%02d:00", inicio + 2));
+        horario.setLocation("A-" + n);
+        horario.setColorHex("#112233");
+        return horario;
+    }
+
+    private static Event event(LocalDateTime start) {
+        Event event = new Event();
+        event.setName("Evento");
+        event.setColorHex("#336699");
+        event.setStartDateTime(start);
+        event.setEndDateTime(start.plusMinutes(90));
+        return event;
+    }
+
+    private static Evaluacion evaluacion(LocalDateTime start) {
+        Evaluacion evaluacion = new Evaluacion();
+        evaluacion.setTitulo("Parcial");
+        evaluacion.setMateria(materia(1));
+        evaluacion.setColorHex("#993366");
+        evaluacion.setStartDateTime(start);
+        evaluacion.setEndDateTime(start.plusHours(2));
+        return evaluacion;
+    }
+
+    private static int count(DisponibilidadService service, LocalDateTime from, LocalDateTime to) {
+        int[] slots = new int[1];
+        service.forEachFreeSlot(USER, from, to, 30, slot -> slots[0]++);
+        return slots[0];
+    }
+
+    private AnnotationConfigApplicationContext context(Path dir) {
+        Map<String, Object> properties = Map.of(
+                "event.storage.path", dir.resolve("eventos.json").toString(),
+                "event.storage.shards", dir.resolve("eventos").toString(),
+                "horario.storage.path", dir.resolve("horarios.json").toString(),
+                "horario.storage.shards", dir.resolve("horarios").toString(),
+                "evaluacion.storage.path", dir.resolve("evaluaciones.json").toString(),
+                "evaluacion.storage.shards", dir.resolve("evaluaciones").toString(),
+                "persistence.sequence.path", dir.resolve("sequences").toString(),
+                "persistence.durability", "async");
+        return Bench.context(properties, DisponibilidadService.class, ConflictEngine.class, EventRepository.class,
+                HorarioRepository.class, EvaluacionRepository.class, UserLocks.class, PersistenceScheduler.class,
+                SnapshotCodec.class, StorageFactory.class);
+    }
+
+    // Horario completo más eventos y evaluaciones durante weeks semanas; shift desplaza los
+    // eventos para que cada usuario tenga una agenda algo distinta
+    private static void populate(AnnotationConfigApplicationContext context, Long userId, int weeks, int shift) {
+        List<Horario> horarios = new ArrayList<>();
+        for (int n = 0; n < 2 * DIAS.length; n++) {
+            horarios.add(horario(n));
+        }
+        context.getBean(HorarioRepository.class).saveAll(userId, horarios);
+        List<Event> events = new ArrayList<>();
+        List<Evaluacion> evaluaciones = new ArrayList<>();
+        for (int week = 0; week < weeks; week++) {
+            LocalDateTime monday = SEMESTER_START.plusWeeks(week).plusMinutes(30L * (shift % 8));
+            events.add(event(monday.plusHours(15)));
+            events.add(event(monday.plusDays(2).plusHours(16)));
+            events.add(event(monday.plusDays(4).plusHours(18)));
+            evaluaciones.add(evaluacion(monday.plusDays(3).plusHours(9)));
+        }
+        context.getBean(EventRepository.class).saveAll(userId, events);
+        context.getBean(EvaluacionRepository.class).saveAll(userId, evaluaciones);
+    }
+
+    private static long groupThreads() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(t -> t.getName().startsWith("disponibilidad-grupo-")).count();
+    }
+
+    @Test
+    void freeSlotsOverASemester() {
+        try (AnnotationConfigApplicationContext context = context(dataDir.resolve("semestre"))) {
+            populate(context, USER, 53, 0);
+            DisponibilidadService service = context.getBean(DisponibilidadService.class);
+            LocalDateTime semesterEnd = SEMESTER_START.plusWeeks(WEEKS);
+            LocalDateTime yearEnd = SEMESTER_START.plusDays(DisponibilidadService.MAX_RANGE_DAYS);
+            assertThat(count(service, SEMESTER_START, semesterEnd)).isPositive();
+
+            Bench.Stats semester = Bench.measure(50, 300, () -> count(service, SEMESTER_START, semesterEnd));
+            Bench.Stats year = Bench.measure(20, 100, () -> count(service, SEMESTER_START, yearEnd));
+            Bench.report("Huecos libres de un semestre ({} semanas, {} huecos): {}", WEEKS,
+                    count(service, SEMESTER_START, semesterEnd), semester);
+            Bench.report("Huecos libres de {} dias ({} huecos): {}", DisponibilidadService.MAX_RANGE_DAYS,
+                    count(service, SEMESTER_START, yearEnd), year);
+        }
+    }
+
+    // Huecos en común de una semana para grupos de 2 a MAX_GROUP_SIZE miembros, todos
+    // libres y al menos la mitad libres; el pool propio no pasa de disponibilidad.group-threads
+    @Test
+    void groupFreeSlotsFrom2To1000Members() {
+        try (AnnotationConfigApplicationContext context = context(dataDir.resolve("grupos"))) {
+            int members = DisponibilidadService.MAX_GROUP_SIZE;
+            for (long userId = 1; userId <= members; userId++) {
+                populate(context, userId, 2, (int) userId);
+            }
+            DisponibilidadService service = context.getBean(DisponibilidadService.class);
+            long peakThreads = 0;
+            for (int size : List.of(2, 10, 100, members)) {
+                List<Long> userIds = LongStream.rangeClosed(1, size).boxed().toList();
+                for (Integer minFree : Arrays.asList(null, Math.max(1, size / 2))) {
+                    GroupFreeSlotsRequest request = new GroupFreeSlotsRequest();
+                    request.setUserIds(userIds);
+                    request.setFrom(SEMESTER_START);
+                    request.setTo(SEMESTER_START.plusWeeks(1));
+                    request.setMinFree(minFree);
+                    int iterations = size >= 100 ? 20 : 200;
+                    Bench.Stats stats = Bench.measure(iterations / 4, iterations, () -> service.groupFreeSlots(request));
+                    peakThreads = Math.max(peakThreads, groupThreads());
+                    Bench.report("Grupo de {} ({}): {} huecos, {}", size,
+                            minFree == null ? "todos libres" : "minFree " + minFree,
+                            service.groupFreeSlots(request).size(), stats);
+                }
+            }
+            Bench.report("Hilos del pool de grupos: {}", peakThreads);
+            assertThat(peakThreads).isLessThanOrEqualTo(4);
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package control.eventcontrollers;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import control.conflictcontrollers.ConflictEngine;
+import control.evaluacioncontrollers.EvaluacionRepository;
+import control.horariocontrollers.HorarioRepository;
+import exceptions.HorarioConflictoExcepcion;
+import exceptions.VersionConflictException;
+import model.Event;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import persistence.CountingStorageFactory;
+import persistence.PersistenceScheduler;
+import persistence.SnapshotCodec;
+import persistence.UserLocks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Peticiones simultáneas en modo group-commit: la revisión de conflictos y el guardado
+// van bajo el lock del usuario y la espera del volcado fuera de él. Cada prueba usa sus
+// propios usuarios, así ninguna depende de lo que dejaron las demás.
+@SpringJUnitConfig({ EventService.class, EventRepository.class, HorarioRepository.class,
+        EvaluacionRepository.class, ConflictEngine.class, UserLocks.class, PersistenceScheduler.class,
+        SnapshotCodec.class, CountingStorageFactory.class })
+class EventServiceConcurrencyTest {
+
+    private static final int THREADS = 32;
+    private static final LocalDate DIA = LocalDate.now().plusYears(1);
+
+    @TempDir
+    static Path dataDir;
+
+    @DynamicPropertySource
+    static void storage(DynamicPropertyRegistry registry) {
+        registry.add("event.storage.path", () -> dataDir.resolve("eventos.json").toString());
+        registry.add("event.storage.shards", () -> dataDir.resolve("eventos").toString());
+        registry.add("horario.storage.path", () -> dataDir.resolve("horarios.json").toString());
+        registry.add("horario.storage.shards", () -> dataDir.resolve("horarios").toString());
+        registry.add("evaluacion.storage.path", () -> dataDir.resolve("evaluaciones.json").toString());
+        registry.add("evaluacion.storage.shards", () -> dataDir.resolve("evaluaciones").toString());
+        registry.add("persistence.sequence.path", () -> dataDir.resolve("sequences").toString());
+        registry.add("persistence.durability", () -> "group-commit");
+        registry.add("persistence.flush-interval-ms", () -> "200");
+    }
+
+    @Autowired
+    private EventService eventService;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private CountingStorageFactory storageFactory;
+
+    private static CreateEventRequest request(String name, LocalDate date, String start, String end) {
+        CreateEventRequest request = new CreateEventRequest();
+        request.setName(name);
+        request.setLocation("Aula");
+        request.setDate(date.toString());
+        request.setStartTime(start);
+        request.setEndTime(end);
+        request.setColorHex("#336699");
+        return request;
+    }
+
+    // Ejecuta las tareas a la vez (todas esperan en la misma barrera) y devuelve sus resultados
+    private static <R> List<Future<R>> runTogether(List<Callable<R>> tasks) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(tasks.size(), THREADS));
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<R>> futures = new ArrayList<>();
+            for (Callable<R> task : tasks) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return task.call();
+                }));
+            }
+            start.countDown();
+            return futures;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    // Registros de cada usuario según los shards en disco
+    private static Map<Long, List<JsonNode>> onDisk() throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        Map<Long, List<JsonNode>> porUsuario = new HashMap<>();
+        try (Stream<Path> shards = Files.list(dataDir.resolve("eventos"))) {
+            for (Path shard : shards.filter(p -> p.toString().endsWith(".json")).toList()) {
+                for (JsonNode record : mapper.readTree(shard.toFile())) {
+                    porUsuario.computeIfAbsent(record.get("userId").asLong(), k -> new ArrayList<>()).add(record);
+                }
+            }
+        }
+        return porUsuario;
+    }
+
+    @Test
+    void overlappingCreatesForTheSameSlotBookItOnce() throws Exception {
+        // Todos contienen 10:40-10:45, así que cada par se solapa
+        String[][] tramos = { { "10:00", "11:00" }, { "10:30", "11:30" }, { "09:30", "10:45" }, { "10:40", "12:00" } };
+        List<Callable<Event>> tasks = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            String[] tramo = tramos[i % tramos.length];
+            String name = "Reserva " + i;
+            tasks.add(() -> eventService.createEvent(10L, request(name, DIA, tramo[0], tramo[1])));
+        }
+
+        int booked = 0;
+        int rejected = 0;
+        for (Future<Event> future : runTogether(tasks)) {
+            try {
+                future.get();
+                booked++;
+            } catch (ExecutionException e) {
+                assertThat(e.getCause()).isInstanceOf(HorarioConflictoExcepcion.class);
+                rejected++;
+            }
+        }
+
+        assertThat(booked).isEqualTo(1);
+        assertThat(rejected).isEqualTo(THREADS - 1);
+        assertThat(eventRepository.findByUserId(10L)).hasSize(1);
+        assertThat(onDisk().get(10L)).hasSize(1);
+    }
+
+    @Test
+    void concurrentCreatesAndReadsLoseNothing() throws Exception {
+        int users = 4;
+        int perUser = 50;
+        int readers = 4;
+        AtomicBoolean writing = new AtomicBoolean(true);
+        List<Callable<Object>> tasks = new ArrayList<>();
+        // Lectores que recorren las listas y páginas mientras se escribe (van primero para
+        // tener hilo desde el inicio)
+        for (int r = 0; r < readers; r++) {
+            tasks.add(() -> {
+                int lecturas = 0;
+                while (writing.get()) {
+                    for (long userId = 1; userId <= users; userId++) {
+                        for (Event event : eventService.getEventsByUser(userId)) {
+                            assertThat(event.getUserId()).isEqualTo(userId);
+                        }
+                        eventService.getEventsByUser(userId, DIA.atStartOfDay(), DIA.plusDays(perUser).atStartOfDay(),
+                                null, 10);
+                    }
+                    lecturas++;
+                }
+                return lecturas;
+            });
+        }
+        for (int i = 0; i < perUser; i++) {
+            for (long userId = 1; userId <= users; userId++) {
+                long user = userId;
+                LocalDate date = DIA.plusDays(i);
+                tasks.add(() -> eventService.createEvent(user, request("Evento " + user, date, "08:00", "09:00")));
+            }
+        }
+
+        List<Future<Object>> futures = runTogether(tasks);
+        for (Future<Object> future : futures.subList(readers, futures.size())) {
+            future.get();
+        }
+        writing.set(false);
+        for (Future<Object> future : futures.subList(0, readers)) {
+            future.get();
+        }
+
+        Set<Long> ids = new HashSet<>();
+        Map<Long, List<JsonNode>> disco = onDisk();
+        for (long userId = 1; userId <= users; userId++) {
+            List<Event> events = eventService.getEventsByUser(userId);
+            assertThat(events).hasSize(perUser);
+            events.forEach(event -> ids.add(event.getId()));
+            // Group commit: cuando la petición retorna su cambio ya está en el shard
+            assertThat(disco.get(userId)).hasSize(perUser);
+        }
+        assertThat(ids).hasSize(users * perUser);
+    }
+
+    @Test
+    void concurrentUpdatesOfTheSameVersionApplyOnce() throws Exception {
+        Event event = eventService.createEvent(20L, request("Original", DIA, "14:00", "15:00"));
+        List<Callable<Event>> tasks = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            String name = "Edición " + i;
+            tasks.add(() -> eventService.updateEvent(20L, event.getId(), request(name, DIA, "14:00", "15:00"), 1L));
+        }
+
+        List<Event> applied = new ArrayList<>();
+        for (Future<Event> future : runTogether(tasks)) {
+            try {
+                applied.add(future.get());
+            } catch (ExecutionException e) {
+                assertThat(e.getCause()).isInstanceOf(VersionConflictException.class);
+            }
+        }
+
+        assertThat(applied).hasSize(1);
+        Event stored = eventRepository.findById(20L, event.getId());
+        assertThat(stored.getVersion()).isEqualTo(2L);
+        assertThat(stored.getName()).isEqualTo(applied.get(0).getName());
+        assertThat(onDisk().get(20L)).singleElement()
+                .satisfies(record -> assertThat(record.get("name").asText()).isEqualTo(stored.getName()));
+    }
+
+    @Test
+    void requestsOfTheSameUserShareAGroupCommit() throws Exception {
+        int requests = 16;
+        storageFactory.reset();
+        List<Callable<Event>> tasks = new ArrayList<>();
+        for (int i = 0; i < requests; i++) {
+            LocalDate date = DIA.plusDays(i);
+            tasks.add(() -> eventService.createEvent(30L, request("Lote", date, "16:00", "17:00")));
+        }
+        for (Future<Event> future : runTogether(tasks)) {
+            future.get();
+        }
+
+        assertThat(eventRepository.findByUserId(30L)).hasSize(requests);
+        // Si la espera del volcado ocurriera con el lock tomado, cada petición tendría el
+        // suyo; fuera del lock las que llegan durante el intervalo entran al mismo
+        assertThat(storageFactory.writes("eventos")).isLessThan(requests / 2);
+    }
+}
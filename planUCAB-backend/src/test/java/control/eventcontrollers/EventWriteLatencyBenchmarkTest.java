@@ -0,0 +1,85 @@
+package control.eventcontrollers;
+
+import benchmark.Bench;
+import model.Event;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import persistence.PersistenceScheduler;
+import persistence.SnapshotCodec;
+import persistence.StorageFactory;
+import persistence.UserLocks;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Latencia p99 de un save durable con 1k y 100k eventos guardados, con el journal
+// (anexar + force agrupado) y con snapshots (reescribir el shard del usuario). Los eventos
+// se reparten entre USERS usuarios, así que con 100k cada shard tiene 100 veces más
+// registros que con 1k.
+@Tag(Bench.TAG)
+class EventWriteLatencyBenchmarkTest {
+
+    private static final int USERS = 100;
+
+    @TempDir
+    Path dataDir;
+
+    private static Event event(int n) {
+        Event event = new Event();
+        event.setName("Evento " + n);
+        event.setLocation("Aula " + (n % 40));
+        event.setColorHex("#336699");
+        LocalDateTime start = LocalDateTime.of(2030, 1, 1, 8, 0).plusHours(n);
+        event.setStartDateTime(start);
+        event.setEndDateTime(start.plusMinutes(50));
+        return event;
+    }
+
+    private Bench.Stats writeLatency(String mode, int stored) {
+        Path dir = dataDir.resolve(mode + "-" + stored);
+        Map<String, Object> properties = Map.of(
+                "event.storage.path", dir.resolve("eventos.json").toString(),
+                "event.storage.shards", dir.resolve("eventos").toString(),
+                "event.storage.mode", mode,
+                "event.journal.path", dir.resolve("eventos-journal").toString(),
+                "persistence.sequence.path", dir.resolve("sequences").toString(),
+                "persistence.durability", "sync");
+        try (AnnotationConfigApplicationContext context = Bench.context(properties, EventRepository.class,
+                UserLocks.class, PersistenceScheduler.class, SnapshotCodec.class, StorageFactory.class)) {
+            EventRepository repository = context.getBean(EventRepository.class);
+            int perUser = stored / USERS;
+            for (long userId = 1; userId <= USERS; userId++) {
+                List<Event> events = new ArrayList<>(perUser);
+                for (int i = 0; i < perUser; i++) {
+                    events.add(event(i));
+                }
+                repository.saveAll(userId, events);
+            }
+            int[] n = { stored };
+            return Bench.measure(200, 1000, () -> {
+                long userId = ThreadLocalRandom.current().nextLong(1, USERS + 1);
+                repository.save(userId, event(n[0]++));
+            });
+        }
+    }
+
+    @Test
+    void p99WriteLatencyAt1kAnd100kStoredEvents() {
+        int small = Bench.size("events.small", 1_000);
+        int large = Bench.size("events.large", 100_000);
+        for (String mode : List.of("journal", "snapshot")) {
+            Bench.Stats pocos = writeLatency(mode, small);
+            Bench.Stats muchos = writeLatency(mode, large);
+            Bench.report("save en modo {}: {} eventos -> {}", mode, small, pocos);
+            Bench.report("save en modo {}: {} eventos -> {}", mode, large, muchos);
+            Bench.report("save en modo {}: p99 {}x al pasar de {} a {} eventos", mode,
+                    String.format("%.1f", muchos.p99() / pocos.p99()), small, large);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package control.eventcontrollers;
+
+import benchmark.Bench;
+import model.Event;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import persistence.PersistenceScheduler;
+import persistence.SnapshotCodec;
+import persistence.StorageFactory;
+import persistence.UserLocks;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// findById y update por id con el índice id -> registro del repositorio frente a la
+// búsqueda lineal en la lista del usuario (como se hacía antes), con 1k, 10k y 100k
+// eventos en un solo usuario. update corre en modo async para medir la búsqueda y el
+// reemplazo, no el disco.
+@Tag(Bench.TAG)
+class FindByIdBenchmarkTest {
+
+    private static final Long USER = 1L;
+
+    @TempDir
+    Path dataDir;
+
+    private static Event event(int n) {
+        Event event = new Event();
+        event.setName("Evento " + n);
+        event.setColorHex("#336699");
+        LocalDateTime start = LocalDateTime.of(2030, 1, 1, 8, 0).plusHours(n);
+        event.setStartDateTime(start);
+        event.setEndDateTime(start.plusMinutes(50));
+        return event;
+    }
+
+    private static Event linearFind(List<Event> events, Long id) {
+        return events.stream().filter(e -> e.getId().equals(id)).findFirst().orElse(null);
+    }
+
+    @Test
+    void findByIdIndexVersusLinearScan() {
+        for (int stored : List.of(1_000, 10_000, Bench.size("findbyid.large", 100_000))) {
+            Path dir = dataDir.resolve("n" + stored);
+            Map<String, Object> properties = Map.of(
+                    "event.storage.path", dir.resolve("eventos.json").toString(),
+                    "event.storage.shards", dir.resolve("eventos").toString(),
+                    "persistence.sequence.path", dir.resolve("sequences").toString(),
+                    "persistence.durability", "async");
+            try (AnnotationConfigApplicationContext context = Bench.context(properties, EventRepository.class,
+                    UserLocks.class, PersistenceScheduler.class, SnapshotCodec.class, StorageFactory.class)) {
+                EventRepository repository = context.getBean(EventRepository.class);
+                List<Event> events = new ArrayList<>(stored);
+                for (int n = 0; n < stored; n++) {
+                    events.add(event(n));
+                }
+                List<Long> ids = repository.saveAll(USER, events).stream().map(Event::getId).toList();
+                List<Event> list = repository.findByUserId(USER);
+                assertThat(linearFind(list, ids.get(stored / 2))).isSameAs(repository.findById(USER, ids.get(stored / 2)));
+
+                int iterations = stored >= 100_000 ? 1_000 : 10_000;
+                Bench.Stats indexed = Bench.measure(iterations, iterations, () ->
+                        repository.findById(USER, ids.get(ThreadLocalRandom.current().nextInt(stored))));
+                Bench.Stats linear = Bench.measure(iterations / 5, iterations, () ->
+                        linearFind(list, ids.get(ThreadLocalRandom.current().nextInt(stored))));
+                Bench.Stats updates = Bench.measure(iterations / 5, iterations, () -> {
+                    Long id = ids.get(ThreadLocalRandom.current().nextInt(stored));
+                    Event cambio = event(stored);
+                    cambio.setName("Editado");
+                    repository.update(USER, id, cambio);
+                });
+
+                Bench.report("{} eventos: findById con indice {} | lineal {}", stored, indexed, linear);
+                Bench.report("{} eventos: update por id {}", stored, updates);
+            }
+        }
+    }
+}
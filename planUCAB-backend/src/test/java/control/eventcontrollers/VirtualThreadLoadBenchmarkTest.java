@@ -0,0 +1,118 @@
+package control.eventcontrollers;
+
+import benchmark.Bench;
+import control.conflictcontrollers.ConflictEngine;
+import control.evaluacioncontrollers.EvaluacionRepository;
+import control.horariocontrollers.HorarioRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import persistence.PersistenceScheduler;
+import persistence.SnapshotCodec;
+import persistence.StorageFactory;
+import persistence.UserLocks;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Prueba de carga de createEvent: 2.000 clientes simultáneos (cada uno de su propio
+// usuario, que crea 5 eventos seguidos) atendidos por un pool de 200 hilos de
+// plataforma, como el de Tomcat, o por un hilo virtual por cliente, como con
+// spring.threads.virtual.enabled. Reporta peticiones/s y el máximo de hilos de la JVM
+// (ThreadMXBean solo cuenta los de plataforma: con hilos virtuales son los portadores),
+// en modo sync (cada petición escribe su shard) y group-commit (espera el volcado).
+@Tag(Bench.TAG)
+class VirtualThreadLoadBenchmarkTest {
+
+    private static final int PLATFORM_THREADS = 200;
+    private static final LocalDate DIA = LocalDate.now().plusYears(1);
+
+    @TempDir
+    Path dataDir;
+
+    private static CreateEventRequest request(int n) {
+        CreateEventRequest request = new CreateEventRequest();
+        request.setName("Carga " + n);
+        request.setLocation("Aula");
+        request.setDate(DIA.plusDays(n).toString());
+        request.setStartTime("10:00");
+        request.setEndTime("11:00");
+        request.setColorHex("#336699");
+        return request;
+    }
+
+    // Peticiones/s y pico de hilos de plataforma al atender la carga con executor
+    private String load(String durability, String name, ExecutorService executor, int clients, int perClient)
+            throws Exception {
+        Path dir = dataDir.resolve(durability + "-" + name);
+        Map<String, Object> properties = Map.of(
+                "event.storage.path", dir.resolve("eventos.json").toString(),
+                "event.storage.shards", dir.resolve("eventos").toString(),
+                "horario.storage.path", dir.resolve("horarios.json").toString(),
+                "horario.storage.shards", dir.resolve("horarios").toString(),
+                "evaluacion.storage.path", dir.resolve("evaluaciones.json").toString(),
+                "evaluacion.storage.shards", dir.resolve("evaluaciones").toString(),
+                "persistence.sequence.path", dir.resolve("sequences").toString(),
+                "persistence.durability", durability);
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        try (AnnotationConfigApplicationContext context = Bench.context(properties, EventService.class,
+                EventRepository.class, HorarioRepository.class, EvaluacionRepository.class, ConflictEngine.class,
+                UserLocks.class, PersistenceScheduler.class, SnapshotCodec.class, StorageFactory.class);
+             executor) {
+            EventService service = context.getBean(EventService.class);
+            // Calentamiento con usuarios aparte
+            for (int i = 0; i < 500; i++) {
+                service.createEvent(1_000_000L + i % 10, request(i));
+            }
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>(clients);
+            threads.resetPeakThreadCount();
+            for (int c = 0; c < clients; c++) {
+                long userId = c + 1;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < perClient; i++) {
+                        service.createEvent(userId, request(i));
+                    }
+                    return null;
+                }));
+            }
+            long inicio = System.nanoTime();
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            double seconds = (System.nanoTime() - inicio) / 1e9;
+            int peak = threads.getPeakThreadCount();
+            assertThat(service.getEventsByUser((long) clients)).hasSize(perClient);
+            return String.format("%.0f peticiones/s, pico %d hilos de la JVM", clients * perClient / seconds, peak);
+        }
+    }
+
+    @Test
+    void platformPoolAgainstVirtualThreads() throws Exception {
+        int clients = Bench.size("load.clients", 2_000);
+        int perClient = Bench.size("load.per-client", 5);
+        for (String durability : List.of("sync", "group-commit")) {
+            String platform = load(durability, "plataforma", Executors.newFixedThreadPool(PLATFORM_THREADS),
+                    clients, perClient);
+            String virtual = load(durability, "virtual", Executors.newVirtualThreadPerTaskExecutor(),
+                    clients, perClient);
+            Bench.report("{} clientes x {} peticiones, modo {} ({} procesadores): pool de {} hilos -> {} | "
+                            + "hilos virtuales -> {}", clients, perClient, durability,
+                    Runtime.getRuntime().availableProcessors(), PLATFORM_THREADS, platform, virtual);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package control.horariocontrollers;
+
+import benchmark.Bench;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import model.Horario;
+import model.Materia;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Carga del archivo monolítico de horarios ({ "userId": [ ... ] }) con el lector por
+// streaming de HorarioRepository frente a la carga anterior (readTree del archivo
+// completo y copia campo a campo). Reporta registros/s, bytes asignados y cuánto heap
+// retiene el árbol JsonNode frente a la lista final de horarios.
+@Tag(Bench.TAG)
+class HorarioLoadBenchmarkTest {
+
+    private static final int PER_USER = 20;
+    private static final String[] DIAS = { "Lunes", "Martes", "Miércoles", "Jueves", "Viernes" };
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path dir;
+
+    // La mitad de los horarios con materia como texto (formato antiguo) y la otra como objeto
+    private static Path write(Path file, int records) throws IOException {
+        try (JsonGenerator json = new JsonFactory().createGenerator(Files.newBufferedWriter(file))) {
+            json.writeStartObject();
+            long id = 1;
+            for (long userId = 1; userId <= records / PER_USER; userId++) {
+                json.writeArrayFieldStart(String.valueOf(userId));
+                for (int i = 0; i < PER_USER; i++, id++) {
+                    json.writeStartObject();
+                    json.writeNumberField("id", id);
+                    json.writeNumberField("userId", userId);
+                    json.writeStringField("diaSemana", DIAS[i % DIAS.length]);
+                    json.writeStringField("startTime", "07:00");
+                    json.writeStringField("endTime", "09:00");
+                    json.writeStringField("profesor", "Profesor " + (id % 300));
+                    json.writeStringField("tipoClase", "Teoría");
+                    json.writeStringField("location", "A-" + (id % 40));
+                    json.writeStringField("colorHex", "#112233");
+                    if (id % 2 == 0) {
+                        json.writeStringField("materia", "Materia " + (id % 50));
+                    } else {
+                        json.writeObjectFieldStart("materia");
+                        json.writeNumberField("id", id % 50);
+                        json.writeStringField("nombre", "Materia " + (id % 50));
+                        json.writeStringField("semestre", "4to Semestre");
+                        json.writeNumberField("uc", 4);
+                        json.writeEndObject();
+                    }
+                    json.writeEndObject();
+                }
+                json.writeEndArray();
+            }
+            json.writeEndObject();
+        }
+        return file;
+    }
+
+    // Carga anterior: el árbol del archivo completo y luego cada nodo copiado a mano
+    private Map<Long, List<Horario>> readTree(JsonNode root) throws IOException {
+        Map<Long, List<Horario>> loaded = new HashMap<>();
+        Iterator<String> fieldNames = root.fieldNames();
+        while (fieldNames.hasNext()) {
+            String userId = fieldNames.next();
+            List<Horario> horarios = new ArrayList<>();
+            for (JsonNode node : root.get(userId)) {
+                Horario horario = new Horario();
+                horario.setId(node.get("id").asLong());
+                horario.setUserId(node.get("userId").asLong());
+                horario.setDiaSemana(node.get("diaSemana").asText());
+                horario.setStartTime(node.get("startTime").asText());
+                horario.setEndTime(node.get("endTime").asText());
+                horario.setProfesor(node.get("profesor").asText());
+                horario.setTipoClase(node.get("tipoClase").asText());
+                horario.setLocation(node.get("location").asText());
+                horario.setColorHex(node.get("colorHex").asText());
+                JsonNode materia = node.get("materia");
+                horario.setMateria(materia.isTextual() ? new Materia(null, materia.asText(), "", 0)
+                        : objectMapper.treeToValue(materia, Materia.class));
+                horarios.add(horario);
+            }
+            loaded.put(Long.parseLong(userId), horarios);
+        }
+        return loaded;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static int count(Map<Long, List<Horario>> loaded) {
+        return loaded.values().stream().mapToInt(List::size).sum();
+    }
+
+    @Test
+    void streamingVersusReadTree() throws IOException {
+        HorarioRepository repository = new HorarioRepository();
+        for (int records : List.of(Bench.size("horarios.small", 100_000), Bench.size("horarios.large", 500_000))) {
+            Path file = write(dir.resolve("horarios-" + records + ".json"), records);
+            // Mediana de 5 cargas tras 2 de calentamiento
+            double streamingMillis = Bench.measure(2, 5, () -> repository.readLegacy(file)).p50() / 1000;
+            double treeMillis = Bench.measure(2, 5, () -> readTree(objectMapper.readTree(file.toFile()))).p50() / 1000;
+
+            Object[] held = new Object[2];
+            long base = usedHeap();
+            held[0] = repository.readLegacy(file);
+            long listBytes = usedHeap() - base;
+            long streamingAllocated = Bench.allocatedBytes(() -> repository.readLegacy(file));
+            assertThat(count(repository.readLegacy(file))).isEqualTo(records);
+            held[0] = null;
+
+            base = usedHeap();
+            held[1] = objectMapper.readTree(file.toFile());
+            long treeBytes = usedHeap() - base;
+            held[1] = null;
+            long treeAllocated = Bench.allocatedBytes(() -> readTree(objectMapper.readTree(file.toFile())));
+
+            Bench.report("{} horarios ({} MB en disco): streaming {} ms ({} registros/s, {} MB asignados) | "
+                            + "readTree {} ms ({} registros/s, {} MB asignados)",
+                    records, Files.size(file) >> 20, String.format("%.0f", streamingMillis),
+                    String.format("%.0f", records / (streamingMillis / 1000)), streamingAllocated >> 20,
+                    String.format("%.0f", treeMillis), String.format("%.0f", records / (treeMillis / 1000)),
+                    treeAllocated >> 20);
+            Bench.report("{} horarios: la lista final retiene {} MB; el arbol JsonNode, que la carga anterior "
+                    + "mantenia ademas de la lista, retiene {} MB", records, listBytes >> 20, treeBytes >> 20);
+        }
+    }
+}
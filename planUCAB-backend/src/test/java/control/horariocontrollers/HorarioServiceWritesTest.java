@@ -0,0 +1,129 @@
+package control.horariocontrollers;
+
+import control.conflictcontrollers.ConflictEngine;
+import control.evaluacioncontrollers.EvaluacionRepository;
+import control.eventcontrollers.EventRepository;
+import exceptions.HorarioConflictoExcepcion;
+import model.Horario;
+import model.Materia;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import persistence.CountingStorageFactory;
+import persistence.PersistenceScheduler;
+import persistence.SnapshotCodec;
+import persistence.UserLocks;
+
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Cuenta las escrituras al almacenamiento: editar un horario actualiza también los de la
+// misma materia, pero todo debe quedar en una sola escritura del usuario
+@SpringJUnitConfig({ HorarioService.class, HorarioRepository.class, EventRepository.class,
+        EvaluacionRepository.class, ConflictEngine.class, UserLocks.class, PersistenceScheduler.class,
+        SnapshotCodec.class, CountingStorageFactory.class })
+class HorarioServiceWritesTest {
+
+    private static final Long USER = 7L;
+
+    @TempDir
+    static Path dataDir;
+
+    @DynamicPropertySource
+    static void storage(DynamicPropertyRegistry registry) {
+        registry.add("horario.storage.path", () -> dataDir.resolve("horarios.json").toString());
+        registry.add("horario.storage.shards", () -> dataDir.resolve("horarios").toString());
+        registry.add("event.storage.path", () -> dataDir.resolve("eventos.json").toString());
+        registry.add("event.storage.shards", () -> dataDir.resolve("eventos").toString());
+        registry.add("evaluacion.storage.path", () -> dataDir.resolve("evaluaciones.json").toString());
+        registry.add("evaluacion.storage.shards", () -> dataDir.resolve("evaluaciones").toString());
+        registry.add("persistence.sequence.path", () -> dataDir.resolve("sequences").toString());
+        // En modo sync cada persistencia escribe en el momento: el contador no depende del flush
+        registry.add("persistence.durability", () -> "sync");
+    }
+
+    @Autowired
+    private HorarioService horarioService;
+
+    @Autowired
+    private HorarioRepository horarioRepository;
+
+    @Autowired
+    private CountingStorageFactory storageFactory;
+
+    private Horario lunes;
+    private Horario miercoles;
+    private Horario viernes;
+
+    private static CreateHorarioRequest request(String materia, String dia, String inicio, String fin,
+                                                String profesor) {
+        Materia m = new Materia();
+        m.setNombre(materia);
+        CreateHorarioRequest request = new CreateHorarioRequest();
+        request.setMateria(m);
+        request.setLocation("A-" + dia);
+        request.setDiaSemana(dia);
+        request.setStartTime(inicio);
+        request.setEndTime(fin);
+        request.setProfesor(profesor);
+        request.setTipoClase("Teoría");
+        request.setColorHex("#112233");
+        return request;
+    }
+
+    private int horarioWrites() {
+        return storageFactory.writes("horarios");
+    }
+
+    @BeforeEach
+    void crearHorarios() {
+        for (Horario horario : horarioRepository.findByUserId(USER)) {
+            horarioRepository.delete(USER, horario.getId());
+        }
+        lunes = horarioService.createHorario(USER, request("Cálculo", "Lunes", "07:00", "09:00", "Pérez"));
+        miercoles = horarioService.createHorario(USER, request("Cálculo", "Miércoles", "07:00", "09:00", "Pérez"));
+        viernes = horarioService.createHorario(USER, request("Cálculo", "Viernes", "07:00", "09:00", "Pérez"));
+        horarioService.createHorario(USER, request("Física", "Martes", "10:00", "12:00", "Gómez"));
+        storageFactory.reset();
+    }
+
+    @Test
+    void updatingAHorarioWithRelatedHorariosWritesOnce() {
+        horarioService.updateHorario(USER, miercoles.getId(),
+                request("Cálculo", "Miércoles", "08:00", "10:00", "Rodríguez"));
+
+        assertThat(horarioWrites()).isEqualTo(1);
+        assertThat(storageFactory.allWrites().keySet()).containsOnly("horarios");
+        assertThat(horarioRepository.findByUserId(USER))
+                .filteredOn(h -> h.getMateria().getNombre().equals("Cálculo"))
+                .extracting(Horario::getProfesor)
+                .containsOnly("Rodríguez");
+        assertThat(horarioRepository.findById(USER, miercoles.getId()).getStartTime()).isEqualTo("08:00");
+        assertThat(horarioRepository.findById(USER, lunes.getId()).getStartTime()).isEqualTo("07:00");
+    }
+
+    @Test
+    void eachUpdateWritesExactlyOnce() {
+        for (int i = 1; i <= 5; i++) {
+            horarioService.updateHorario(USER, viernes.getId(),
+                    request("Cálculo", "Viernes", "07:00", "09:00", "Profesor " + i));
+            assertThat(horarioWrites()).isEqualTo(i);
+        }
+    }
+
+    @Test
+    void rejectedUpdateDoesNotWrite() {
+        assertThatThrownBy(() -> horarioService.updateHorario(USER, lunes.getId(),
+                request("Cálculo", "Martes", "11:00", "13:00", "Rodríguez")))
+                .isInstanceOf(HorarioConflictoExcepcion.class);
+
+        assertThat(horarioWrites()).isZero();
+        assertThat(horarioRepository.findById(USER, lunes.getId()).getProfesor()).isEqualTo("Pérez");
+    }
+}
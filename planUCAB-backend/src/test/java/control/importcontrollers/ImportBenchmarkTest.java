@@ -0,0 +1,94 @@
+package control.importcontrollers;
+
+import benchmark.Bench;
+import control.conflictcontrollers.ConflictEngine;
+import control.evaluacioncontrollers.EvaluacionRepository;
+import control.eventcontrollers.EventRepository;
+import control.eventcontrollers.EventService;
+import control.horariocontrollers.HorarioRepository;
+import control.horariocontrollers.HorarioService;
+import control.materiacontrollers.MateriaRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
+import persistence.CountingStorageFactory;
+import persistence.PersistenceScheduler;
+import persistence.SnapshotCodec;
+import persistence.UserLocks;
+
+import java.io.StringReader;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Importación de un CSV de 5.000 filas (eventos de 1 hora, diez por día, y 12 horarios
+// semanales por la noche) en modo sync: tiempo total y escrituras por repositorio
+@Tag(Bench.TAG)
+class ImportBenchmarkTest {
+
+    private static final String[] DIAS = { "Lunes", "Martes", "Miércoles", "Jueves", "Viernes", "Sábado" };
+    private static final int HORARIOS = 2 * DIAS.length;
+
+    @TempDir
+    Path dataDir;
+
+    private static String csv(int rows) {
+        LocalDate first = LocalDate.now().plusYears(1);
+        StringBuilder csv = new StringBuilder("tipo,titulo,fecha,dia,inicio,fin,ubicacion\n");
+        for (int i = 0; i < rows - HORARIOS; i++) {
+            int hora = 8 + i % 10;
+            csv.append("evento,Evento ").append(i).append(',').append(first.plusDays(i / 10)).append(",,")
+                    .append(String.format("%02d:00,%02d:00", hora, hora + 1)).append(",Aula\n");
+        }
+        for (int i = 0; i < HORARIOS; i++) {
+            int hora = i < DIAS.length ? 19 : 21;
+            csv.append("horario,Cálculo Vectorial,,").append(DIAS[i % DIAS.length]).append(',')
+                    .append(String.format("%02d:00,%02d:00", hora, hora + 1)).append(",Aula\n");
+        }
+        return csv.toString();
+    }
+
+    @Test
+    void import5000Rows() throws Exception {
+        int rows = Bench.size("import.rows", 5_000);
+        Map<String, Object> properties = Map.of(
+                "event.storage.path", dataDir.resolve("eventos.json").toString(),
+                "event.storage.shards", dataDir.resolve("eventos").toString(),
+                "horario.storage.path", dataDir.resolve("horarios.json").toString(),
+                "horario.storage.shards", dataDir.resolve("horarios").toString(),
+                "evaluacion.storage.path", dataDir.resolve("evaluaciones.json").toString(),
+                "evaluacion.storage.shards", dataDir.resolve("evaluaciones").toString(),
+                "persistence.sequence.path", dataDir.resolve("sequences").toString(),
+                "persistence.durability", "sync");
+        try (AnnotationConfigApplicationContext context = Bench.context(properties, ImportService.class,
+                EventService.class, HorarioService.class, EventRepository.class, HorarioRepository.class,
+                EvaluacionRepository.class, MateriaRepository.class, ConflictEngine.class,
+                LocalValidatorFactoryBean.class, UserLocks.class, PersistenceScheduler.class, SnapshotCodec.class,
+                CountingStorageFactory.class)) {
+            ImportService importService = context.getBean(ImportService.class);
+            CountingStorageFactory storageFactory = context.getBean(CountingStorageFactory.class);
+            String contenido = csv(rows);
+            // Calentamiento con otros usuarios; cada medición importa a un usuario vacío
+            for (long userId = 100; userId < 105; userId++) {
+                importService.importar(userId, ImportService.Formato.CSV, new StringReader(contenido));
+            }
+
+            for (long userId = 1; userId <= 5; userId++) {
+                long usuario = userId;
+                storageFactory.reset();
+                ImportResult[] result = new ImportResult[1];
+                double millis = Bench.millis(() -> result[0] =
+                        importService.importar(usuario, ImportService.Formato.CSV, new StringReader(contenido)));
+                assertThat(result[0].getErrores()).isEmpty();
+                assertThat(result[0].getEventos() + result[0].getHorarios()).isEqualTo(rows);
+                Bench.report("Importacion de {} filas: {} ms ({} filas/s), escrituras {}", rows,
+                        String.format("%.0f", millis), String.format("%.0f", rows / (millis / 1000)),
+                        storageFactory.allWrites());
+            }
+        }
+    }
+}
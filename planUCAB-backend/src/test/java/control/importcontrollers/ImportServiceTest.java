@@ -0,0 +1,122 @@
+package control.importcontrollers;
+
+import control.conflictcontrollers.ConflictEngine;
+import control.evaluacioncontrollers.EvaluacionRepository;
+import control.eventcontrollers.EventRepository;
+import control.eventcontrollers.EventService;
+import control.horariocontrollers.HorarioRepository;
+import control.horariocontrollers.HorarioService;
+import control.materiacontrollers.MateriaRepository;
+import model.Horario;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
+import persistence.CountingStorageFactory;
+import persistence.PersistenceScheduler;
+import persistence.SnapshotCodec;
+import persistence.UserLocks;
+
+import java.io.StringReader;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// La importación guarda eventos y horarios como una sola unidad: una escritura por
+// repositorio y, si falla el guardado de los horarios, los eventos se deshacen
+@SpringJUnitConfig({ ImportService.class, ImportServiceTest.FailingHorarioRepository.class, EventService.class,
+        HorarioService.class, EventRepository.class, EvaluacionRepository.class, MateriaRepository.class,
+        ConflictEngine.class, LocalValidatorFactoryBean.class, UserLocks.class, PersistenceScheduler.class,
+        SnapshotCodec.class, CountingStorageFactory.class })
+class ImportServiceTest {
+
+    private static final LocalDate DIA = LocalDate.now().plusYears(1);
+
+    @TempDir
+    static Path dataDir;
+
+    @DynamicPropertySource
+    static void storage(DynamicPropertyRegistry registry) {
+        registry.add("event.storage.path", () -> dataDir.resolve("eventos.json").toString());
+        registry.add("event.storage.shards", () -> dataDir.resolve("eventos").toString());
+        registry.add("horario.storage.path", () -> dataDir.resolve("horarios.json").toString());
+        registry.add("horario.storage.shards", () -> dataDir.resolve("horarios").toString());
+        registry.add("evaluacion.storage.path", () -> dataDir.resolve("evaluaciones.json").toString());
+        registry.add("evaluacion.storage.shards", () -> dataDir.resolve("evaluaciones").toString());
+        registry.add("persistence.sequence.path", () -> dataDir.resolve("sequences").toString());
+        registry.add("persistence.durability", () -> "sync");
+    }
+
+    // HorarioRepository cuyo saveAll falla cuando se le pide
+    @Repository
+    static class FailingHorarioRepository extends HorarioRepository {
+        volatile boolean failing;
+
+        @Override
+        public List<Horario> saveAll(Long userId, List<Horario> nuevos) {
+            if (failing) {
+                throw new IllegalStateException("Fallo simulado al guardar horarios");
+            }
+            return super.saveAll(userId, nuevos);
+        }
+    }
+
+    @Autowired
+    private ImportService importService;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private FailingHorarioRepository horarioRepository;
+
+    @Autowired
+    private CountingStorageFactory storageFactory;
+
+    private static StringReader csv(String... filas) {
+        return new StringReader("tipo,titulo,fecha,dia,inicio,fin,ubicacion\n" + String.join("\n", filas));
+    }
+
+    @Test
+    void importWritesEachRepositoryOnce() throws Exception {
+        storageFactory.reset();
+
+        ImportResult result = importService.importar(1L, ImportService.Formato.CSV, csv(
+                "evento,Taller," + DIA + ",,08:00,09:00,Aula",
+                "evento,Charla," + DIA.plusDays(1) + ",,08:00,09:00,Aula",
+                "horario,Cálculo Vectorial,,Lunes,10:00,12:00,Aula",
+                "horario,Cálculo Vectorial,,Miércoles,10:00,12:00,Aula"));
+
+        assertThat(result.getErrores()).isEmpty();
+        assertThat(eventRepository.findByUserId(1L)).hasSize(2);
+        assertThat(horarioRepository.findByUserId(1L)).hasSize(2);
+        assertThat(storageFactory.writes("eventos")).isEqualTo(1);
+        assertThat(storageFactory.writes("horarios")).isEqualTo(1);
+    }
+
+    @Test
+    void failedHorarioSaveRevertsTheImportedEvents() throws Exception {
+        importService.importar(2L, ImportService.Formato.CSV, csv("evento,Previo," + DIA + ",,07:00,08:00,Aula"));
+        assertThat(eventRepository.findByUserId(2L)).hasSize(1);
+
+        horarioRepository.failing = true;
+        try {
+            assertThatThrownBy(() -> importService.importar(2L, ImportService.Formato.CSV, csv(
+                    "evento,Taller," + DIA + ",,08:00,09:00,Aula",
+                    "horario,Cálculo Vectorial,,Lunes,10:00,12:00,Aula")))
+                    .isInstanceOf(IllegalStateException.class);
+        } finally {
+            horarioRepository.failing = false;
+        }
+
+        assertThat(eventRepository.findByUserId(2L)).extracting(e -> e.getName()).containsExactly("Previo");
+        assertThat(horarioRepository.findByUserId(2L)).isEmpty();
+    }
+}
@@ -0,0 +1,116 @@
+package control.usercontrollers;
+
+import benchmark.Bench;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import model.User;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import persistence.PersistenceScheduler;
+import persistence.SnapshotCodec;
+import persistence.StorageFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Login con 1M usuarios: búsqueda por el índice de correos normalizados frente al
+// recorrido con equalsIgnoreCase que se hacía antes, y throughput del login con varios
+// hilos. Los correos se piden con mayúsculas, como los escribe un usuario.
+@Tag(Bench.TAG)
+class LoginBenchmarkTest {
+
+    private static final int THREADS = 8;
+
+    @TempDir
+    Path dataDir;
+
+    private static String email(int n) {
+        return "usuario" + n + "@ucab.edu.ve";
+    }
+
+    // Archivo de usuarios listo para que UserRepository lo cargue al arrancar
+    private static void write(Path file, int users) throws IOException {
+        try (JsonGenerator json = new JsonFactory().createGenerator(Files.newBufferedWriter(file))) {
+            json.writeStartArray();
+            for (int n = 1; n <= users; n++) {
+                json.writeStartObject();
+                json.writeNumberField("id", n);
+                json.writeStringField("username", "usuario" + n);
+                json.writeStringField("email", email(n));
+                json.writeStringField("password", "clave" + n);
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+        }
+    }
+
+    private static LoginRequest login(int n) {
+        LoginRequest request = new LoginRequest();
+        request.setEmail(email(n).toUpperCase(Locale.ROOT));
+        request.setPassword("clave" + n);
+        return request;
+    }
+
+    @Test
+    void loginThroughputAt1MUsers() throws Exception {
+        int users = Bench.size("users", 1_000_000);
+        write(dataDir.resolve("usuarios.json"), users);
+        Map<String, Object> properties = Map.of(
+                "user.storage.path", dataDir.resolve("usuarios.json").toString(),
+                "persistence.sequence.path", dataDir.resolve("sequences").toString(),
+                "persistence.durability", "async");
+        try (AnnotationConfigApplicationContext context = Bench.context(properties, UserService.class,
+                UserRepository.class, PersistenceScheduler.class, SnapshotCodec.class, StorageFactory.class)) {
+            UserService userService = context.getBean(UserService.class);
+            UserRepository userRepository = context.getBean(UserRepository.class);
+            List<User> all = new ArrayList<>(users);
+            for (int n = 1; n <= users; n++) {
+                all.add(userRepository.findById((long) n));
+            }
+            assertThat(userService.login(login(users / 2)).getId()).isEqualTo(users / 2);
+
+            Bench.Stats indexed = Bench.measure(100_000, 200_000, () ->
+                    userService.login(login(ThreadLocalRandom.current().nextInt(1, users + 1))));
+            Bench.Stats linear = Bench.measure(5, 50, () -> {
+                String email = email(ThreadLocalRandom.current().nextInt(1, users + 1)).toUpperCase(Locale.ROOT);
+                all.stream().filter(u -> u.getEmail().equalsIgnoreCase(email)).findFirst().orElseThrow();
+            });
+
+            int perThread = 250_000;
+            ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+            try {
+                List<Future<?>> futures = new ArrayList<>();
+                long start = System.nanoTime();
+                for (int t = 0; t < THREADS; t++) {
+                    futures.add(executor.submit(() -> {
+                        for (int i = 0; i < perThread; i++) {
+                            userService.login(login(ThreadLocalRandom.current().nextInt(1, users + 1)));
+                        }
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+                double seconds = (System.nanoTime() - start) / 1e9;
+                Bench.report("{} usuarios: login con indice {} | busqueda lineal {}", users, indexed, linear);
+                Bench.report("{} usuarios: {} logins/s con {} hilos", users,
+                        String.format("%.0f", THREADS * perThread / seconds), THREADS);
+            } finally {
+                executor.shutdown();
+            }
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package control.usercontrollers;
+
+import exceptions.EventException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import persistence.PersistenceScheduler;
+import persistence.SnapshotCodec;
+import persistence.StorageFactory;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringJUnitConfig({ UserService.class, UserRepository.class, PersistenceScheduler.class, SnapshotCodec.class,
+        StorageFactory.class })
+class UserServiceConcurrencyTest {
+
+    private static final int THREADS = 32;
+
+    @TempDir
+    static Path dataDir;
+
+    @DynamicPropertySource
+    static void storage(DynamicPropertyRegistry registry) {
+        registry.add("user.storage.path", () -> dataDir.resolve("usuarios.json").toString());
+        registry.add("persistence.sequence.path", () -> dataDir.resolve("sequences").toString());
+        registry.add("persistence.durability", () -> "group-commit");
+    }
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private static CreateUserRequest request(String username, String email) {
+        CreateUserRequest request = new CreateUserRequest();
+        request.setUsername(username);
+        request.setEmail(email);
+        request.setPassword("Secreto123");
+        return request;
+    }
+
+    // Ejecuta las tareas a la vez (todas esperan en la misma barrera) y devuelve sus resultados
+    private static <R> List<Future<R>> runTogether(List<Callable<R>> tasks) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(tasks.size());
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<R>> futures = new ArrayList<>();
+            for (Callable<R> task : tasks) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return task.call();
+                }));
+            }
+            start.countDown();
+            return futures;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void sameEmailRegisteredConcurrentlySucceedsExactlyOnce() throws Exception {
+        String[] variants = { "concurrente@est.ucab.edu.ve", " Concurrente@est.ucab.edu.ve",
+                "CONCURRENTE@EST.UCAB.EDU.VE ", "concurrente@Est.Ucab.Edu.Ve" };
+        List<Callable<UserResponse>> tasks = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            String email = variants[i % variants.length];
+            tasks.add(() -> userService.register(request("usuario" + email.hashCode(), email)));
+        }
+
+        List<UserResponse> registered = new ArrayList<>();
+        int rejected = 0;
+        for (Future<UserResponse> future : runTogether(tasks)) {
+            try {
+                registered.add(future.get());
+            } catch (ExecutionException e) {
+                assertThat(e.getCause()).isInstanceOf(EventException.class)
+                        .hasMessage("El correo electrónico ya está registrado");
+                rejected++;
+            }
+        }
+
+        assertThat(registered).hasSize(1);
+        assertThat(rejected).isEqualTo(THREADS - 1);
+        assertThat(registered.get(0).getEmail()).isEqualTo("concurrente@est.ucab.edu.ve");
+        assertThat(userRepository.findAll())
+                .filteredOn(user -> user.getEmail().equals("concurrente@est.ucab.edu.ve"))
+                .hasSize(1);
+        for (String variant : variants) {
+            assertThat(userRepository.findByEmail(variant).getId()).isEqualTo(registered.get(0).getId());
+        }
+    }
+
+    @Test
+    void distinctEmailsRegisteredConcurrentlyAllSucceedWithDistinctIds() throws Exception {
+        List<Callable<UserResponse>> tasks = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            String email = "distinto" + i + "@est.ucab.edu.ve";
+            tasks.add(() -> userService.register(request("usuariodistinto" + email.length(), email)));
+        }
+
+        Set<Long> ids = new HashSet<>();
+        for (Future<UserResponse> future : runTogether(tasks)) {
+            ids.add(future.get().getId());
+        }
+
+        assertThat(ids).hasSize(THREADS);
+    }
+
+    @Test
+    void storedEmailMatchesTheIndexKey() {
+        UserResponse registered = userService.register(request("usuarioespacios", "  Espacios@Est.Ucab.Edu.Ve "));
+
+        assertThat(registered.getEmail()).isEqualTo("espacios@est.ucab.edu.ve");
+        assertThat(userRepository.findById(registered.getId()).getEmail()).isEqualTo("espacios@est.ucab.edu.ve");
+        assertThat(userRepository.existsByEmail("espacios@est.ucab.edu.ve")).isTrue();
+    }
+}
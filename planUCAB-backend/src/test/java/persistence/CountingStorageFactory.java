@@ -0,0 +1,90 @@
+package persistence;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import model.Bloque;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// StorageFactory para pruebas que cuenta las escrituras de cada almacén por usuario
+// ("horarios", "eventos", ...). Se registra con el nombre del bean real, del que
+// depende PersistenceScheduler.
+@Component("storageFactory")
+public class CountingStorageFactory extends StorageFactory {
+
+    private final Map<String, AtomicInteger> writes = new ConcurrentHashMap<>();
+
+    @Override
+    public <T extends Bloque> UserScopedStorage<T> userScoped(String name, UserShardStore<T> files,
+                                                              ObjectMapper mapper, Class<T> type,
+                                                              IndexedColumns<T> columns) {
+        return new CountingStorage<>(name, super.userScoped(name, files, mapper, type, columns));
+    }
+
+    public int writes(String name) {
+        AtomicInteger count = writes.get(name);
+        return count != null ? count.get() : 0;
+    }
+
+    public Map<String, AtomicInteger> allWrites() {
+        return writes;
+    }
+
+    public void reset() {
+        writes.clear();
+    }
+
+    private final class CountingStorage<T> implements UserScopedStorage<T> {
+        private final String name;
+        private final UserScopedStorage<T> delegate;
+
+        CountingStorage(String name, UserScopedStorage<T> delegate) {
+            this.name = name;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void migrateIfNeeded(Path legacyFile, LegacyReader<T> legacyReader) throws IOException {
+            delegate.migrateIfNeeded(legacyFile, legacyReader);
+        }
+
+        @Override
+        public Map<Long, List<T>> loadAll() throws IOException {
+            return delegate.loadAll();
+        }
+
+        @Override
+        public List<Long> userIds() throws IOException {
+            return delegate.userIds();
+        }
+
+        @Override
+        public List<T> read(Long userId) throws IOException {
+            return delegate.read(userId);
+        }
+
+        @Override
+        public void write(Long userId, List<T> records) throws IOException {
+            writes.computeIfAbsent(name, k -> new AtomicInteger()).incrementAndGet();
+            delegate.write(userId, records);
+        }
+
+        @Override
+        public List<T> readOverlapping(Long userId, LocalDateTime from, LocalDateTime to,
+                                       LocalDateTime afterStart, Long afterId, int limit) throws IOException {
+            return delegate.readOverlapping(userId, from, to, afterStart, afterId, limit);
+        }
+
+        @Override
+        public List<T> readByDiaSemana(Long userId, Collection<String> dias) throws IOException {
+            return delegate.readByDiaSemana(userId, dias);
+        }
+    }
+}
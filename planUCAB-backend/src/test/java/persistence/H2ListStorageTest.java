@@ -0,0 +1,72 @@
+package persistence;
+
+import model.User;
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class H2ListStorageTest extends ListStorageContract {
+
+    private JdbcConnectionPool pool;
+    private SnapshotFileStorage<User> files;
+
+    @Override
+    protected ListStorage<User> createStorage(Path file) {
+        pool = StorageTestSupport.memoryDatabase();
+        files = StorageTestSupport.userFile(file);
+        return newStorage();
+    }
+
+    private H2ListStorage<User> newStorage() {
+        return new H2ListStorage<>(pool, "usuarios", files, StorageTestSupport.MAPPER, User.class, User::getId);
+    }
+
+    @AfterEach
+    void closePool() {
+        pool.dispose();
+    }
+
+    @Test
+    void importsExistingFileOnFirstOpen() throws IOException {
+        files.write(List.of(user(1, "a@x.com"), user(2, "b@x.com")));
+
+        assertThat(newStorage().read()).extracting(User::getId).containsExactly(1L, 2L);
+    }
+
+    @Test
+    void upsertOnlyTouchesTheChangedRows() throws IOException {
+        storage.write(List.of(user(1, "a@x.com"), user(2, "b@x.com")));
+
+        // La lista completa no se usa: las filas que no están en changed quedan como estaban
+        storage.upsert(List.of(), List.of(user(3, "c@x.com")));
+
+        assertThat(storage.read()).extracting(User::getId).containsExactly(1L, 2L, 3L);
+    }
+
+    @Test
+    void migratesTablesKeyedByPosition() throws IOException, SQLException {
+        try (Connection connection = pool.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE usuarios (pos INT PRIMARY KEY, email VARCHAR(255), data CLOB NOT NULL)");
+            statement.execute("CREATE TABLE storage_meta (table_name VARCHAR(64) PRIMARY KEY)");
+            statement.execute("INSERT INTO storage_meta VALUES ('usuarios')");
+            statement.execute("INSERT INTO usuarios VALUES (0, 'b@x.com', '"
+                    + StorageTestSupport.MAPPER.writeValueAsString(user(5, "b@x.com")) + "')");
+            statement.execute("INSERT INTO usuarios VALUES (1, 'a@x.com', '"
+                    + StorageTestSupport.MAPPER.writeValueAsString(user(4, "a@x.com")) + "')");
+        }
+
+        ListStorage<User> migrated = newStorage();
+        migrated.upsert(List.of(), List.of(user(6, "c@x.com")));
+
+        assertThat(migrated.read()).extracting(User::getId).containsExactly(4L, 5L, 6L);
+    }
+}
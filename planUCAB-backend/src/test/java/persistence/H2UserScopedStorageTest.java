@@ -0,0 +1,101 @@
+package persistence;
+
+import model.Event;
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static persistence.StorageTestSupport.event;
+
+class H2UserScopedStorageTest extends UserScopedStorageContract {
+
+    // El "día" de un evento es el nombre de su sala, para probar la columna dia_semana
+    private static final IndexedColumns<Event> COLUMNS =
+            new IndexedColumns<>(Event::getStartDateTime, Event::getEndDateTime, Event::getLocation);
+
+    private JdbcConnectionPool pool;
+    private Path shards;
+
+    @Override
+    protected UserScopedStorage<Event> createStorage(Path shardDirectory) {
+        pool = StorageTestSupport.memoryDatabase();
+        shards = shardDirectory;
+        return newStorage();
+    }
+
+    private H2UserScopedStorage<Event> newStorage() {
+        return new H2UserScopedStorage<>(pool, "eventos", StorageTestSupport.eventShards(shards),
+                StorageTestSupport.MAPPER, Event.class, COLUMNS);
+    }
+
+    @AfterEach
+    void closePool() {
+        pool.dispose();
+    }
+
+    private static Event at(long id, int day, int hour, String location) {
+        Event event = event(id, 1L, "e" + id);
+        event.setStartDateTime(LocalDateTime.of(2027, 3, day, hour, 0));
+        event.setEndDateTime(LocalDateTime.of(2027, 3, day, hour + 1, 0));
+        event.setLocation(location);
+        return event;
+    }
+
+    @Test
+    void overlappingQueryPagesInStartOrder() throws IOException {
+        storage.migrateIfNeeded(tempDir.resolve("eventos.json"), file -> Map.of());
+        storage.write(1L, List.of(at(1, 2, 9, "A"), at(2, 1, 9, "A"), at(3, 1, 9, "B"), at(4, 5, 9, "A")));
+        storage.write(2L, List.of(event(5L, 2L, "otro")));
+        LocalDateTime from = LocalDateTime.of(2027, 3, 1, 9, 30);
+        LocalDateTime to = LocalDateTime.of(2027, 3, 3, 0, 0);
+
+        assertThat(storage.readOverlapping(1L, from, to, null, null, 10))
+                .extracting(Event::getId).containsExactly(2L, 3L, 1L);
+        List<Event> first = storage.readOverlapping(1L, from, to, null, null, 2);
+        assertThat(first).extracting(Event::getId).containsExactly(2L, 3L);
+        Event last = first.get(1);
+        assertThat(storage.readOverlapping(1L, from, to, last.getStartDateTime(), last.getId(), 2))
+                .extracting(Event::getId).containsExactly(1L);
+    }
+
+    @Test
+    void diaSemanaQueryReturnsOnlyThoseDays() throws IOException {
+        storage.migrateIfNeeded(tempDir.resolve("eventos.json"), file -> Map.of());
+        storage.write(1L, List.of(at(1, 1, 9, "Lunes"), at(2, 1, 10, "Martes"), at(3, 1, 11, "Lunes")));
+
+        assertThat(storage.readByDiaSemana(1L, List.of("Lunes"))).extracting(Event::getId).containsExactly(1L, 3L);
+        assertThat(storage.readByDiaSemana(1L, List.of("Lunes", "Martes"))).hasSize(3);
+        assertThat(storage.readByDiaSemana(2L, List.of("Lunes"))).isEmpty();
+    }
+
+    @Test
+    void fillsTheIndexedColumnsOfRowsWrittenWithoutThem() throws IOException, SQLException {
+        pool.dispose();
+        pool = StorageTestSupport.memoryDatabase();
+        try (Connection connection = pool.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE eventos (id BIGINT PRIMARY KEY, user_id BIGINT NOT NULL, data CLOB NOT NULL)");
+            statement.execute("CREATE INDEX eventos_user ON eventos (user_id)");
+            statement.execute("CREATE TABLE storage_meta (table_name VARCHAR(64) PRIMARY KEY)");
+            statement.execute("INSERT INTO storage_meta VALUES ('eventos')");
+            statement.execute("INSERT INTO eventos VALUES (1, 1, '"
+                    + StorageTestSupport.MAPPER.writeValueAsString(at(1, 1, 9, "Lunes")) + "')");
+        }
+
+        H2UserScopedStorage<Event> migrated = newStorage();
+        migrated.migrateIfNeeded(tempDir.resolve("eventos.json"), file -> Map.of());
+
+        assertThat(migrated.readOverlapping(1L, LocalDateTime.of(2027, 3, 1, 0, 0), LocalDateTime.of(2027, 3, 2, 0, 0),
+                null, null, 10)).extracting(Event::getId).containsExactly(1L);
+        assertThat(migrated.readByDiaSemana(1L, List.of("Lunes"))).extracting(Event::getId).containsExactly(1L);
+    }
+}
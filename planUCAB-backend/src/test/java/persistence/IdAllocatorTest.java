@@ -0,0 +1,158 @@
+package persistence;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Varias instancias (en hilos y en procesos aparte) que reparten ids del mismo archivo
+// de secuencia nunca entregan el mismo id dos veces
+class IdAllocatorTest {
+
+    private static final int BLOCK_SIZE = 7;
+
+    @TempDir
+    Path dir;
+
+    // Proceso hijo: reparte count ids del archivo y los imprime uno por línea
+    public static final class Drawer {
+        public static void main(String[] args) throws IOException {
+            IdAllocator allocator = new IdAllocator(Path.of(args[0]), Long.parseLong(args[1]));
+            // Como al arrancar un repositorio
+            allocator.ensureAbove(0);
+            int count = Integer.parseInt(args[2]);
+            StringBuilder out = new StringBuilder();
+            for (int i = 0; i < count; i++) {
+                out.append(allocator.next()).append('\n');
+            }
+            System.out.print(out);
+            System.out.flush();
+        }
+    }
+
+    private static List<Long> draw(IdAllocator allocator, int count) {
+        List<Long> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add(allocator.next());
+        }
+        return ids;
+    }
+
+    // Agrega los ids comprobando que ninguno se repita
+    private static void addAllUnique(Set<Long> all, List<Long> ids) {
+        for (Long id : ids) {
+            assertThat(all.add(id)).as("id %d repetido", id).isTrue();
+        }
+    }
+
+    @Test
+    void instancesInOneProcessNeverRepeatAnId() throws Exception {
+        Path file = dir.resolve("eventos.seq");
+        int instances = 4;
+        int threadsPerInstance = 4;
+        int perThread = 500;
+        List<IdAllocator> allocators = new ArrayList<>();
+        for (int i = 0; i < instances; i++) {
+            allocators.add(new IdAllocator(file, BLOCK_SIZE));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(instances * threadsPerInstance);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<List<Long>>> futures = new ArrayList<>();
+        try {
+            for (IdAllocator allocator : allocators) {
+                for (int t = 0; t < threadsPerInstance; t++) {
+                    Callable<List<Long>> task = () -> {
+                        start.await();
+                        return draw(allocator, perThread);
+                    };
+                    futures.add(executor.submit(task));
+                }
+            }
+            start.countDown();
+            Set<Long> all = new HashSet<>();
+            for (Future<List<Long>> future : futures) {
+                addAllUnique(all, future.get());
+            }
+            assertThat(all).hasSize(instances * threadsPerInstance * perThread);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void forkedProcessesSharingTheFileNeverRepeatAnId() throws Exception {
+        Path file = dir.resolve("horarios.seq");
+        int processes = 3;
+        int perProcess = 2000;
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+
+        List<Process> children = new ArrayList<>();
+        for (int i = 0; i < processes; i++) {
+            children.add(new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                    Drawer.class.getName(), file.toString(), String.valueOf(BLOCK_SIZE), String.valueOf(perProcess))
+                    .redirectError(ProcessBuilder.Redirect.INHERIT)
+                    .start());
+        }
+        // Este proceso también reparte mientras los hijos corren
+        List<Long> local = draw(new IdAllocator(file, BLOCK_SIZE), perProcess);
+
+        Set<Long> all = new HashSet<>();
+        addAllUnique(all, local);
+        for (Process child : children) {
+            List<Long> ids = new ArrayList<>();
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(child.getInputStream(), StandardCharsets.US_ASCII))) {
+                for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                    ids.add(Long.parseLong(line.trim()));
+                }
+            }
+            assertThat(child.waitFor(60, TimeUnit.SECONDS)).isTrue();
+            assertThat(child.exitValue()).isZero();
+            assertThat(ids).hasSize(perProcess);
+            addAllUnique(all, ids);
+        }
+        assertThat(all).hasSize((processes + 1) * perProcess);
+    }
+
+    @Test
+    void newInstanceContinuesAboveTheIdsAlreadyHandedOut() throws IOException {
+        Path file = dir.resolve("evaluaciones.seq");
+        List<Long> before = draw(new IdAllocator(file, BLOCK_SIZE), 10);
+
+        IdAllocator restarted = new IdAllocator(file, BLOCK_SIZE);
+        assertThat(restarted.initialized()).isTrue();
+        restarted.ensureAbove(before.get(before.size() - 1));
+        long next = restarted.next();
+
+        // Los ids sin usar del bloque anterior se pierden: quedan huecos, nunca repetidos
+        assertThat(next).isGreaterThan(before.get(before.size() - 1));
+    }
+
+    @Test
+    void ensureAboveLiftsTheCeilingPastRestoredData() throws IOException {
+        Path file = dir.resolve("usuarios.seq");
+        IdAllocator allocator = new IdAllocator(file, BLOCK_SIZE);
+        assertThat(allocator.initialized()).isFalse();
+
+        allocator.ensureAbove(500);
+
+        assertThat(allocator.next()).isEqualTo(501);
+    }
+}
@@ -0,0 +1,73 @@
+package persistence;
+
+import benchmark.Bench;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Consulta de solapamiento con IntervalIndex contra un recorrido lineal de la lista con
+// 100, 10k y 100k intervalos de 1 a 3 horas repartidos en el tiempo
+@Tag(Bench.TAG)
+class IntervalIndexBenchmarkTest {
+
+    private static final LocalDateTime ORIGIN = LocalDateTime.of(2027, 1, 1, 0, 0);
+    private static final int QUERIES = 2_000;
+
+    private record Bloque(LocalDateTime start, LocalDateTime end) {
+    }
+
+    private static List<Bloque> bloques(int count, Random random) {
+        List<Bloque> bloques = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            // Uno cada dos horas en promedio, como una agenda cargada
+            LocalDateTime start = ORIGIN.plusMinutes(i * 120L + random.nextInt(60));
+            bloques.add(new Bloque(start, start.plusMinutes(60 + random.nextInt(121))));
+        }
+        return bloques;
+    }
+
+    private static List<Bloque> linear(List<Bloque> bloques, LocalDateTime start, LocalDateTime end) {
+        List<Bloque> result = new ArrayList<>();
+        for (Bloque bloque : bloques) {
+            if (bloque.start().isBefore(end) && bloque.end().isAfter(start)) {
+                result.add(bloque);
+            }
+        }
+        return result;
+    }
+
+    @Test
+    void overlapQueryIndexVersusLinearScan() {
+        for (int count : List.of(100, Bench.size("interval.medium", 10_000), Bench.size("interval.large", 100_000))) {
+            Random random = new Random(count);
+            List<Bloque> bloques = bloques(count, random);
+            IntervalIndex<Bloque> index = new IntervalIndex<>(Bloque::start, Bloque::end, bloques);
+            long span = count * 120L;
+            LocalDateTime[] starts = new LocalDateTime[QUERIES];
+            for (int i = 0; i < QUERIES; i++) {
+                starts[i] = ORIGIN.plusMinutes(random.nextLong(span));
+            }
+            int[] next = new int[2];
+
+            Bench.Stats indexed = Bench.measure(QUERIES, QUERIES, () -> {
+                LocalDateTime start = starts[next[0]++ % QUERIES];
+                index.overlapping(start, start.plusHours(1));
+            });
+            Bench.Stats scanned = Bench.measure(QUERIES, QUERIES, () -> {
+                LocalDateTime start = starts[next[1]++ % QUERIES];
+                linear(bloques, start, start.plusHours(1));
+            });
+            for (LocalDateTime start : List.of(starts[0], starts[QUERIES / 2])) {
+                assertThat(index.overlapping(start, start.plusHours(1)))
+                        .containsExactlyInAnyOrderElementsOf(linear(bloques, start, start.plusHours(1)));
+            }
+            Bench.report("Solapamiento con {} intervalos: indice {} | lineal {}", count, indexed, scanned);
+        }
+    }
+}
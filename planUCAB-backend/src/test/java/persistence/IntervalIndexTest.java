@@ -0,0 +1,63 @@
+package persistence;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IntervalIndexTest {
+
+    private record Bloque(String name, LocalDateTime start, LocalDateTime end) {
+    }
+
+    private static Bloque bloque(String name, int day, int startHour, int hours) {
+        LocalDateTime start = LocalDateTime.of(2027, 3, day, startHour, 0);
+        return new Bloque(name, start, start.plusHours(hours));
+    }
+
+    private static IntervalIndex<Bloque> index(Bloque... bloques) {
+        return new IntervalIndex<>(Bloque::start, Bloque::end, List.of(bloques));
+    }
+
+    @Test
+    void findsIntervalsThatStartBeforeTheRange() {
+        Bloque largo = bloque("largo", 1, 8, 48);
+        Bloque corto = bloque("corto", 3, 9, 1);
+        IntervalIndex<Bloque> index = index(largo, corto);
+
+        assertThat(index.overlapping(LocalDateTime.of(2027, 3, 2, 12, 0), LocalDateTime.of(2027, 3, 2, 13, 0)))
+                .containsExactly(largo);
+        assertThat(index.overlapping(LocalDateTime.of(2027, 3, 3, 7, 0), LocalDateTime.of(2027, 3, 3, 9, 30)))
+                .containsExactly(largo, corto);
+    }
+
+    @Test
+    void windowShrinksWhenTheLongestIntervalIsRemoved() {
+        Bloque largo = bloque("largo", 1, 8, 48);
+        Bloque otroLargo = bloque("otro largo", 5, 8, 48);
+        Bloque corto = bloque("corto", 3, 9, 2);
+        IntervalIndex<Bloque> index = index(largo, otroLargo, corto);
+
+        index.remove(largo);
+        assertThat(index.maxDuration()).isEqualTo(Duration.ofHours(48));
+        index.remove(otroLargo);
+        assertThat(index.maxDuration()).isEqualTo(Duration.ofHours(2));
+        index.remove(corto);
+        assertThat(index.maxDuration()).isZero();
+    }
+
+    @Test
+    void removingARecordThatIsNotIndexedKeepsTheWindow() {
+        Bloque largo = bloque("largo", 1, 8, 48);
+        IntervalIndex<Bloque> index = index(largo);
+
+        index.remove(bloque("ajeno", 1, 8, 48));
+
+        assertThat(index.maxDuration()).isEqualTo(Duration.ofHours(48));
+        assertThat(index.overlapping(LocalDateTime.of(2027, 3, 2, 0, 0), LocalDateTime.of(2027, 3, 2, 1, 0)))
+                .containsExactly(largo);
+    }
+}
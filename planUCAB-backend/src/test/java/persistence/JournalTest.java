@@ -0,0 +1,120 @@
+package persistence;
+
+import model.Event;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static persistence.StorageTestSupport.MAPPER;
+import static persistence.StorageTestSupport.event;
+
+// Anexado, force agrupado, cambio de segmento y replay del journal
+class JournalTest {
+
+    @TempDir
+    Path dir;
+
+    private Journal<Event> journal() {
+        return new Journal<>(dir, MAPPER, Event.class);
+    }
+
+    private List<JournalEntry<Event>> reopen() throws IOException {
+        List<JournalEntry<Event>> replayed = new ArrayList<>();
+        Journal<Event> reopened = journal();
+        reopened.open(replayed::add);
+        reopened.close();
+        return replayed;
+    }
+
+    @Test
+    void syncedEntriesAreReplayedInOrder() throws IOException {
+        Journal<Event> journal = journal();
+        journal.open(entry -> { });
+        journal.append(JournalEntry.put(1L, 10L, event(10L, 1L, "Uno")));
+        long last = journal.appendAll(List.of(JournalEntry.put(2L, 20L, event(20L, 2L, "Dos")),
+                JournalEntry.delete(1L, 10L)));
+        journal.sync(last);
+        journal.close();
+
+        assertThat(reopen()).extracting(JournalEntry::getOp, JournalEntry::getId)
+                .containsExactly(tuple(JournalEntry.Op.PUT, 10L),
+                        tuple(JournalEntry.Op.PUT, 20L),
+                        tuple(JournalEntry.Op.DELETE, 10L));
+    }
+
+    @Test
+    void concurrentSyncsAllReturnCovered() throws Exception {
+        Journal<Event> journal = journal();
+        journal.open(entry -> { });
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (long i = 1; i <= 200; i++) {
+                long id = i;
+                futures.add(executor.submit(() -> {
+                    long seq = journal.append(JournalEntry.put(id % 5, id, event(id, id % 5, "E" + id)));
+                    journal.sync(seq);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertThat(journal.lastAppended()).isEqualTo(200);
+        journal.close();
+        assertThat(reopen()).hasSize(200);
+    }
+
+    @Test
+    void rollReportsTheUsersOfTheClosedSegmentsAndKeepsOlderSyncsValid() throws IOException {
+        Journal<Event> journal = journal();
+        journal.open(entry -> { });
+        long antes = journal.append(JournalEntry.put(1L, 10L, event(10L, 1L, "Uno")));
+        journal.append(JournalEntry.put(2L, 20L, event(20L, 2L, "Dos")));
+
+        Journal.Rollover rollover = journal.roll();
+        journal.append(JournalEntry.put(3L, 30L, event(30L, 3L, "Tres")));
+
+        assertThat(rollover.dirtyUsers()).containsExactlyInAnyOrder(1L, 2L);
+        // roll() forzó el segmento cerrado: sincronizar un número anterior no falla
+        journal.sync(antes);
+        journal.markDirty(Set.of(2L));
+        assertThat(journal.roll().dirtyUsers()).containsExactlyInAnyOrder(2L, 3L);
+
+        journal.discardUpTo(rollover.covered());
+        journal.close();
+        assertThat(reopen()).extracting(JournalEntry::getId).containsExactly(30L);
+    }
+
+    @Test
+    void aTruncatedLastLineIsDiscarded() throws IOException {
+        Journal<Event> journal = journal();
+        journal.open(entry -> { });
+        journal.sync(journal.append(JournalEntry.put(1L, 10L, event(10L, 1L, "Uno"))));
+        journal.close();
+        try (Stream<Path> files = Files.list(dir)) {
+            Path segment = files.findFirst().orElseThrow();
+            Files.writeString(segment, "{\"op\":\"PUT\",\"userId\":1,\"id\":11,\"da", StandardCharsets.UTF_8,
+                    StandardOpenOption.APPEND);
+        }
+
+        assertThat(reopen()).extracting(JournalEntry::getId).containsExactly(10L);
+    }
+}
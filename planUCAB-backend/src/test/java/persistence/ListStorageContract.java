@@ -0,0 +1,65 @@
+package persistence;
+
+import model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Contrato de ListStorage: cada backend lo cumple con las mismas pruebas
+abstract class ListStorageContract {
+
+    @TempDir
+    Path tempDir;
+
+    ListStorage<User> storage;
+
+    protected abstract ListStorage<User> createStorage(Path file) throws IOException;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        storage = createStorage(tempDir.resolve("usuarios.json"));
+    }
+
+    static User user(long id, String email) {
+        return new User(id, "user" + id, email, "secreto");
+    }
+
+    @Test
+    void nothingStoredUntilFirstWrite() throws IOException {
+        assertThat(storage.exists()).isFalse();
+        assertThat(storage.read()).isNull();
+    }
+
+    @Test
+    void writeThenReadRoundTrips() throws IOException {
+        storage.write(List.of(user(1, "a@x.com"), user(2, "b@x.com")));
+
+        assertThat(storage.exists()).isTrue();
+        assertThat(storage.read()).extracting(User::getEmail).containsExactly("a@x.com", "b@x.com");
+    }
+
+    @Test
+    void writeOfEmptyListLeavesAnEmptyList() throws IOException {
+        storage.write(List.of());
+
+        assertThat(storage.exists()).isTrue();
+        assertThat(storage.read()).isEmpty();
+    }
+
+    @Test
+    void upsertAddsAndUpdatesWithoutLosingOtherRecords() throws IOException {
+        storage.write(List.of(user(1, "a@x.com"), user(2, "b@x.com")));
+
+        User changed = user(2, "b2@x.com");
+        User added = user(3, "c@x.com");
+        storage.upsert(List.of(user(1, "a@x.com"), changed, added), List.of(changed, added));
+
+        assertThat(storage.read()).extracting(User::getEmail).containsExactly("a@x.com", "b2@x.com", "c@x.com");
+    }
+}
@@ -0,0 +1,204 @@
+package persistence;
+
+import benchmark.Bench;
+import control.eventcontrollers.EventRepository;
+import model.Event;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Lecturas de la lista de un usuario bajo carga mixta: varios hilos que recorren la
+// lista completa (como al serializarla) mientras un escritor agrega un registro por
+// milisegundo. Compara EventRepository.findByUserId (snapshot publicado, con la
+// persistencia async detrás) con el mismo esquema aislado y con las alternativas: copiar
+// la lista con el lock en cada lectura y CopyOnWriteArrayList (que copia en cada
+// escritura). Reporta lecturas/s con 1, 2, 4 y 8 lectores y las escrituras logradas.
+@Tag(Bench.TAG)
+class ReadOptionsBenchmarkTest {
+
+    private static final Long USER = 1L;
+    private static final int STORED = 1_000;
+    private static final long MEASURE_MS = 1_500;
+
+    @TempDir
+    Path dataDir;
+
+    // Escrituras/s de la última medición
+    private static double lastWritesPerSecond;
+
+    private interface Store {
+        List<Event> read();
+
+        void add(Event event);
+    }
+
+    // Lo que hacía findByUserId antes del snapshot: copia con el lock tomado
+    private static final class LockedCopy implements Store {
+        private final List<Event> events = new ArrayList<>();
+
+        @Override
+        public synchronized List<Event> read() {
+            return new ArrayList<>(events);
+        }
+
+        @Override
+        public synchronized void add(Event event) {
+            events.add(event);
+        }
+    }
+
+    // El esquema de UserRecords sin el resto del repositorio: cada escritura invalida la
+    // copia y el primer lector que llega la vuelve a armar con el lock
+    private static final class LazySnapshot implements Store {
+        private final List<Event> events = new ArrayList<>();
+        private volatile List<Event> publicada;
+
+        @Override
+        public List<Event> read() {
+            List<Event> actual = publicada;
+            if (actual != null) {
+                return actual;
+            }
+            synchronized (this) {
+                if (publicada == null) {
+                    publicada = List.copyOf(events);
+                }
+                return publicada;
+            }
+        }
+
+        @Override
+        public synchronized void add(Event event) {
+            events.add(event);
+            publicada = null;
+        }
+    }
+
+    private static final class CopyOnWrite implements Store {
+        private final List<Event> events = new CopyOnWriteArrayList<>();
+
+        @Override
+        public List<Event> read() {
+            return events;
+        }
+
+        @Override
+        public void add(Event event) {
+            events.add(event);
+        }
+    }
+
+    private static Event event(int n) {
+        Event event = new Event();
+        event.setId((long) n);
+        event.setUserId(USER);
+        event.setName("Evento " + n);
+        event.setColorHex("#336699");
+        LocalDateTime start = LocalDateTime.of(2030, 1, 1, 8, 0).plusHours(n);
+        event.setStartDateTime(start);
+        event.setEndDateTime(start.plusMinutes(50));
+        return event;
+    }
+
+    // Lecturas/s de readers hilos durante MEASURE_MS con el escritor activo
+    private static double readsPerSecond(Store store, int readers, int[] nextId) throws InterruptedException {
+        int before = nextId[0];
+        AtomicBoolean running = new AtomicBoolean(true);
+        LongAdder reads = new LongAdder();
+        CountDownLatch done = new CountDownLatch(readers + 1);
+        List<Thread> threads = new ArrayList<>();
+        threads.add(new Thread(() -> {
+            while (running.get()) {
+                store.add(event(nextId[0]++));
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            done.countDown();
+        }));
+        for (int r = 0; r < readers; r++) {
+            threads.add(new Thread(() -> {
+                long sink = 0;
+                while (running.get()) {
+                    for (Event event : store.read()) {
+                        sink += event.getId();
+                    }
+                    reads.increment();
+                }
+                assertThat(sink).isPositive();
+                done.countDown();
+            }));
+        }
+        threads.forEach(Thread::start);
+        Thread.sleep(MEASURE_MS);
+        running.set(false);
+        assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+        lastWritesPerSecond = (nextId[0] - before) * 1000.0 / MEASURE_MS;
+        return reads.sum() * 1000.0 / MEASURE_MS;
+    }
+
+    @Test
+    void readThroughputUnderMixedLoad() throws InterruptedException {
+        Map<String, Object> properties = Map.of(
+                "event.storage.path", dataDir.resolve("eventos.json").toString(),
+                "event.storage.shards", dataDir.resolve("eventos").toString(),
+                "persistence.sequence.path", dataDir.resolve("sequences").toString(),
+                "persistence.durability", "async");
+        try (AnnotationConfigApplicationContext context = Bench.context(properties, EventRepository.class,
+                UserLocks.class, PersistenceScheduler.class, SnapshotCodec.class, StorageFactory.class)) {
+            EventRepository repository = context.getBean(EventRepository.class);
+            Store snapshot = new Store() {
+                @Override
+                public List<Event> read() {
+                    return repository.findByUserId(USER);
+                }
+
+                @Override
+                public void add(Event event) {
+                    event.setId(null);
+                    repository.save(USER, event);
+                }
+            };
+            Map<String, Store> stores = new LinkedHashMap<>();
+            stores.put("EventRepository", snapshot);
+            stores.put("snapshot perezoso", new LazySnapshot());
+            stores.put("copia con lock", new LockedCopy());
+            stores.put("CopyOnWriteArrayList", new CopyOnWrite());
+            for (Map.Entry<String, Store> entry : stores.entrySet()) {
+                Store store = entry.getValue();
+                int[] nextId = { 1 };
+                for (; nextId[0] <= STORED; nextId[0]++) {
+                    store.add(event(nextId[0]));
+                }
+                // Calentamiento
+                readsPerSecond(store, 2, nextId);
+                StringBuilder line = new StringBuilder();
+                for (int readers : List.of(1, 2, 4, 8)) {
+                    double lecturas = readsPerSecond(store, readers, nextId);
+                    line.append(String.format(" | %d lectores: %.0f lecturas/s (%.0f escrituras/s)", readers,
+                            lecturas, lastWritesPerSecond));
+                }
+                Bench.report("{} ({} registros al inicio, {} procesadores){}", entry.getKey(), STORED,
+                        Runtime.getRuntime().availableProcessors(), line);
+            }
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package persistence;
+
+import model.User;
+
+import java.nio.file.Path;
+
+class SnapshotFileStorageTest extends ListStorageContract {
+
+    @Override
+    protected ListStorage<User> createStorage(Path file) {
+        return StorageTestSupport.userFile(file);
+    }
+}
@@ -0,0 +1,82 @@
+package persistence;
+
+import benchmark.Bench;
+import com.fasterxml.jackson.databind.JavaType;
+import model.Event;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static persistence.StorageTestSupport.MAPPER;
+
+// Tiempo de carga de todos los shards al arrancar (loadAll) en JSON y en binario con
+// 10k, 100k y 1M eventos, PER_USER eventos por usuario
+@Tag(Bench.TAG)
+class SnapshotStartupBenchmarkTest {
+
+    private static final int PER_USER = 200;
+
+    @TempDir
+    Path dir;
+
+    private static SnapshotCodec codec(String format) {
+        SnapshotCodec codec = new SnapshotCodec();
+        ReflectionTestUtils.setField(codec, "formatProperty", format);
+        codec.init();
+        return codec;
+    }
+
+    private static UserShardStore<Event> store(Path directory, String format) {
+        JavaType listType = MAPPER.getTypeFactory().constructCollectionType(List.class, Event.class);
+        return new UserShardStore<>(directory, MAPPER.writerWithDefaultPrettyPrinter(),
+                shard -> MAPPER.readValue(shard.toFile(), listType), codec(format), listType);
+    }
+
+    private static void fill(UserShardStore<Event> store, int records) throws IOException {
+        long id = 1;
+        for (long userId = 1; userId <= records / PER_USER; userId++) {
+            List<Event> events = new ArrayList<>(PER_USER);
+            for (int i = 0; i < PER_USER; i++, id++) {
+                Event event = StorageTestSupport.event(id, userId, "Evento " + id);
+                event.setLocation("Aula " + (id % 40));
+                events.add(event);
+            }
+            store.write(userId, events);
+        }
+    }
+
+    private double loadMillis(UserShardStore<Event> store, int records) {
+        int[] loaded = new int[1];
+        double millis = Bench.millis(() -> {
+            Map<Long, List<Event>> all = store.loadAll();
+            loaded[0] = all.values().stream().mapToInt(List::size).sum();
+        });
+        assertThat(loaded[0]).isEqualTo(records);
+        return millis;
+    }
+
+    @Test
+    void startupTimeJsonVersusBinary() throws IOException {
+        for (int records : List.of(Bench.size("snapshot.small", 10_000), Bench.size("snapshot.medium", 100_000),
+                Bench.size("snapshot.large", 1_000_000))) {
+            for (String format : List.of("json", "binary")) {
+                Path directory = dir.resolve(format + "-" + records);
+                UserShardStore<Event> store = store(directory, format);
+                fill(store, records);
+                // Primera carga para calentar el JIT; se reporta la segunda
+                loadMillis(store, records);
+                double millis = loadMillis(store, records);
+                Bench.report("Arranque {} con {} eventos: {} ms ({} registros/s)", format, records,
+                        String.format("%.0f", millis), String.format("%.0f", records / (millis / 1000)));
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package persistence;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import model.Event;
+import model.User;
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+// Piezas comunes de las pruebas de almacenamiento: mapper, codec y backends sobre un
+// directorio temporal o una base H2 en memoria
+final class StorageTestSupport {
+
+    static final ObjectMapper MAPPER = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    private StorageTestSupport() {
+    }
+
+    static SnapshotCodec jsonCodec() {
+        SnapshotCodec codec = new SnapshotCodec();
+        ReflectionTestUtils.setField(codec, "formatProperty", "json");
+        codec.init();
+        return codec;
+    }
+
+    static UserShardStore<Event> eventShards(Path directory) {
+        JavaType listType = MAPPER.getTypeFactory().constructCollectionType(List.class, Event.class);
+        return new UserShardStore<>(directory, MAPPER.writerWithDefaultPrettyPrinter(),
+                shard -> MAPPER.readValue(shard.toFile(), listType), jsonCodec(), listType);
+    }
+
+    static SnapshotFileStorage<User> userFile(Path path) {
+        JavaType listType = MAPPER.getTypeFactory().constructCollectionType(List.class, User.class);
+        return new SnapshotFileStorage<>(jsonCodec(), path, MAPPER.writerWithDefaultPrettyPrinter(), listType,
+                file -> MAPPER.readValue(file.toFile(), listType));
+    }
+
+    static JdbcConnectionPool memoryDatabase() {
+        return JdbcConnectionPool.create("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+    }
+
+    static Event event(Long id, Long userId, String name) {
+        Event event = new Event();
+        event.setId(id);
+        event.setUserId(userId);
+        event.setVersion(1L);
+        event.setName(name);
+        event.setColorHex("#FFFFFF");
+        event.setStartDateTime(LocalDateTime.of(2027, 3, 1, 10, 0));
+        event.setEndDateTime(LocalDateTime.of(2027, 3, 1, 11, 0));
+        return event;
+    }
+}
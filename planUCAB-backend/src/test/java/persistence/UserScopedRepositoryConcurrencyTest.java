@@ -0,0 +1,128 @@
+package persistence;
+
+import control.eventcontrollers.EventRepository;
+import model.Event;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Las mutaciones toman solo el lock del usuario: una que queda detenida dentro del
+// repositorio no frena las escrituras ni las lecturas de otro usuario, y findById no
+// toma ningún lock. Las listas ya publicadas no cambian por mutaciones posteriores.
+@SpringJUnitConfig({ EventRepository.class, UserLocks.class, PersistenceScheduler.class, SnapshotCodec.class,
+        StorageFactory.class })
+class UserScopedRepositoryConcurrencyTest {
+
+    // En franjas distintas de UserLocks
+    private static final Long LENTO = 1L;
+    private static final Long OTRO = 2L;
+    private static final Long LOTE = 3L;
+
+    @TempDir
+    static Path dataDir;
+
+    @DynamicPropertySource
+    static void storage(DynamicPropertyRegistry registry) {
+        registry.add("event.storage.path", () -> dataDir.resolve("eventos.json").toString());
+        registry.add("event.storage.shards", () -> dataDir.resolve("eventos").toString());
+        registry.add("persistence.sequence.path", () -> dataDir.resolve("sequences").toString());
+        registry.add("persistence.durability", () -> "sync");
+    }
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    // Índice que detiene la mutación del usuario LENTO hasta que se libere
+    private static final class BlockingIndex implements RecordIndex<Event> {
+        private final CountDownLatch entered = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public void add(Event record) {
+            if (LENTO.equals(record.getUserId())) {
+                entered.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        @Override
+        public void remove(Event record) {
+        }
+    }
+
+    private static Event event(String name, int day) {
+        Event event = new Event();
+        event.setName(name);
+        event.setColorHex("#FFFFFF");
+        event.setStartDateTime(LocalDateTime.of(2030, 1, day, 10, 0));
+        event.setEndDateTime(LocalDateTime.of(2030, 1, day, 11, 0));
+        return event;
+    }
+
+    @Test
+    void aStalledMutationOnlyHoldsItsOwnUser() throws Exception {
+        // Ambos usuarios ya tienen registros, así el índice se arma y se mantiene en cada save
+        Event previoLento = eventRepository.save(LENTO, event("Previo", 1));
+        eventRepository.save(OTRO, event("Previo", 1));
+        BlockingIndex index = new BlockingIndex();
+        UserIndex<Event, BlockingIndex> bloqueante = eventRepository.registerIndex(records -> index);
+        bloqueante.get(LENTO);
+        bloqueante.get(OTRO);
+
+        CompletableFuture<Event> detenida = CompletableFuture.supplyAsync(
+                () -> eventRepository.save(LENTO, event("Lento", 2)));
+        try {
+            assertThat(index.entered.await(5, TimeUnit.SECONDS)).isTrue();
+
+            // Mientras tanto el otro usuario escribe, lee y borra sin esperar
+            Event otro = CompletableFuture.supplyAsync(() -> eventRepository.save(OTRO, event("Otro", 2)))
+                    .get(5, TimeUnit.SECONDS);
+            assertThat(eventRepository.findById(OTRO, otro.getId())).isSameAs(otro);
+            assertThat(eventRepository.findByUserId(OTRO)).hasSize(2);
+            CompletableFuture.runAsync(() -> eventRepository.delete(OTRO, otro.getId())).get(5, TimeUnit.SECONDS);
+            // Las lecturas por id no esperan ni al usuario detenido
+            assertThat(CompletableFuture.supplyAsync(() -> eventRepository.findById(LENTO, previoLento.getId()))
+                    .get(5, TimeUnit.SECONDS)).isSameAs(previoLento);
+            assertThat(detenida).isNotDone();
+        } finally {
+            index.release.countDown();
+        }
+        assertThat(detenida.get(5, TimeUnit.SECONDS).getId()).isNotNull();
+        assertThat(eventRepository.findByUserId(LENTO)).hasSize(2);
+    }
+
+    @Test
+    void revertingLeavesEarlierSnapshotsUntouched() {
+        Event original = eventRepository.save(LOTE, event("Original", 3));
+        List<Event> antes = eventRepository.findByUserId(LOTE);
+
+        Event editado = event("Editado", 3);
+        eventRepository.update(LOTE, original.getId(), editado, original.getVersion());
+        eventRepository.revertTo(LOTE, antes);
+
+        // El registro restaurado es una copia con la versión nueva; el de la lista anterior
+        // conserva la suya
+        Event restaurado = eventRepository.findById(LOTE, original.getId());
+        assertThat(restaurado).isNotSameAs(original);
+        assertThat(restaurado.getName()).isEqualTo("Original");
+        assertThat(restaurado.getVersion()).isEqualTo(original.getVersion() + 2);
+        assertThat(antes).singleElement().isSameAs(original);
+        assertThat(original.getVersion()).isEqualTo(1L);
+    }
+}
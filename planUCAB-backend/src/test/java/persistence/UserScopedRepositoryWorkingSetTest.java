@@ -0,0 +1,139 @@
+package persistence;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import control.eventcontrollers.EventRepository;
+import model.Bloque;
+import model.Event;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// En modo working set la carga del shard de un usuario no toma ningún lock global: mientras
+// una lectura lenta de disco está en curso, los demás usuarios siguen operando y quien pide
+// al mismo usuario espera esa misma carga en lugar de leer otra vez
+@SpringJUnitConfig({ EventRepository.class, UserLocks.class, PersistenceScheduler.class, SnapshotCodec.class,
+        UserScopedRepositoryWorkingSetTest.SlowStorageFactory.class })
+class UserScopedRepositoryWorkingSetTest {
+
+    private static final Long LENTO = 1L;
+    private static final Long OTRO = 2L;
+
+    private static final CountDownLatch entered = new CountDownLatch(1);
+    private static final CountDownLatch release = new CountDownLatch(1);
+    private static final AtomicInteger lentoReads = new AtomicInteger();
+
+    @TempDir
+    static Path dataDir;
+
+    @DynamicPropertySource
+    static void storage(DynamicPropertyRegistry registry) {
+        registry.add("event.storage.path", () -> dataDir.resolve("eventos.json").toString());
+        registry.add("event.storage.shards", () -> dataDir.resolve("eventos").toString());
+        registry.add("persistence.sequence.path", () -> dataDir.resolve("sequences").toString());
+        registry.add("persistence.durability", () -> "sync");
+        registry.add("persistence.working-set.enabled", () -> "true");
+    }
+
+    // Detiene la lectura del shard del usuario LENTO hasta que se libere
+    @Component("storageFactory")
+    static class SlowStorageFactory extends StorageFactory {
+        @Override
+        public <T extends Bloque> UserScopedStorage<T> userScoped(String name, UserShardStore<T> files,
+                                                                  ObjectMapper mapper, Class<T> type,
+                                                                  IndexedColumns<T> columns) {
+            UserScopedStorage<T> delegate = super.userScoped(name, files, mapper, type, columns);
+            return new UserScopedStorage<>() {
+                @Override
+                public void migrateIfNeeded(Path legacyFile, LegacyReader<T> legacyReader) throws IOException {
+                    delegate.migrateIfNeeded(legacyFile, legacyReader);
+                }
+
+                @Override
+                public Map<Long, List<T>> loadAll() throws IOException {
+                    return delegate.loadAll();
+                }
+
+                @Override
+                public List<Long> userIds() throws IOException {
+                    return delegate.userIds();
+                }
+
+                @Override
+                public List<T> read(Long userId) throws IOException {
+                    if (LENTO.equals(userId)) {
+                        lentoReads.incrementAndGet();
+                        entered.countDown();
+                        try {
+                            release.await(10, TimeUnit.SECONDS);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                    return delegate.read(userId);
+                }
+
+                @Override
+                public void write(Long userId, List<T> records) throws IOException {
+                    delegate.write(userId, records);
+                }
+            };
+        }
+    }
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    private static Event event(String name, int day) {
+        Event event = new Event();
+        event.setName(name);
+        event.setColorHex("#FFFFFF");
+        event.setStartDateTime(LocalDateTime.of(2030, 1, day, 10, 0));
+        event.setEndDateTime(LocalDateTime.of(2030, 1, day, 11, 0));
+        return event;
+    }
+
+    @Test
+    void aSlowShardLoadOnlyHoldsItsOwnUser() throws Exception {
+        CompletableFuture<List<Event>> primera = CompletableFuture.supplyAsync(
+                () -> eventRepository.findByUserId(LENTO));
+        try {
+            assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+            // Un segundo pedido del mismo usuario espera la carga en curso
+            CompletableFuture<Event> segunda = CompletableFuture.supplyAsync(
+                    () -> eventRepository.save(LENTO, event("Lento", 1)));
+
+            // El otro usuario se carga, escribe y lee sin esperar
+            Event otro = CompletableFuture.supplyAsync(() -> eventRepository.save(OTRO, event("Otro", 1)))
+                    .get(5, TimeUnit.SECONDS);
+            assertThat(CompletableFuture.supplyAsync(() -> eventRepository.findById(OTRO, otro.getId()))
+                    .get(5, TimeUnit.SECONDS)).isSameAs(otro);
+            assertThat(eventRepository.findByUserId(OTRO)).containsExactly(otro);
+            assertThat(primera).isNotDone();
+            assertThat(segunda).isNotDone();
+
+            release.countDown();
+            assertThat(primera.get(5, TimeUnit.SECONDS)).isEmpty();
+            assertThat(segunda.get(5, TimeUnit.SECONDS).getId()).isNotNull();
+        } finally {
+            release.countDown();
+        }
+        assertThat(eventRepository.findByUserId(LENTO)).hasSize(1);
+        assertThat(lentoReads).hasValue(1);
+    }
+}
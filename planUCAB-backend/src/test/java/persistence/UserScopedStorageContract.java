@@ -0,0 +1,104 @@
+package persistence;
+
+import model.Event;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static persistence.StorageTestSupport.event;
+
+// Contrato de UserScopedStorage: cada backend lo cumple con las mismas pruebas
+abstract class UserScopedStorageContract {
+
+    @TempDir
+    Path tempDir;
+
+    UserScopedStorage<Event> storage;
+
+    protected abstract UserScopedStorage<Event> createStorage(Path shardDirectory) throws IOException;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        storage = createStorage(tempDir.resolve("eventos"));
+    }
+
+    private void migrateFrom(Map<Long, List<Event>> legacy) throws IOException {
+        Path legacyFile = tempDir.resolve("eventos.json");
+        if (!legacy.isEmpty()) {
+            Files.writeString(legacyFile, "{}");
+        }
+        storage.migrateIfNeeded(legacyFile, file -> legacy);
+    }
+
+    @Test
+    void emptyStorageHasNoUsers() throws IOException {
+        migrateFrom(Map.of());
+
+        assertThat(storage.userIds()).isEmpty();
+        assertThat(storage.read(1L)).isNull();
+        assertThat(storage.loadAll()).isEmpty();
+    }
+
+    @Test
+    void migratesLegacyRecords() throws IOException {
+        migrateFrom(Map.of(1L, List.of(event(1L, 1L, "a"), event(2L, 1L, "b")), 2L, List.of(event(3L, 2L, "c"))));
+
+        assertThat(storage.userIds()).containsExactlyInAnyOrder(1L, 2L);
+        assertThat(storage.read(1L)).extracting(Event::getName).containsExactly("a", "b");
+    }
+
+    @Test
+    void writeThenReadRoundTrips() throws IOException {
+        migrateFrom(Map.of());
+        storage.write(7L, List.of(event(10L, 7L, "clase"), event(11L, 7L, "parcial")));
+
+        List<Event> read = storage.read(7L);
+        assertThat(read).extracting(Event::getId).containsExactly(10L, 11L);
+        assertThat(read).extracting(Event::getName).containsExactly("clase", "parcial");
+        assertThat(read.get(0).getStartDateTime()).isEqualTo(event(10L, 7L, "clase").getStartDateTime());
+        assertThat(read.get(0).getVersion()).isEqualTo(1L);
+    }
+
+    @Test
+    void writeReplacesOnlyThatUsersRecords() throws IOException {
+        migrateFrom(Map.of());
+        storage.write(1L, List.of(event(1L, 1L, "a"), event(2L, 1L, "b")));
+        storage.write(2L, List.of(event(3L, 2L, "c")));
+
+        storage.write(1L, List.of(event(2L, 1L, "b2")));
+
+        assertThat(storage.read(1L)).extracting(Event::getName).containsExactly("b2");
+        assertThat(storage.read(2L)).extracting(Event::getName).containsExactly("c");
+    }
+
+    @Test
+    void writingEmptyListRemovesUser() throws IOException {
+        migrateFrom(Map.of());
+        storage.write(1L, List.of(event(1L, 1L, "a")));
+
+        storage.write(1L, List.of());
+
+        assertThat(storage.read(1L)).isNull();
+        assertThat(storage.userIds()).doesNotContain(1L);
+    }
+
+    @Test
+    void loadAllGroupsRecordsByUser() throws IOException {
+        migrateFrom(Map.of());
+        storage.write(1L, List.of(event(1L, 1L, "a"), event(2L, 1L, "b")));
+        storage.write(2L, List.of(event(3L, 2L, "c")));
+
+        Map<Long, List<Event>> loaded = storage.loadAll();
+
+        assertThat(loaded).containsOnlyKeys(1L, 2L);
+        assertThat(loaded.get(1L)).extracting(Event::getId).containsExactly(1L, 2L);
+        assertThat(loaded.get(2L)).extracting(Event::getId).containsExactly(3L);
+    }
+}
@@ -0,0 +1,13 @@
+package persistence;
+
+import model.Event;
+
+import java.nio.file.Path;
+
+class UserShardStoreTest extends UserScopedStorageContract {
+
+    @Override
+    protected UserScopedStorage<Event> createStorage(Path shardDirectory) {
+        return StorageTestSupport.eventShards(shardDirectory);
+    }
+}
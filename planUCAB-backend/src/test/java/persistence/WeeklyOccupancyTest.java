@@ -0,0 +1,78 @@
+package persistence;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WeeklyOccupancyTest {
+
+    private record Bloque(String name, LocalDateTime start, LocalDateTime end) {
+    }
+
+    private static WeeklyOccupancy<Bloque> index(Bloque... bloques) {
+        return new WeeklyOccupancy<>(b -> WeeklyOccupancy.between(b.start(), b.end()), List.of(bloques));
+    }
+
+    @Test
+    void blockCrossingMidnightOccupiesBothDays() {
+        // Lunes 22:00 a martes 02:00
+        Bloque noche = new Bloque("noche", LocalDateTime.of(2027, 3, 1, 22, 0), LocalDateTime.of(2027, 3, 2, 2, 0));
+        WeeklyOccupancy<Bloque> occupancy = index(noche);
+
+        assertThat(occupancy.occupants(DayOfWeek.MONDAY, 23 * 60, 24 * 60)).containsExactly(noche);
+        assertThat(occupancy.occupants(DayOfWeek.TUESDAY, 30, 90)).containsExactly(noche);
+        assertThat(occupancy.isOccupied(DayOfWeek.TUESDAY, 120, 180)).isFalse();
+        assertThat(occupancy.busyRanges(DayOfWeek.TUESDAY)).containsExactly(new int[] { 0, 120 });
+    }
+
+    @Test
+    void blockEndingAtMidnightDoesNotTouchNextDay() {
+        Bloque bloque = new Bloque("tarde", LocalDateTime.of(2027, 3, 1, 20, 0), LocalDateTime.of(2027, 3, 2, 0, 0));
+
+        assertThat(WeeklyOccupancy.between(bloque.start(), bloque.end()))
+                .containsExactly(new WeeklyOccupancy.Span(DayOfWeek.MONDAY, 20 * 60, 24 * 60));
+    }
+
+    @Test
+    void multiDayBlockOccupiesEveryDayItTouches() {
+        // Viernes 18:00 a lunes 08:00
+        List<WeeklyOccupancy.Span> spans = WeeklyOccupancy.between(
+                LocalDateTime.of(2027, 3, 5, 18, 0), LocalDateTime.of(2027, 3, 8, 8, 0));
+
+        assertThat(spans).containsExactly(
+                new WeeklyOccupancy.Span(DayOfWeek.FRIDAY, 18 * 60, 24 * 60),
+                new WeeklyOccupancy.Span(DayOfWeek.SATURDAY, 0, 24 * 60),
+                new WeeklyOccupancy.Span(DayOfWeek.SUNDAY, 0, 24 * 60),
+                new WeeklyOccupancy.Span(DayOfWeek.MONDAY, 0, 8 * 60));
+    }
+
+    @Test
+    void weekOrLongerOccupiesTheWholeWeek() {
+        List<WeeklyOccupancy.Span> spans = WeeklyOccupancy.between(
+                LocalDateTime.of(2027, 3, 1, 10, 0), LocalDateTime.of(2027, 3, 8, 10, 0));
+
+        assertThat(spans).hasSize(7).allMatch(span -> span.startMinute() == 0 && span.endMinute() == 24 * 60);
+    }
+
+    @Test
+    void weeklyBlockCrossingMidnightContinuesNextDay() {
+        assertThat(WeeklyOccupancy.weekly(DayOfWeek.SUNDAY, 23 * 60, 60)).containsExactly(
+                new WeeklyOccupancy.Span(DayOfWeek.SUNDAY, 23 * 60, 24 * 60),
+                new WeeklyOccupancy.Span(DayOfWeek.MONDAY, 0, 60));
+    }
+
+    @Test
+    void removeClearsEveryDayOfTheBlock() {
+        Bloque noche = new Bloque("noche", LocalDateTime.of(2027, 3, 1, 22, 0), LocalDateTime.of(2027, 3, 2, 2, 0));
+        WeeklyOccupancy<Bloque> occupancy = index(noche);
+
+        occupancy.remove(noche);
+
+        assertThat(occupancy.isOccupied(DayOfWeek.MONDAY, 0, 24 * 60)).isFalse();
+        assertThat(occupancy.isOccupied(DayOfWeek.TUESDAY, 0, 24 * 60)).isFalse();
+    }
+}